@@ -0,0 +1,69 @@
+package com.omnitrix.gearup.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Runs ahead of security so a saturated group is shed before any token parsing or DB work.
+// Requests outside the four groups pass through unlimited.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Bulkheads bulkheads;
+
+    public BulkheadFilter(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Bulkheads.Group group = groupOf(request.getMethod(), request.getRequestURI());
+        if (group == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!bulkheads.tryEnter(group)) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType("text/plain");
+            response.getWriter().write("Server busy, please retry");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            bulkheads.exit(group);
+        }
+    }
+
+    static Bulkheads.Group groupOf(String method, String path) {
+        if (path.startsWith("/api/auth/")) {
+            return Bulkheads.Group.AUTH;
+        }
+        if (path.startsWith("/api/admin/") || path.startsWith("/api/user/admin/")) {
+            return Bulkheads.Group.ADMIN;
+        }
+        boolean get = "GET".equals(method);
+        if (get && (path.startsWith("/api/booking/courts/") || path.startsWith("/api/futsal/venues"))) {
+            return Bulkheads.Group.AVAILABILITY;
+        }
+        if (!get && path.startsWith("/api/futsal/venues")) {
+            return Bulkheads.Group.ADMIN; // adding venues and courts
+        }
+        if (!get && (path.startsWith("/api/booking/") || path.startsWith("/api/payment/")
+                || path.startsWith("/api/futsal/payment/"))) {
+            return Bulkheads.Group.BOOKING_WRITES;
+        }
+        return null;
+    }
+}
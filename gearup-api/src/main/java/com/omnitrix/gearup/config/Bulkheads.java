@@ -0,0 +1,87 @@
+package com.omnitrix.gearup.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Concurrency limits per endpoint group. With requests on virtual threads nothing else bounds how
+// many of them reach the database at once, so each group gets a semaphore sized below the Hikari
+// pool: a slow group queues on its own permits instead of taking every connection.
+@Component
+public class Bulkheads {
+
+    public enum Group { AUTH, AVAILABILITY, BOOKING_WRITES, ADMIN }
+
+    private final Map<Group, Semaphore> permits = new EnumMap<>(Group.class);
+    private final Map<Group, AtomicLong> rejected = new EnumMap<>(Group.class);
+    private final Map<Group, Integer> limits = new EnumMap<>(Group.class);
+    private final long maxWaitNanos;
+
+    public Bulkheads(@Value("${gearup.bulkhead.auth:6}") int auth,
+                     @Value("${gearup.bulkhead.availability:12}") int availability,
+                     @Value("${gearup.bulkhead.booking-writes:8}") int bookingWrites,
+                     @Value("${gearup.bulkhead.admin:3}") int admin,
+                     @Value("${gearup.bulkhead.max-wait:50ms}") Duration maxWait,
+                     @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        limits.put(Group.AUTH, auth);
+        limits.put(Group.AVAILABILITY, availability);
+        limits.put(Group.BOOKING_WRITES, bookingWrites);
+        limits.put(Group.ADMIN, admin);
+        limits.forEach((group, limit) -> {
+            if (limit < 1 || limit >= poolSize) {
+                throw new IllegalStateException("Bulkhead " + group + " is " + limit
+                        + " but must be between 1 and the connection pool size (" + poolSize + ") - 1");
+            }
+            permits.put(group, new Semaphore(limit, true));
+            rejected.put(group, new AtomicLong());
+        });
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    // Waits up to max-wait for a permit; false means the group is saturated and the caller should shed the request
+    public boolean tryEnter(Group group) {
+        try {
+            if (permits.get(group).tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.get(group).incrementAndGet();
+        return false;
+    }
+
+    public void exit(Group group) {
+        permits.get(group).release();
+    }
+
+    // For scheduled jobs: waits as long as it takes instead of shedding
+    public <T> T call(Group group, Supplier<T> work) {
+        Semaphore semaphore = permits.get(group);
+        semaphore.acquireUninterruptibly();
+        try {
+            return work.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    public int limit(Group group) {
+        return limits.get(group);
+    }
+
+    public int inFlight(Group group) {
+        return limits.get(group) - permits.get(group).availablePermits();
+    }
+
+    public long rejectedCount(Group group) {
+        return rejected.get(group).get();
+    }
+}
@@ -0,0 +1,71 @@
+package com.omnitrix.gearup.config;
+
+import com.omnitrix.gearup.security.PasswordHasher;
+import com.omnitrix.gearup.security.RefreshTokenRevocations;
+import com.omnitrix.gearup.service.SlotHolds;
+import com.omnitrix.gearup.service.SlotStreamHub;
+import com.omnitrix.gearup.service.notification.ReminderDispatcher;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+// Publishes the counters our in-memory components already keep (bulkheads, holds, live streams,
+// reminder delivery, password hashing, token revocations) as meters. They are read at scrape time, so the hot paths
+// pay nothing extra.
+@Component
+public class GearupMetrics implements MeterBinder {
+
+    private final Bulkheads bulkheads;
+    private final SlotHolds slotHolds;
+    private final SlotStreamHub slotStreamHub;
+    private final ReminderDispatcher reminderDispatcher;
+    private final PasswordHasher passwordHasher;
+    private final RefreshTokenRevocations revocations;
+
+    public GearupMetrics(Bulkheads bulkheads, SlotHolds slotHolds, SlotStreamHub slotStreamHub,
+                         ReminderDispatcher reminderDispatcher, PasswordHasher passwordHasher,
+                         RefreshTokenRevocations revocations) {
+        this.bulkheads = bulkheads;
+        this.slotHolds = slotHolds;
+        this.slotStreamHub = slotStreamHub;
+        this.reminderDispatcher = reminderDispatcher;
+        this.passwordHasher = passwordHasher;
+        this.revocations = revocations;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Bulkheads.Group group : Bulkheads.Group.values()) {
+            String tag = group.name().toLowerCase();
+            Gauge.builder("gearup.bulkhead.in.flight", bulkheads, b -> b.inFlight(group))
+                    .tag("group", tag).register(registry);
+            Gauge.builder("gearup.bulkhead.limit", bulkheads, b -> b.limit(group))
+                    .tag("group", tag).register(registry);
+            FunctionCounter.builder("gearup.bulkhead.rejected", bulkheads, b -> b.rejectedCount(group))
+                    .tag("group", tag).description("Requests shed with 503").register(registry);
+        }
+
+        Gauge.builder("gearup.holds.active", slotHolds, SlotHolds::activeCount)
+                .description("Slot holds waiting for payment on this node").register(registry);
+        Gauge.builder("gearup.sse.subscribers", slotStreamHub, SlotStreamHub::subscriberCount).register(registry);
+        Gauge.builder("gearup.sse.channels", slotStreamHub, SlotStreamHub::channelCount).register(registry);
+
+        Gauge.builder("gearup.reminders.queue", reminderDispatcher, ReminderDispatcher::queueDepth).register(registry);
+        FunctionCounter.builder("gearup.reminders.sent", reminderDispatcher, ReminderDispatcher::sentCount)
+                .register(registry);
+        FunctionCounter.builder("gearup.reminders.retried", reminderDispatcher, ReminderDispatcher::retriedCount)
+                .register(registry);
+        FunctionCounter.builder("gearup.reminders.failed", reminderDispatcher, ReminderDispatcher::failedCount)
+                .register(registry);
+
+        Gauge.builder("gearup.auth.hasher.queue", passwordHasher, PasswordHasher::queueDepth)
+                .description("Password checks and hashes waiting for a hashing thread").register(registry);
+        Gauge.builder("gearup.auth.hasher.active", passwordHasher, PasswordHasher::activeCount).register(registry);
+        FunctionCounter.builder("gearup.auth.hasher.rejected", passwordHasher, PasswordHasher::rejectedCount)
+                .description("Logins and registrations shed with 503").register(registry);
+        Gauge.builder("gearup.auth.revoked.families", revocations, RefreshTokenRevocations::size)
+                .description("Logged-out refresh token families held in memory").register(registry);
+    }
+}
@@ -1,6 +1,11 @@
 package com.omnitrix.gearup.config;
 
 import com.omnitrix.gearup.security.JwtAuthFilter;
+import com.omnitrix.gearup.security.ScrapeTokenFilter;
+import com.omnitrix.gearup.security.TimedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -19,23 +24,35 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http, JwtAuthFilter jwtAuthFilter) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, JwtAuthFilter jwtAuthFilter,
+                                           ScrapeTokenFilter scrapeTokenFilter) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Async dispatches of already authorized requests (SSE streams completing)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/user/**").authenticated()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        // Served on the management port only; probes carry no token. Prometheus
+                        // scrapes with the static scrape token, the rest need an admin token
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers(ScrapeTokenFilter.SCRAPE_PATH).hasAnyRole(ScrapeTokenFilter.ROLE, "ADMIN")
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
+                // The scrape token first, so it is never parsed as a JWT
+                .addFilterBefore(scrapeTokenFilter, UsernamePasswordAuthenticationFilter.class)
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
 
+    // New hashes use the configured cost; PasswordHasher rehashes older ones as their users log in
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${gearup.auth.bcrypt-cost:10}") int bcryptCost) {
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(bcryptCost), meterRegistry);
     }
 
     @Bean
@@ -0,0 +1,160 @@
+package com.omnitrix.gearup.controller;
+
+import com.omnitrix.gearup.model.BulkBookingRequest;
+import com.omnitrix.gearup.model.CacheRegionStats;
+import com.omnitrix.gearup.service.BookingExports;
+import com.omnitrix.gearup.service.BookingRollups;
+import com.omnitrix.gearup.service.BulkBookings;
+import com.omnitrix.gearup.service.OccupancyReports;
+import com.omnitrix.gearup.service.ReferenceDataCache;
+import com.omnitrix.gearup.service.SlotConflictException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    @Autowired private ReferenceDataCache referenceDataCache;
+    @Autowired private OccupancyReports occupancyReports;
+    @Autowired private BookingRollups bookingRollups;
+    @Autowired private BookingExports bookingExports;
+    @Autowired private BulkBookings bulkBookings;
+
+    private static final int MAX_REBUILD_DAYS = 366;
+
+    // Hit/miss counts for the venue and court cache regions since startup
+    @GetMapping("/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<CacheRegionStats> cacheStats() {
+        return referenceDataCache.stats();
+    }
+
+    // For venue or court edits made directly in the database
+    @DeleteMapping("/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> evictCache() {
+        referenceDataCache.evict();
+        return ResponseEntity.ok("Reference data cache cleared");
+    }
+
+    // ==== Bookings ====
+
+    // A batch of creates, cancels and reschedules, checked together and applied in one
+    // transaction; the answer has a result per item. 409 when a slot was taken by another node
+    // while the batch was applied, in which case none of it was.
+    @PostMapping("/bookings/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> bulkBookings(@RequestBody BulkBookingRequest request) {
+        try {
+            return ResponseEntity.ok(bulkBookings.apply(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (SlotConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    // ==== Reports ====
+
+    // Occupancy and revenue for from..to, grouped by day, week, month, weekday, hour, court or
+    // venue, optionally for one venue or court; read from the booking rollups only
+    @GetMapping("/reports")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> report(@RequestParam LocalDate from, @RequestParam LocalDate to,
+                                    @RequestParam(required = false) Long venueId,
+                                    @RequestParam(required = false) Long courtId,
+                                    @RequestParam(defaultValue = "day") String by) {
+        try {
+            return ResponseEntity.ok(occupancyReports.report(from, to, venueId, courtId, by));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Rebuilds the rollups of from..to from bookings and payments; without a range, backfills
+    // every booked day that has never been rebuilt
+    @PostMapping("/reports/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildReports(@RequestParam(required = false) LocalDate from,
+                                            @RequestParam(required = false) LocalDate to) {
+        if (from == null && to == null) {
+            return ResponseEntity.ok(Map.of("days", bookingRollups.backfill()));
+        }
+        if (from == null || to == null) {
+            return ResponseEntity.badRequest().body("Both from and to are required");
+        }
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days < 1 || days > MAX_REBUILD_DAYS) {
+            return ResponseEntity.badRequest().body("Date range must cover 1 to " + MAX_REBUILD_DAYS + " days");
+        }
+        return ResponseEntity.ok(Map.of("days", bookingRollups.rebuild(from, to)));
+    }
+
+    // ==== Exports ====
+
+    // Bookings dated from..to as a CSV or NDJSON download, streamed while it is read; status is
+    // PENDING, CONFIRMED or CANCELLED
+    @GetMapping("/exports/bookings")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportBookings(@RequestParam LocalDate from, @RequestParam LocalDate to,
+                                                                @RequestParam(required = false) Long venueId,
+                                                                @RequestParam(required = false) Long courtId,
+                                                                @RequestParam(required = false) String status,
+                                                                @RequestParam(defaultValue = "csv") String format) {
+        return export("bookings", from, to, format,
+                f -> bookingExports.bookings(from, to, venueId, courtId, status, f));
+    }
+
+    // Payments made from..to, as above; status is PAID or UNPAID
+    @GetMapping("/exports/payments")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportPayments(@RequestParam LocalDate from, @RequestParam LocalDate to,
+                                                                @RequestParam(required = false) Long venueId,
+                                                                @RequestParam(required = false) Long courtId,
+                                                                @RequestParam(required = false) String status,
+                                                                @RequestParam(defaultValue = "csv") String format) {
+        return export("payments", from, to, format,
+                f -> bookingExports.payments(from, to, venueId, courtId, status, f));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> export(String name, LocalDate from, LocalDate to, String format,
+                                                                Function<BookingExports.Format, StreamingResponseBody> body) {
+        try {
+            BookingExports.Format f = BookingExports.Format.parse(format);
+            String filename = name + "-" + from + "-" + to + "." + f.name().toLowerCase(Locale.ROOT);
+            StreamingResponseBody stream = body.apply(f);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(f.contentType + ";charset=UTF-8"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                    .body(out -> {
+                        // An export that lost the last permit to another one fails before writing,
+                        // while the status can still be changed
+                        try {
+                            stream.writeTo(out);
+                        } catch (IllegalStateException e) {
+                            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+                        }
+                    });
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+}
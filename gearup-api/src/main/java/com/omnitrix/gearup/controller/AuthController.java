@@ -4,18 +4,17 @@ import com.omnitrix.gearup.model.AuthRequest;
 import com.omnitrix.gearup.model.User;
 import com.omnitrix.gearup.repository.UserRepository;
 import com.omnitrix.gearup.security.JwtUtil;
-import jakarta.servlet.http.HttpServletRequest;
+import com.omnitrix.gearup.security.PasswordHasher;
+import com.omnitrix.gearup.security.PasswordHashingBusyException;
+import com.omnitrix.gearup.security.RefreshTokenStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import com.omnitrix.gearup.service.UserDetailsServiceImpl;
 
 
 import java.util.Map;
@@ -25,31 +24,46 @@ import java.util.Map;
 public class AuthController {
 
     @Autowired private UserRepository userRepo;
-    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private PasswordHasher passwordHasher;
     @Autowired private JwtUtil jwtUtil;
-    @Autowired private AuthenticationManager authenticationManager;
-    @Autowired private UserDetailsServiceImpl userDetailsService;
+    @Autowired private RefreshTokenStore refreshTokens;
 
 
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody User user) {
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        try {
+            user.setPassword(passwordHasher.encode(user.getPassword()));
+        } catch (PasswordHashingBusyException e) {
+            return busy(e);
+        }
         userRepo.save(user);
         return ResponseEntity.ok("User registered");
     }
 
+    // One read of the user; BCrypt runs on the hashing pool, not on the request thread. A hash made
+    // at an outdated cost is replaced while the plain password is at hand. Each login starts its own
+    // refresh-token family, so sessions on different devices no longer replace each other.
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody AuthRequest request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
+    public ResponseEntity<?> login(@RequestBody AuthRequest request,
+                                   @RequestHeader(value = "User-Agent", required = false) String userAgent) {
+        User user = request.getEmail() == null ? null : userRepo.findByEmail(request.getEmail()).orElse(null);
+        String hash = user == null ? null : user.getPassword();
+        try {
+            if (request.getPassword() == null || !passwordHasher.matches(request.getPassword(), hash)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid email or password");
+            }
+            if (passwordHasher.needsRehash(hash)) {
+                String rehashed = passwordHasher.encode(request.getPassword());
+                if (userRepo.updatePassword(user.getId(), hash, rehashed) == 1) {
+                    user.setPassword(rehashed);
+                }
+            }
+        } catch (PasswordHashingBusyException e) {
+            return busy(e);
+        }
 
-        String accessToken = jwtUtil.generateAccessToken(request.getEmail());
-        String refreshToken = jwtUtil.generateRefreshToken(request.getEmail());
-
-        // Save refreshToken to DB (optional for logout/invalidation)
-        User user = userRepo.findByEmail(request.getEmail()).orElseThrow();
-        user.setRefreshToken(refreshToken);
-        userRepo.save(user);
+        String accessToken = jwtUtil.generateAccessToken(user);
+        String refreshToken = refreshTokens.issue(user, request.getDevice() != null ? request.getDevice() : userAgent);
 
         return ResponseEntity.ok(Map.of(
                 "accessToken", accessToken,
@@ -57,42 +71,33 @@ public class AuthController {
         ));
     }
 
+    // Trades a refresh token for a new access token and the next refresh token of its family; the
+    // one presented is spent. The user is read for the current role, and nothing is written to it.
     @PostMapping("/refresh")
-    public ResponseEntity<?> refresh(HttpServletRequest request) {
-        String expiredAccessToken = extractAccessTokenFromRequest(request);
-        String email = jwtUtil.extractUsernameIgnoreExpiration(expiredAccessToken);
-        User user = userRepo.findByEmail(email).orElseThrow();
-
-        String refreshTokenFromDB = user.getRefreshToken();
-
-        if (!jwtUtil.validateToken(refreshTokenFromDB, userDetailsService.loadUserByUsername(email))) {
+    public ResponseEntity<?> refresh(@RequestBody(required = false) Map<String, String> body) {
+        String token = body == null ? null : body.get("refreshToken");
+        RefreshTokenStore.Rotation rotation = refreshTokens.rotate(token).orElse(null);
+        User user = rotation == null ? null : userRepo.findById(rotation.userId()).orElse(null);
+        if (user == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
         }
-
-        String newAccessToken = jwtUtil.generateAccessToken(email);
-
-        return ResponseEntity.ok(Map.of("accessToken", newAccessToken));
+        return ResponseEntity.ok(Map.of(
+                "accessToken", jwtUtil.generateAccessToken(user),
+                "refreshToken", rotation.refreshToken()
+        ));
     }
 
-
+    // Ends this device's session; other devices stay logged in
     @PostMapping("/logout")
     public ResponseEntity<?> logout(@RequestBody Map<String, String> body) {
-        String email = jwtUtil.extractUsername(body.get("refreshToken"));
-        User user = userRepo.findByEmail(email).orElseThrow();
-        user.setRefreshToken(null); // Invalidate token
-        userRepo.save(user);
+        if (!refreshTokens.revoke(body.get("refreshToken"))) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
+        }
         return ResponseEntity.ok("Logged out");
     }
 
 
-    private String extractAccessTokenFromRequest(HttpServletRequest request) {
-        String authHeader = request.getHeader("Authorization");
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            return authHeader.substring(7);  // Extract token part
-        }
-        throw new RuntimeException("Access token missing");
+    private static ResponseEntity<String> busy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(e.getMessage());
     }
-
-
-
 }
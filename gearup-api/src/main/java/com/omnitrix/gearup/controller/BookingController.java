@@ -1,22 +1,39 @@
 package com.omnitrix.gearup.controller;
 
 
+import com.omnitrix.gearup.config.Bulkheads;
 import com.omnitrix.gearup.model.*;
 import com.omnitrix.gearup.repository.*;
+import com.omnitrix.gearup.service.AvailabilityIndex;
+import com.omnitrix.gearup.service.BookingService;
+import com.omnitrix.gearup.service.HoldLimitException;
+import com.omnitrix.gearup.service.SlotConflictException;
+import com.omnitrix.gearup.service.SlotHolds;
+import com.omnitrix.gearup.service.SlotStreamHub;
+import com.omnitrix.gearup.service.UnpaidBookingCanceller;
+import com.omnitrix.gearup.service.notification.ReminderService;
+import com.omnitrix.gearup.security.AuthUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.IntSupplier;
 
 @RestController
 @RequestMapping("/api/booking")
@@ -27,153 +44,163 @@ public class BookingController {
     @Autowired private CourtRepository courtRepo;
     @Autowired private UserRepository userRepo;
     @Autowired private PaymentRepository paymentRepo;
-
-    private List<String> generate24HourSlots() {
-        List<String> slots = new ArrayList<>();
-        for (int i = 0; i < 24; i++) {
-            String from = String.format("%02d:00", i);
-            String to = String.format("%02d:00", (i + 1) % 24);
-            slots.add(from + "-" + to);
-        }
-        return slots;
-    }
+    @Autowired private AvailabilityIndex availabilityIndex;
+    @Autowired private BookingService bookingService;
+    @Autowired private SlotHolds slotHolds;
+    @Autowired private SlotStreamHub slotStreamHub;
+    @Autowired private UnpaidBookingCanceller unpaidBookingCanceller;
+    @Autowired private ReminderService reminderService;
+    @Autowired private Bulkheads bulkheads;
+    @Autowired private MeterRegistry meterRegistry;
 
     @GetMapping("/me")
     @PreAuthorize("hasRole('USER')")
-    public List<Booking> myBookings(@AuthenticationPrincipal UserDetails userDetails) {
-        User user = userRepo.findByEmail(userDetails.getUsername()).orElseThrow();
-        return bookingRepo.findByUserId(user.getId());
+    public ResponseEntity<?> myBookings(@AuthenticationPrincipal AuthUser principal,
+                                        @RequestParam(required = false) String after,
+                                        @RequestParam(required = false) Integer size,
+                                        @RequestParam(required = false) String sort) {
+        int limit = CursorPage.clampSize(size);
+        List<BookingView> bookings;
+        try {
+            boolean desc = CursorPage.isDescending(sort);
+            if (after == null) {
+                bookings = desc
+                        ? bookingRepo.findViewsForUserDesc(principal.getId(), Limit.of(limit))
+                        : bookingRepo.findViewsForUser(principal.getId(), Limit.of(limit));
+            } else {
+                // Cursor is "<date>_<id>" of the last booking on the previous page
+                int sep = after.indexOf('_');
+                if (sep < 0) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                LocalDate date = LocalDate.parse(after.substring(0, sep));
+                Long id = Long.valueOf(after.substring(sep + 1));
+                bookings = desc
+                        ? bookingRepo.findViewsForUserBefore(principal.getId(), date, id, Limit.of(limit))
+                        : bookingRepo.findViewsForUserAfter(principal.getId(), date, id, Limit.of(limit));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(CursorPage.of(bookings, limit, b -> b.date() + "_" + b.id()));
     }
 
+    // The ETag is the cached day's version, so an unchanged day is a 304 without a database round trip
     @GetMapping("/courts/{courtId}/slots")
-    public List<Map<String, Object>> getAvailableSlots(@PathVariable Long courtId, @RequestParam LocalDate date) {
-        List<String> allSlots = generate24HourSlots();
-        List<Booking> booked = bookingRepo.findByCourtIdAndDate(courtId, date);
-        Set<String> bookedSlots = booked.stream().map(Booking::getTimeSlot).collect(Collectors.toSet());
-
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (String slot : allSlots) {
-            Map<String, Object> map = new HashMap<>();
-            map.put("timeSlot", slot);
-            map.put("available", !bookedSlots.contains(slot));
-            result.add(map);
+    public List<SlotAvailability> getAvailableSlots(@PathVariable Long courtId, @RequestParam LocalDate date,
+                                                    WebRequest request) {
+        if (request.checkNotModified(availabilityIndex.etag(courtId, date))) {
+            return null;
+        }
+        return availabilityIndex.slots(courtId, date);
+    }
+
+    // Live version of the above: a "snapshot" event, then a "diff" event whenever a slot is booked,
+    // held, released or cancelled
+    @GetMapping("/courts/{courtId}/slots/stream")
+    public SseEmitter streamAvailableSlots(@PathVariable Long courtId, @RequestParam LocalDate date) {
+        try {
+            return slotStreamHub.subscribeCourt(courtId, date);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
         }
-        return result;
     }
 
     @PostMapping("/book")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<?> bookCourt(@AuthenticationPrincipal UserDetails userDetails, @RequestBody Booking booking) {
-        User user = userRepo.findByEmail(userDetails.getUsername()).orElseThrow();
-
-        if (!booking.isPermanent()) {
-            // One-time booking
-            Optional<Booking> existing = bookingRepo.findByCourtIdAndDateAndTimeSlot(
-                    booking.getCourt().getId(), booking.getDate(), booking.getTimeSlot());
-
-            if (existing.isPresent()) {
-                return ResponseEntity.badRequest().body("Slot already booked");
-            }
+    public ResponseEntity<?> bookCourt(@AuthenticationPrincipal AuthUser principal, @RequestBody BookingRequest request) {
+        User user = userRepo.getReferenceById(principal.getId());
+        Court court = request.getCourtId() == null ? null : courtRepo.findById(request.getCourtId()).orElse(null);
+        if (court == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Court not found");
+        }
 
-            booking.setUser(user);
-            booking.setStatus("CONFIRMED");
-            booking.setWeekNumber(1);
-            bookingRepo.save(booking);
-            return ResponseEntity.ok("One-time booking successful");
-        } else {
-            // Permanent booking: 3 weekly sessions
-            LocalDate startDate = booking.getDate();
-            String timeSlot = booking.getTimeSlot();
-            Long courtId = booking.getCourt().getId();
-            List<Booking> bookings = new ArrayList<>();
-
-            for (int i = 0; i < 3; i++) {
-                LocalDate date = startDate.plusWeeks(i);
-                boolean exists = bookingRepo.findByCourtIdAndDateAndTimeSlot(courtId, date, timeSlot).isPresent();
-                if (exists) {
-                    return ResponseEntity.badRequest().body("Slot already booked on week " + (i + 1));
-                }
-                Booking b = new Booking();
-                b.setUser(user);
-                b.setCourt(booking.getCourt());
-                b.setDate(date);
-                b.setTimeSlot(timeSlot);
-                b.setPermanent(true);
-                b.setWeekNumber(i + 1);
-                b.setStatus("CONFIRMED");
-                b.setPaymentReceived(false);
-                bookings.add(b);
+        try {
+            TimeSlot slot = TimeSlot.parse(request.getTimeSlot());
+            if (!request.isPermanent()) {
+                // One-time booking
+                Booking booking = new Booking();
+                booking.setUser(user);
+                booking.setCourt(court);
+                booking.setDate(request.getDate());
+                booking.setSlot(slot);
+                booking.setStatus("CONFIRMED");
+                booking.setWeekNumber(1);
+                bookingService.reserve(List.of(booking));
+                return ResponseEntity.ok("One-time booking successful");
             }
 
-            bookingRepo.saveAll(bookings);
-            return ResponseEntity.ok("Permanent booking for 3 weeks confirmed");
+            // Permanent booking: weekly sessions for the requested number of weeks
+            BookingSeries series = bookingService.newSeries(user, court, request.getDate(), slot,
+                    request.getWeeks(), request.getUntilDate());
+            bookingService.reserveSeries(series, false);
+            return ResponseEntity.ok("Permanent booking for " + series.getWeeks() + " weeks confirmed");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (SlotConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         }
     }
 
     // === Scheduler: Remind 3 days before ===
+    // Jobs run inside the admin bulkhead so a large run cannot take the connections slot lookups need
     @Scheduled(cron = "0 0 9 * * *") // Every day at 9:00 AM
     public void sendRemindersForPermanentBookings() {
-        LocalDate reminderDate = LocalDate.now().plusDays(3);
-        List<Booking> upcoming = bookingRepo.findByDate(reminderDate)
-                .stream()
-                .filter(Booking::isPermanent)
-                .filter(b -> !b.isPaymentReceived())
-                .toList();
-
-        for (Booking b : upcoming) {
-            System.out.println("Reminder: Please pay for your permanent booking on " + b.getDate() + " " + b.getTimeSlot());
-        }
+        bulkheads.call(Bulkheads.Group.ADMIN, () -> recordJob("reminders",
+                () -> reminderService.sendDueReminders(LocalDate.now().plusDays(3))));
     }
 
-
     @PostMapping("/prepare")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<?> prepareBooking(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<?> prepareBooking(@AuthenticationPrincipal AuthUser principal,
                                             @RequestBody BookingRequest request) {
-        // Do availability check
         Court court = courtRepo.findById(request.getCourtId()).orElseThrow();
-        List<Booking> conflicts = bookingRepo.findByCourtIdAndDateAndTimeSlot(
-                        court.getId(), request.getDate(), request.getTimeSlot()).stream()
-                .filter(b -> !b.isCancelled())
-                .toList();
 
-        if (!conflicts.isEmpty()) {
-            return ResponseEntity.badRequest().body("Time slot already booked");
+        // Hold the slot while the user pays; the reference is passed on to /api/payment/initiate
+        SlotHolds.Hold hold;
+        try {
+            TimeSlot slot = TimeSlot.parse(request.getTimeSlot());
+            List<LocalDate> dates = request.isPermanent()
+                    ? SlotHolds.weekly(request.getDate(),
+                            bookingService.weeksFor(request.getDate(), request.getWeeks(), request.getUntilDate()))
+                    : List.of(request.getDate());
+            hold = slotHolds.place(principal.getId(), court.getId(), dates, slot);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (SlotConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (HoldLimitException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
         }
 
-        // Create a temporary booking or session reference
-        String reference = UUID.randomUUID().toString();
-
         // Send reference + info to frontend for payment
         return ResponseEntity.ok(Map.of(
-                "paymentReference", reference,
+                "paymentReference", hold.id(),
+                "expiresAt", hold.expiresAt(),
                 "amount", 1000,  // you can calculate dynamically
-                "description", "Booking for " + request.getDate() + " " + request.getTimeSlot()
+                "description", "Booking for " + request.getDate() + " " + hold.slot().label()
         ));
     }
 
-
-
-
-
     // === Scheduler: Cancel if not paid 2 days before ===
     @Scheduled(cron = "0 0 10 * * *") // Every day at 10:00 AM
     public void cancelUnpaidPermanentBookings() {
-        LocalDate cancelDate = LocalDate.now().plusDays(2);
-        List<Booking> toCancel = bookingRepo.findByDate(cancelDate)
-                .stream()
-                .filter(Booking::isPermanent)
-                .filter(b -> !b.isPaymentReceived())
-                .toList();
-
-        for (Booking b : toCancel) {
-            List<Booking> all = bookingRepo.findByUserId(b.getUser().getId())
-                    .stream()
-                    .filter(Booking::isPermanent)
-                    .filter(x -> !x.isPaymentReceived())
-                    .toList();
-            bookingRepo.deleteAll(all);
-            System.out.println("Cancelled all unpaid permanent bookings for user " + b.getUser().getEmail());
+        bulkheads.call(Bulkheads.Group.ADMIN, () -> recordJob("cancel-unpaid",
+                () -> unpaidBookingCanceller.cancelUnpaid(LocalDate.now().plusDays(2)).bookingsCancelled()));
+    }
+
+    // Job duration by outcome and the rows it handled (reminders sent, bookings cancelled). A run
+    // that throws is still timed, as outcome=failed.
+    private int recordJob(String job, IntSupplier work) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failed";
+        try {
+            int rows = work.getAsInt();
+            outcome = "completed";
+            meterRegistry.counter("gearup.jobs.rows", "job", job).increment(rows);
+            return rows;
+        } finally {
+            sample.stop(meterRegistry.timer("gearup.jobs.duration", "job", job, "outcome", outcome));
         }
     }
 }
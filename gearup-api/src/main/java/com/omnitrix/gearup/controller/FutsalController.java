@@ -3,16 +3,30 @@ package com.omnitrix.gearup.controller;
 
 import com.omnitrix.gearup.model.*;
 import com.omnitrix.gearup.repository.*;
+import com.omnitrix.gearup.service.AvailabilityIndex;
+import com.omnitrix.gearup.service.ReferenceDataCache;
+import com.omnitrix.gearup.service.SlotStreamHub;
+import com.omnitrix.gearup.service.TimeSlots;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -24,33 +38,122 @@ public class FutsalController {
     @Autowired private BookingRepository bookingRepo;
     @Autowired private PaymentRepository paymentRepo;
     @Autowired private UserRepository userRepo;
+    @Autowired private SlotHoldRepository holdRepo;
+    @Autowired private AvailabilityIndex availabilityIndex;
+    @Autowired private ReferenceDataCache referenceDataCache;
+    @Autowired private SlotStreamHub slotStreamHub;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private static final int MAX_AVAILABILITY_DAYS = 31;
 
     // ==== Venues ====
     @GetMapping("/venues")
-    public List<Futsal> getAllVenues() {
-        return venueRepo.findAll();
+    public ResponseEntity<?> getAllVenues(@RequestParam(required = false) Long after,
+                                          @RequestParam(required = false) Integer size,
+                                          @RequestParam(required = false) String sort,
+                                          WebRequest request) {
+        int limit = CursorPage.clampSize(size);
+        List<VenueView> venues;
+        try {
+            boolean desc = CursorPage.isDescending(sort);
+            // Polls of an unchanged catalog are answered with 304 before any query runs
+            if (request.checkNotModified(referenceDataCache.catalogEtag())) {
+                return null;
+            }
+            venues = desc
+                    ? venueRepo.findViewsBefore(after == null ? Long.MAX_VALUE : after, Limit.of(limit))
+                    : venueRepo.findViewsAfter(after == null ? 0L : after, Limit.of(limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(CursorPage.of(venues, limit, v -> v.id().toString()));
     }
 
     @PostMapping("/venues")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> addVenue(@RequestBody Futsal venue) {
-        return ResponseEntity.ok(venueRepo.save(venue));
+        Futsal saved = venueRepo.save(venue);
+        referenceDataCache.evict();
+        return ResponseEntity.ok(VenueView.from(saved));
     }
 
     // ==== Courts ====
     @GetMapping("/venues/{venueId}/courts")
-    public List<Court> getCourtsByVenue(@PathVariable Long venueId) {
-        return courtRepo.findByVenueId(venueId);
+    public List<CourtView> getCourtsByVenue(@PathVariable Long venueId, WebRequest request) {
+        if (request.checkNotModified(referenceDataCache.catalogEtag())) {
+            return null;
+        }
+        return courtRepo.findViewsByVenueId(venueId);
     }
 
     @PostMapping("/venues/{venueId}/courts")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> addCourt(@PathVariable Long venueId, @RequestBody Court court) {
+        if (!TimeSlots.isSupportedGrid(court.getSlotMinutes())) {
+            return ResponseEntity.badRequest().body("Slot length must be 30, 60 or 90 minutes");
+        }
         Futsal venue = venueRepo.findById(venueId).orElseThrow();
         court.setVenue(venue);
-        return ResponseEntity.ok(courtRepo.save(court));
+        Court saved = courtRepo.save(court);
+        availabilityIndex.forgetCourt(saved.getId());
+        referenceDataCache.evict();
+        return ResponseEntity.ok(CourtView.from(saved));
     }
 
+    // ==== Availability ====
+    @GetMapping("/venues/{venueId}/availability")
+    public ResponseEntity<?> getVenueAvailability(@PathVariable Long venueId,
+                                                  @RequestParam LocalDate from,
+                                                  @RequestParam LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days < 1 || days > MAX_AVAILABILITY_DAYS) {
+            return ResponseEntity.badRequest().body("Date range must cover 1 to " + MAX_AVAILABILITY_DAYS + " days");
+        }
+
+        // Rows arrive ordered by court, so each court's days are filled in one pass: first as
+        // half-hour cell masks, then folded onto the court's own slot grid
+        List<VenueAvailability.CourtDays> courts = new ArrayList<>();
+        Map<Long, VenueAvailability.CourtDays> byId = new HashMap<>();
+        VenueAvailability.CourtDays current = null;
+        for (CourtSlotRow row : bookingRepo.findVenueSlots(venueId, from, to)) {
+            if (current == null || !current.courtId().equals(row.courtId())) {
+                int grid = TimeSlots.isSupportedGrid(row.slotMinutes()) ? row.slotMinutes() : TimeSlots.DEFAULT_GRID;
+                current = new VenueAvailability.CourtDays(row.courtId(), row.courtName(), grid,
+                        TimeSlots.labels(grid), new long[(int) days]);
+                courts.add(current);
+                byId.put(current.courtId(), current);
+            }
+            if (row.date() != null) {
+                current.booked()[(int) ChronoUnit.DAYS.between(from, row.date())] |=
+                        TimeSlots.cellMask(row.startMinute(), row.durationMinutes());
+            }
+        }
+        // Held slots are shown as taken, the same as on the per-court slot list
+        for (BookedSlot held : holdRepo.findActiveOnVenue(venueId, from, to, LocalDateTime.now())) {
+            VenueAvailability.CourtDays court = byId.get(held.courtId());
+            if (court != null) {
+                court.booked()[(int) ChronoUnit.DAYS.between(from, held.date())] |=
+                        TimeSlots.cellMask(held.startMinute(), held.durationMinutes());
+            }
+        }
+        for (VenueAvailability.CourtDays court : courts) {
+            long[] booked = court.booked();
+            for (int d = 0; d < booked.length; d++) {
+                booked[d] = TimeSlots.slotBits(booked[d], court.slotMinutes());
+            }
+        }
+        return ResponseEntity.ok(new VenueAvailability(venueId, from, to, courts));
+    }
+
+    // Every court of the venue on one date, pushed as it changes (see BookingController's slot stream)
+    @GetMapping("/venues/{venueId}/availability/stream")
+    public SseEmitter streamVenueAvailability(@PathVariable Long venueId, @RequestParam LocalDate date) {
+        try {
+            return slotStreamHub.subscribeVenue(venueId, date);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
 
     // ==== Payments ====
     @PostMapping("/payment/{bookingId}")
@@ -66,7 +169,10 @@ public class FutsalController {
         paymentDetails.setPaid(true);
         paymentDetails.setPaymentDate(LocalDateTime.now());
 
-        paymentRepo.save(paymentDetails);
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentRepo.save(paymentDetails);
+            paymentRepo.rollUpPayment(bookingId, paymentDetails.getAmount());
+        });
         return ResponseEntity.ok("Payment successful");
     }
 }
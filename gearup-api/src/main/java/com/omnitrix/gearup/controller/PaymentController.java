@@ -3,14 +3,20 @@ package com.omnitrix.gearup.controller;
 
 import com.omnitrix.gearup.model.*;
 import com.omnitrix.gearup.repository.*;
+import com.omnitrix.gearup.service.BookingService;
+import com.omnitrix.gearup.service.HoldLimitException;
+import com.omnitrix.gearup.service.SlotConflictException;
+import com.omnitrix.gearup.service.SlotHolds;
+import com.omnitrix.gearup.service.payment.PaymentNotificationInbox;
+import com.omnitrix.gearup.security.AuthUser;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URLEncoder;
@@ -28,7 +34,9 @@ public class PaymentController {
     @Autowired private BookingRepository bookingRepo;
     @Autowired private CourtRepository courtRepo;
     @Autowired private UserRepository userRepo;
-    @Autowired private PaymentRepository paymentRepo;
+    @Autowired private BookingService bookingService;
+    @Autowired private SlotHolds slotHolds;
+    @Autowired private PaymentNotificationInbox paymentNotificationInbox;
 
     private static final String MERCHANT_ID = "1211149"; // Sandbox merchant_id
     private static final String PAYHERE_SANDBOX_URL = "https://sandbox.payhere.lk/pay/checkout";
@@ -38,12 +46,35 @@ public class PaymentController {
 
     @PostMapping("/initiate")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<?> initiatePayment(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<?> initiatePayment(@AuthenticationPrincipal AuthUser principal,
                                              @RequestBody BookingRequest request) {
-        User user = userRepo.findByEmail(userDetails.getUsername()).orElseThrow();
+        User user = userRepo.findById(principal.getId()).orElseThrow();
         Court court = courtRepo.findById(request.getCourtId()).orElseThrow();
 
-        String orderId = UUID.randomUUID().toString();
+        // The slot stays on hold until PayHere reports back; the hold id doubles as the order id.
+        // A reference from /api/booking/prepare is reused while it is still live.
+        SlotHolds.Hold hold;
+        int weeks;
+        try {
+            TimeSlot slot = TimeSlot.parse(request.getTimeSlot());
+            weeks = request.isPermanent()
+                    ? bookingService.weeksFor(request.getDate(), request.getWeeks(), request.getUntilDate()) : 1;
+            List<LocalDate> dates = request.isPermanent()
+                    ? SlotHolds.weekly(request.getDate(), weeks) : List.of(request.getDate());
+            Optional<SlotHolds.Hold> prepared = request.getReference() == null ? Optional.empty()
+                    : slotHolds.find(request.getReference(), user.getId())
+                            .filter(h -> h.courtId().equals(court.getId()) && h.slot().equals(slot)
+                                    && h.dates().equals(dates));
+            hold = prepared.isPresent() ? prepared.get()
+                    : slotHolds.place(user.getId(), court.getId(), dates, slot);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (SlotConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (HoldLimitException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+        }
+        String orderId = hold.id();
 
         String url = PAYHERE_SANDBOX_URL + "?merchant_id=" + MERCHANT_ID +
                 "&return_url=" + URLEncoder.encode(RETURN_URL, StandardCharsets.UTF_8) +
@@ -54,68 +85,29 @@ public class PaymentController {
                 "&currency=LKR" +
                 "&amount=1000" + // Static for now
                 "&first_name=" + URLEncoder.encode(user.getName(), StandardCharsets.UTF_8) +
-                "&email=" + user.getEmail();
-
-        Payment temp = new Payment();
-        temp.setPaid(false);
-        temp.setPaymentDate(LocalDateTime.now());
-        paymentRepo.save(temp);
+                "&email=" + user.getEmail() +
+                "&custom_1=" + hold.courtId() +
+                "&custom_2=" + request.getDate() +
+                "&custom_3=" + URLEncoder.encode(hold.slot().label(), StandardCharsets.UTF_8) +
+                "&custom_4=" + (request.isPermanent() ? String.valueOf(weeks) : "false");
 
         return ResponseEntity.ok(Map.of(
                 "redirect_url", url,
-                "payment_reference", orderId
+                "payment_reference", orderId,
+                "expires_at", hold.expiresAt()
         ));
     }
 
+    // PayHere callback: store the notification and ack at once. Bookings are made by
+    // PaymentNotificationProcessor; a retried callback is acknowledged without being stored again.
     @PostMapping("/notify")
     public ResponseEntity<?> handlePayHereNotification(HttpServletRequest request) {
         String orderId = request.getParameter("order_id");
-        String email = request.getParameter("email");
-        String status = request.getParameter("status_code");
-        String courtIdStr = request.getParameter("custom_1");
-        String dateStr = request.getParameter("custom_2");
-        String timeSlot = request.getParameter("custom_3");
-        String isPermanentStr = request.getParameter("custom_4");
-
-        if (!"2".equals(status)) {
-            return ResponseEntity.badRequest().body("Payment not successful");
-        }
-
-        Long courtId = Long.valueOf(courtIdStr);
-        LocalDate date = LocalDate.parse(dateStr);
-        boolean isPermanent = Boolean.parseBoolean(isPermanentStr);
-
-        User user = userRepo.findByEmail(email).orElseThrow();
-        Court court = courtRepo.findById(courtId).orElseThrow();
-
-        if (!isPermanent) {
-            Booking booking = new Booking();
-            booking.setUser(user);
-            booking.setCourt(court);
-            booking.setDate(date);
-            booking.setTimeSlot(timeSlot);
-            booking.setStatus("CONFIRMED");
-            booking.setWeekNumber(1);
-            booking.setPermanent(false);
-            booking.setPaymentReceived(true);
-            bookingRepo.save(booking);
-        } else {
-            for (int i = 0; i < 3; i++) {
-                LocalDate newDate = date.plusWeeks(i);
-                Booking booking = new Booking();
-                booking.setUser(user);
-                booking.setCourt(court);
-                booking.setDate(newDate);
-                booking.setTimeSlot(timeSlot);
-                booking.setStatus("CONFIRMED");
-                booking.setPermanent(true);
-                booking.setWeekNumber(i + 1);
-                booking.setPaymentReceived(i == 0); // only week 1 is paid initially
-                bookingRepo.save(booking);
-            }
+        if (orderId == null || orderId.isBlank()) {
+            return ResponseEntity.badRequest().body("Missing order_id");
         }
-
-        return ResponseEntity.ok("Booking confirmed");
+        paymentNotificationInbox.accept(orderId, request.getParameterMap());
+        return ResponseEntity.ok("Notification received");
     }
 
 //    @Scheduled(cron = "0 0 9 * * *")
@@ -158,6 +150,9 @@ public class PaymentController {
         private LocalDate date;
         private String timeSlot;
         private boolean permanent;
+        private Integer weeks;      // permanent only; defaults like /api/booking/book
+        private LocalDate untilDate; // permanent only: alternative to weeks, as for /api/booking/prepare
+        private String reference;   // paymentReference from /api/booking/prepare, if any
 
         // Getters & setters
         public Long getCourtId() { return courtId; }
@@ -168,6 +163,12 @@ public class PaymentController {
         public void setTimeSlot(String timeSlot) { this.timeSlot = timeSlot; }
         public boolean isPermanent() { return permanent; }
         public void setPermanent(boolean permanent) { this.permanent = permanent; }
+        public Integer getWeeks() { return weeks; }
+        public void setWeeks(Integer weeks) { this.weeks = weeks; }
+        public LocalDate getUntilDate() { return untilDate; }
+        public void setUntilDate(LocalDate untilDate) { this.untilDate = untilDate; }
+        public String getReference() { return reference; }
+        public void setReference(String reference) { this.reference = reference; }
     }
 }
 
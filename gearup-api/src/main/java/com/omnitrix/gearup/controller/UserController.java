@@ -1,13 +1,17 @@
 package com.omnitrix.gearup.controller;
 
+import com.omnitrix.gearup.model.CursorPage;
 import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.model.UserView;
 import com.omnitrix.gearup.repository.UserRepository;
+import com.omnitrix.gearup.security.AuthUser;
+import com.omnitrix.gearup.security.PasswordHasher;
+import com.omnitrix.gearup.security.PasswordHashingBusyException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -18,20 +22,19 @@ import java.util.Map;
 public class UserController {
 
     @Autowired private UserRepository userRepo;
-    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private PasswordHasher passwordHasher;
 
     @GetMapping("/me")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal UserDetails userDetails) {
-        User user = userRepo.findByEmail(userDetails.getUsername()).orElseThrow();
-        return ResponseEntity.ok(user);
+    public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal AuthUser principal) {
+        return ResponseEntity.of(userRepo.findViewById(principal.getId()));
     }
 
     @PutMapping("/me")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<?> updateProfile(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<?> updateProfile(@AuthenticationPrincipal AuthUser principal,
                                            @RequestBody User updatedUser) {
-        User user = userRepo.findByEmail(userDetails.getUsername()).orElseThrow();
+        User user = userRepo.findById(principal.getId()).orElseThrow();
         user.setName(updatedUser.getName());
         user.setMobileNumber(updatedUser.getMobileNumber());
         user.setLocation(updatedUser.getLocation());
@@ -40,34 +43,55 @@ public class UserController {
         return ResponseEntity.ok("Profile updated");
     }
 
+    // Both BCrypt calls run on the hashing pool like login's, and the new hash is made at the
+    // configured cost. The write only replaces the hash that was checked, so of two concurrent
+    // changes the second one fails instead of silently overwriting the first.
     @PutMapping("/change-password")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<?> changePassword(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<?> changePassword(@AuthenticationPrincipal AuthUser principal,
                                             @RequestBody Map<String, String> body) {
         String current = body.get("currentPassword");
         String newPass = body.get("newPassword");
 
-        User user = userRepo.findByEmail(userDetails.getUsername()).orElseThrow();
+        User user = userRepo.findById(principal.getId()).orElseThrow();
+        String hash = user.getPassword();
 
-        if (!passwordEncoder.matches(current, user.getPassword())) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Current password is incorrect");
+        try {
+            if (current == null || !passwordHasher.matches(current, hash)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Current password is incorrect");
+            }
+            if (newPass == null) {
+                return ResponseEntity.badRequest().body("New password is required");
+            }
+            if (userRepo.updatePassword(user.getId(), hash, passwordHasher.encode(newPass)) != 1) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("Password was changed meanwhile, please retry");
+            }
+        } catch (PasswordHashingBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(e.getMessage());
         }
-
-        user.setPassword(passwordEncoder.encode(newPass));
-        userRepo.save(user);
         return ResponseEntity.ok("Password updated successfully");
     }
 
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> getUserById(@PathVariable Long id) {
-        User user = userRepo.findById(id).orElseThrow();
-        return ResponseEntity.ok(user);
+        return ResponseEntity.of(userRepo.findViewById(id));
     }
 
     @GetMapping("/admin/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public List<User> getAllUsers() {
-        return userRepo.findAll();
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) Long after,
+                                         @RequestParam(required = false) Integer size,
+                                         @RequestParam(required = false) String sort) {
+        int limit = CursorPage.clampSize(size);
+        List<UserView> users;
+        try {
+            users = CursorPage.isDescending(sort)
+                    ? userRepo.findViewsBefore(after == null ? Long.MAX_VALUE : after, Limit.of(limit))
+                    : userRepo.findViewsAfter(after == null ? 0L : after, Limit.of(limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(CursorPage.of(users, limit, u -> u.id().toString()));
     }
 }
@@ -6,4 +6,5 @@ import lombok.Data;
 public class AuthRequest {
     private String email;
     private String password;
+    private String device; // optional label for the session, e.g. "Pixel 8"; defaults to the User-Agent
 }
@@ -0,0 +1,11 @@
+package com.omnitrix.gearup.model;
+
+import java.time.LocalDate;
+
+// An active booking's place on a court, with its id so a batch can tell its own bookings apart
+public record BookedRange(Long bookingId, Long courtId, LocalDate date, int startMinute, int durationMinutes) {
+
+    public boolean overlaps(Long courtId, LocalDate date, TimeSlot slot) {
+        return this.courtId.equals(courtId) && this.date.equals(date) && slot.overlaps(startMinute, durationMinutes);
+    }
+}
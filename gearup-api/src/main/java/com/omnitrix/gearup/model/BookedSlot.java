@@ -0,0 +1,10 @@
+package com.omnitrix.gearup.model;
+
+import java.time.LocalDate;
+
+public record BookedSlot(Long courtId, LocalDate date, int startMinute, int durationMinutes) {
+
+    public boolean overlaps(Long courtId, LocalDate date, TimeSlot slot) {
+        return this.courtId.equals(courtId) && this.date.equals(date) && slot.overlaps(startMinute, durationMinutes);
+    }
+}
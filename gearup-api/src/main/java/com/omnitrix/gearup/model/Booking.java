@@ -1,9 +1,14 @@
 package com.omnitrix.gearup.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDate;
 
@@ -13,8 +18,10 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Booking {
+    // Pooled sequence instead of IDENTITY so Hibernate can batch inserts of a whole series
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -26,7 +33,12 @@ public class Booking {
     private Court court;
 
     private LocalDate date;
-    private String timeSlot; // e.g., "18:00-19:00"
+
+    @JdbcTypeCode(SqlTypes.SMALLINT)
+    private int startMinute; // minutes after midnight, e.g. 1080 = 18:00
+
+    @JdbcTypeCode(SqlTypes.SMALLINT)
+    private int durationMinutes = 60;
 
     private String status = "PENDING"; // or CONFIRMED, CANCELLED
 
@@ -34,13 +46,28 @@ public class Booking {
 
     private int weekNumber = 1; // 1 = first week of permanent set
 
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "series_id")
+    private BookingSeries series; // set for permanent bookings
+
     private boolean paymentReceived = false;
 
     private boolean isCancelled = false;
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToOne(mappedBy = "booking", cascade = CascadeType.ALL)
     private Payment payment;
-}
-
 
+    @JsonIgnore
+    public TimeSlot getSlot() {
+        return new TimeSlot(startMinute, durationMinutes);
+    }
 
+    public void setSlot(TimeSlot slot) {
+        this.startMinute = slot.startMinute();
+        this.durationMinutes = slot.durationMinutes();
+    }
+}
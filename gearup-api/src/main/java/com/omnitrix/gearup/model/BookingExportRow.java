@@ -0,0 +1,23 @@
+package com.omnitrix.gearup.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// One booking in an export, with its court, venue, user and payment flattened into columns
+public record BookingExportRow(Long id, LocalDate date, String timeSlot, int durationMinutes, String status,
+                               boolean permanent, int weekNumber, Long seriesId, boolean paymentReceived,
+                               boolean cancelled, Long venueId, String venueName, Long courtId, String courtName,
+                               Long userId, String userEmail, String paymentMethod, BigDecimal amount,
+                               LocalDateTime paymentDate) {
+
+    public BookingExportRow(Long id, LocalDate date, int startMinute, int durationMinutes, String status,
+                            boolean permanent, int weekNumber, Long seriesId, boolean paymentReceived,
+                            boolean cancelled, Long venueId, String venueName, Long courtId, String courtName,
+                            Long userId, String userEmail, String paymentMethod, BigDecimal amount,
+                            LocalDateTime paymentDate) {
+        this(id, date, TimeSlot.label(startMinute, durationMinutes), durationMinutes, status, permanent, weekNumber,
+                seriesId, paymentReceived, cancelled, venueId, venueName, courtId, courtName, userId, userEmail,
+                paymentMethod, amount, paymentDate);
+    }
+}
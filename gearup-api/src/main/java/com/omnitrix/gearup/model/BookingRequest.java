@@ -10,5 +10,7 @@ public class BookingRequest {
     private String timeSlot;
     private LocalDate date;
     private boolean permanent;
+    private Integer weeks;       // permanent only: number of weekly sessions
+    private LocalDate untilDate; // permanent only: alternative to weeks, last session on or before this date
 }
 
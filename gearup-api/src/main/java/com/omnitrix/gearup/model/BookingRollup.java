@@ -0,0 +1,48 @@
+package com.omnitrix.gearup.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Bookings, cancellations and payments of one court in one hour of one day (V7). Written only by
+// the rollup statements in BookingRepository, PaymentRepository and BookingRollupRepository;
+// reports read it through BookingRollupRepository.
+@Entity
+@Table(name = "booking_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingRollup {
+    @EmbeddedId
+    private Key id;
+
+    private int bookedMinutes; // minutes of active bookings inside this hour
+
+    private int bookings; // active bookings starting in this hour
+
+    private int cancellations; // cancelled bookings that started in this hour
+
+    private int payments;
+
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long courtId;
+
+        private LocalDate date;
+
+        @JdbcTypeCode(SqlTypes.SMALLINT)
+        private int hourOfDay;
+    }
+}
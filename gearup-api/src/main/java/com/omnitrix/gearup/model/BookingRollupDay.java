@@ -0,0 +1,24 @@
+package com.omnitrix.gearup.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// A day whose rollups were recomputed from bookings and payments (V8)
+@Entity
+@Table(name = "booking_rollup_days")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingRollupDay {
+    @Id
+    private LocalDate date;
+
+    private LocalDateTime rebuiltAt;
+}
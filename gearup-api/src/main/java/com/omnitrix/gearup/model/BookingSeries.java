@@ -0,0 +1,55 @@
+package com.omnitrix.gearup.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "booking_series")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingSeries {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @ManyToOne
+    @JoinColumn(name = "court_id")
+    private Court court;
+
+    @JdbcTypeCode(SqlTypes.SMALLINT)
+    private int startMinute;
+
+    @JdbcTypeCode(SqlTypes.SMALLINT)
+    private int durationMinutes;
+
+    private LocalDate startDate;
+
+    private LocalDate endDate; // date of the last weekly session
+
+    private int weeks;
+
+    private String status = "ACTIVE"; // or CANCELLED
+
+    private LocalDateTime createdAt;
+
+    public TimeSlot getSlot() {
+        return new TimeSlot(startMinute, durationMinutes);
+    }
+
+    public void setSlot(TimeSlot slot) {
+        this.startMinute = slot.startMinute();
+        this.durationMinutes = slot.durationMinutes();
+    }
+}
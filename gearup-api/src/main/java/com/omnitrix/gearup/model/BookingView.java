@@ -0,0 +1,15 @@
+package com.omnitrix.gearup.model;
+
+import java.time.LocalDate;
+
+public record BookingView(Long id, Long courtId, String courtName, LocalDate date, String timeSlot,
+                          String status, boolean permanent, int weekNumber, boolean paymentReceived,
+                          boolean cancelled, Long seriesId) {
+
+    public BookingView(Long id, Long courtId, String courtName, LocalDate date, int startMinute, int durationMinutes,
+                       String status, boolean permanent, int weekNumber, boolean paymentReceived,
+                       boolean cancelled, Long seriesId) {
+        this(id, courtId, courtName, date, TimeSlot.label(startMinute, durationMinutes), status, permanent,
+                weekNumber, paymentReceived, cancelled, seriesId);
+    }
+}
@@ -0,0 +1,22 @@
+package com.omnitrix.gearup.model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class BulkBookingRequest {
+    private List<Item> items;
+    private boolean atomic; // true: apply nothing unless every item can be applied
+
+    @Data
+    public static class Item {
+        private String op;        // CREATE, CANCEL or RESCHEDULE
+        private Long bookingId;   // CANCEL, RESCHEDULE
+        private Long userId;      // CREATE
+        private Long courtId;     // CREATE; RESCHEDULE to another court, else it stays on its own
+        private LocalDate date;   // CREATE, RESCHEDULE
+        private String timeSlot;  // CREATE, RESCHEDULE
+    }
+}
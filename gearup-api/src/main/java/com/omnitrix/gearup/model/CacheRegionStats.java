@@ -0,0 +1,9 @@
+package com.omnitrix.gearup.model;
+
+public record CacheRegionStats(String region, long hits, long misses, long puts, long entries, double hitRatio) {
+
+    public static CacheRegionStats of(String region, long hits, long misses, long puts, long entries) {
+        long lookups = hits + misses;
+        return new CacheRegionStats(region, hits, misses, puts, entries, lookups == 0 ? 0 : (double) hits / lookups);
+    }
+}
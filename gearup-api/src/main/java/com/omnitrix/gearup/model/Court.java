@@ -1,14 +1,23 @@
 package com.omnitrix.gearup.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.util.List;
 
 @Entity
 @Table(name = "courts")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "courts")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,10 +30,17 @@ public class Court {
 
     private String sportType; // FOOTBALL, CRICKET, BOTH
 
+    @JdbcTypeCode(SqlTypes.SMALLINT)
+    private int slotMinutes = 60; // slot grid: 30, 60 or 90
+
+    @JsonIgnore
     @ManyToOne
     @JoinColumn(name = "venue_id")
     private Futsal venue;
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(mappedBy = "court", cascade = CascadeType.ALL)
     private List<Booking> bookings;
 }
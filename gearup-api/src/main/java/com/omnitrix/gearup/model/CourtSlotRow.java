@@ -0,0 +1,9 @@
+package com.omnitrix.gearup.model;
+
+import java.time.LocalDate;
+
+// One row of the venue availability query; date, startMinute and durationMinutes are null for a
+// court with no bookings in range.
+public record CourtSlotRow(Long courtId, String courtName, int slotMinutes, LocalDate date,
+                           Integer startMinute, Integer durationMinutes) {
+}
@@ -0,0 +1,9 @@
+package com.omnitrix.gearup.model;
+
+public record CourtView(Long id, String name, String sportType, int slotMinutes, Long venueId) {
+
+    public static CourtView from(Court court) {
+        return new CourtView(court.getId(), court.getName(), court.getSportType(), court.getSlotMinutes(),
+                court.getVenue() == null ? null : court.getVenue().getId());
+    }
+}
@@ -0,0 +1,32 @@
+package com.omnitrix.gearup.model;
+
+import java.util.List;
+import java.util.function.Function;
+
+// One page of a keyset-paginated listing. nextCursor is null on the last page; otherwise pass it
+// back as ?after= to continue from the last item.
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 200;
+
+    public static <T> CursorPage<T> of(List<T> items, int size, Function<T, String> cursorOf) {
+        String next = items.size() < size ? null : cursorOf.apply(items.get(items.size() - 1));
+        return new CursorPage<>(items, next);
+    }
+
+    public static int clampSize(Integer size) {
+        return size == null ? DEFAULT_SIZE : Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    // Throws IllegalArgumentException for anything other than asc/desc
+    public static boolean isDescending(String sort) {
+        if (sort == null || sort.equalsIgnoreCase("asc")) {
+            return false;
+        }
+        if (sort.equalsIgnoreCase("desc")) {
+            return true;
+        }
+        throw new IllegalArgumentException("sort must be asc or desc");
+    }
+}
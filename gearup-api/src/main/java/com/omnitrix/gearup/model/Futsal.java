@@ -3,12 +3,18 @@ package com.omnitrix.gearup.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
 @Entity
     @Table(name = "futsal_venues")
+    @Cacheable
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "venues")
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -21,6 +27,8 @@ import java.util.List;
         private String location;
         private String contact;
 
+        @ToString.Exclude
+        @EqualsAndHashCode.Exclude
         @OneToMany(mappedBy = "venue", cascade = CascadeType.ALL)
         private List<Court> courts;
     }
@@ -0,0 +1,8 @@
+package com.omnitrix.gearup.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record OccupancyReport(LocalDate from, LocalDate to, Long venueId, Long courtId, String by,
+                              ReportRow total, List<ReportRow> rows) {
+}
@@ -1,10 +1,12 @@
 package com.omnitrix.gearup.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -19,8 +21,10 @@ public class Payment {
 
     private String paymentMethod; // e.g., CARD, ONLINE, CASH
     private boolean paid;
+    private BigDecimal amount; // null for payments recorded before amounts were kept
     private LocalDateTime paymentDate;
 
+    @JsonIgnore
     @OneToOne
     @JoinColumn(name = "booking_id")
     private Booking booking;
@@ -0,0 +1,21 @@
+package com.omnitrix.gearup.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// One payment in an export, with the booking it paid for flattened into columns
+public record PaymentExportRow(Long id, LocalDateTime paymentDate, String paymentMethod, boolean paid,
+                               BigDecimal amount, Long bookingId, LocalDate bookingDate, String timeSlot,
+                               String bookingStatus, Long venueId, String venueName, Long courtId, String courtName,
+                               Long userId, String userEmail) {
+
+    public PaymentExportRow(Long id, LocalDateTime paymentDate, String paymentMethod, boolean paid,
+                            BigDecimal amount, Long bookingId, LocalDate bookingDate, int startMinute,
+                            int durationMinutes, String bookingStatus, Long venueId, String venueName, Long courtId,
+                            String courtName, Long userId, String userEmail) {
+        this(id, paymentDate, paymentMethod, paid, amount, bookingId, bookingDate,
+                TimeSlot.label(startMinute, durationMinutes), bookingStatus, venueId, venueName, courtId, courtName,
+                userId, userEmail);
+    }
+}
@@ -0,0 +1,37 @@
+package com.omnitrix.gearup.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A PayHere notify callback as received, keyed by order id so gateway retries collapse into one row.
+// A final status arriving after a pending one replaces the row, see PaymentNotificationRepository.
+@Entity
+@Table(name = "payment_notifications")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentNotification {
+    @Id
+    private String orderId;
+
+    @Column(columnDefinition = "text")
+    private String payload; // the form parameters as received, url-encoded
+
+    private String statusCode; // PayHere status_code: 2 paid, 0 pending, negative for failures
+
+    private String state = "RECEIVED"; // or PROCESSING, PENDING, PROCESSED, REJECTED, FAILED
+
+    private int attempts;
+
+    private String outcome; // booking result or rejection reason
+
+    private LocalDateTime receivedAt;
+
+    private LocalDateTime claimedAt;
+
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,35 @@
+package com.omnitrix.gearup.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One issued refresh token. Only its SHA-256 is kept; the family ties together the tokens that one
+// login on one device has been rotated through. Rows are written by RefreshTokenRepository's
+// statements, never loaded to be changed.
+@Entity
+@Table(name = "refresh_tokens")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken {
+    @Id
+    private String tokenHash;
+
+    private Long userId;
+
+    private String family;
+
+    private String device; // as given at login, or the login request's User-Agent
+
+    private LocalDateTime issuedAt;
+
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime revokedAt;
+
+    private String revokeReason; // ROTATED, LOGOUT or REUSED
+}
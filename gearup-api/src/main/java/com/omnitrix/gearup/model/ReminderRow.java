@@ -0,0 +1,11 @@
+package com.omnitrix.gearup.model;
+
+import java.time.LocalDate;
+
+public record ReminderRow(Long userId, String email, String name, String courtName, LocalDate date, String timeSlot) {
+
+    public ReminderRow(Long userId, String email, String name, String courtName, LocalDate date,
+                       int startMinute, int durationMinutes) {
+        this(userId, email, name, courtName, date, TimeSlot.label(startMinute, durationMinutes));
+    }
+}
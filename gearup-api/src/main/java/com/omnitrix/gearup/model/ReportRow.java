@@ -0,0 +1,9 @@
+package com.omnitrix.gearup.model;
+
+import java.math.BigDecimal;
+
+// One line of an occupancy and revenue report. Occupancy is booked minutes over the minutes the
+// courts in the group are open; null where they are never open (an hour outside opening hours).
+public record ReportRow(String key, String label, long bookings, long cancellations, long bookedMinutes,
+                        long capacityMinutes, Double occupancy, long payments, BigDecimal revenue) {
+}
@@ -0,0 +1,7 @@
+package com.omnitrix.gearup.model;
+
+import java.time.LocalDateTime;
+
+// A refresh-token family ended by logout or reuse, as the in-memory revocation set needs it
+public record RevokedFamily(String family, LocalDateTime revokedAt, LocalDateTime expiresAt) {
+}
@@ -0,0 +1,8 @@
+package com.omnitrix.gearup.model;
+
+import java.math.BigDecimal;
+
+// Rollup sums for one group of a report: a date, an hour of day, a court or a venue
+public record RollupTotals(String key, String label, Long bookings, Long cancellations, Long bookedMinutes,
+                           Long payments, BigDecimal revenue) {
+}
@@ -0,0 +1,4 @@
+package com.omnitrix.gearup.model;
+
+public record SlotAvailability(String timeSlot, boolean available) {
+}
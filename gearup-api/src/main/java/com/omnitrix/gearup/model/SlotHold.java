@@ -0,0 +1,42 @@
+package com.omnitrix.gearup.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// One held slot on one date. A hold for a permanent booking has a row per week, all sharing holdId,
+// which is also the payment reference / PayHere order id.
+@Entity
+@Table(name = "slot_holds")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotHold {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String holdId;
+
+    private Long userId;
+
+    private Long courtId;
+
+    private LocalDate date;
+
+    @JdbcTypeCode(SqlTypes.SMALLINT)
+    private int startMinute;
+
+    @JdbcTypeCode(SqlTypes.SMALLINT)
+    private int durationMinutes;
+
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,9 @@
+package com.omnitrix.gearup.model;
+
+import java.time.LocalDate;
+
+// One court's day on a live availability stream. Bit i of taken is set when slot i of the court's
+// grid is booked or held; changed marks the slots that differ from the previous event (every slot
+// in a snapshot).
+public record SlotStreamEvent(Long courtId, LocalDate date, int slotMinutes, long taken, long changed) {
+}
@@ -0,0 +1,72 @@
+package com.omnitrix.gearup.model;
+
+// A slot as stored: start minute after midnight plus a duration. The "HH:mm-HH:mm" label only
+// exists at the API edge, via parse() and label().
+public record TimeSlot(int startMinute, int durationMinutes) {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    public TimeSlot {
+        if (startMinute < 0 || startMinute >= MINUTES_PER_DAY
+                || durationMinutes <= 0 || startMinute + durationMinutes > MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Invalid time slot");
+        }
+    }
+
+    public int endMinute() {
+        return startMinute + durationMinutes;
+    }
+
+    public boolean overlaps(int otherStart, int otherDuration) {
+        return startMinute < otherStart + otherDuration && otherStart < endMinute();
+    }
+
+    public String label() {
+        return label(startMinute, durationMinutes);
+    }
+
+    public static String label(int startMinute, int durationMinutes) {
+        char[] out = new char[11];
+        writeClock(out, 0, startMinute);
+        out[5] = '-';
+        writeClock(out, 6, (startMinute + durationMinutes) % MINUTES_PER_DAY);
+        return new String(out);
+    }
+
+    // Parses "HH:mm-HH:mm"; an end of 00:00 means midnight. Throws IllegalArgumentException.
+    public static TimeSlot parse(String label) {
+        if (label == null || label.length() != 11 || label.charAt(5) != '-') {
+            throw new IllegalArgumentException("Time slot must look like 18:00-19:00");
+        }
+        int start = readClock(label, 0);
+        int end = readClock(label, 6);
+        return new TimeSlot(start, (end - start + MINUTES_PER_DAY - 1) % MINUTES_PER_DAY + 1);
+    }
+
+    private static void writeClock(char[] out, int at, int minute) {
+        int h = minute / 60;
+        int m = minute % 60;
+        out[at] = (char) ('0' + h / 10);
+        out[at + 1] = (char) ('0' + h % 10);
+        out[at + 2] = ':';
+        out[at + 3] = (char) ('0' + m / 10);
+        out[at + 4] = (char) ('0' + m % 10);
+    }
+
+    private static int readClock(String s, int at) {
+        int h = digit(s, at) * 10 + digit(s, at + 1);
+        int m = digit(s, at + 3) * 10 + digit(s, at + 4);
+        if (s.charAt(at + 2) != ':' || h > 23 || m > 59) {
+            throw new IllegalArgumentException("Time slot must look like 18:00-19:00");
+        }
+        return h * 60 + m;
+    }
+
+    private static int digit(String s, int at) {
+        char c = s.charAt(at);
+        if (c < '0' || c > '9') {
+            throw new IllegalArgumentException("Time slot must look like 18:00-19:00");
+        }
+        return c - '0';
+    }
+}
@@ -1,5 +1,6 @@
 package com.omnitrix.gearup.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -21,12 +22,11 @@ public class User {
     @Column(unique = true)
     private String email;
 
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
 
     private String role = "USER";
 
-    private String refreshToken;
-
     private LocalDate dateOfBirth; // yyyy-MM-dd format
 
     private String mobileNumber;
@@ -0,0 +1,8 @@
+package com.omnitrix.gearup.model;
+
+import java.time.LocalDate;
+
+// Public shape of a user; never carries the password hash or tokens
+public record UserView(Long id, String name, String email, String role, LocalDate dateOfBirth,
+                       String mobileNumber, String location, String timeZone) {
+}
@@ -0,0 +1,13 @@
+package com.omnitrix.gearup.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Availability matrix for a venue. Courts can use different slot grids, so each court carries its
+// own labels: booked[d] is a bitmask for day from + d, where bit i set means timeSlots[i] is booked
+// or on hold for a payment.
+public record VenueAvailability(Long venueId, LocalDate from, LocalDate to, List<CourtDays> courts) {
+
+    public record CourtDays(Long courtId, String name, int slotMinutes, List<String> timeSlots, long[] booked) {
+    }
+}
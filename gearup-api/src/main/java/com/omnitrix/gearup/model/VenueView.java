@@ -0,0 +1,8 @@
+package com.omnitrix.gearup.model;
+
+public record VenueView(Long id, String name, String location, String contact) {
+
+    public static VenueView from(Futsal venue) {
+        return new VenueView(venue.getId(), venue.getName(), venue.getLocation(), venue.getContact());
+    }
+}
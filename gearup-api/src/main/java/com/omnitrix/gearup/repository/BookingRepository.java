@@ -1,20 +1,184 @@
 package com.omnitrix.gearup.repository;
 
 
+import com.omnitrix.gearup.model.BookedRange;
+import com.omnitrix.gearup.model.BookedSlot;
 import com.omnitrix.gearup.model.Booking;
+import com.omnitrix.gearup.model.BookingExportRow;
+import com.omnitrix.gearup.model.BookingView;
+import com.omnitrix.gearup.model.ReminderRow;
+import com.omnitrix.gearup.model.CourtSlotRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
+    String VIEW = "select new com.omnitrix.gearup.model.BookingView(b.id, c.id, c.name, b.date, b.startMinute, " +
+            "b.durationMinutes, b.status, b.isPermanent, b.weekNumber, b.paymentReceived, b.isCancelled, s.id) " +
+            "from Booking b join b.court c left join b.series s ";
+
     List<Booking> findByUserId(Long userId);
+
+    // Keyset pages of a user's bookings on (date, id)
+    @Query(VIEW + "where b.user.id = :userId order by b.date asc, b.id asc")
+    List<BookingView> findViewsForUser(@Param("userId") Long userId, Limit limit);
+
+    @Query(VIEW + "where b.user.id = :userId order by b.date desc, b.id desc")
+    List<BookingView> findViewsForUserDesc(@Param("userId") Long userId, Limit limit);
+
+    @Query(VIEW + "where b.user.id = :userId " +
+            "and (b.date > :date or (b.date = :date and b.id > :id)) order by b.date asc, b.id asc")
+    List<BookingView> findViewsForUserAfter(@Param("userId") Long userId, @Param("date") LocalDate date,
+                                            @Param("id") Long id, Limit limit);
+
+    @Query(VIEW + "where b.user.id = :userId " +
+            "and (b.date < :date or (b.date = :date and b.id < :id)) order by b.date desc, b.id desc")
+    List<BookingView> findViewsForUserBefore(@Param("userId") Long userId, @Param("date") LocalDate date,
+                                             @Param("id") Long id, Limit limit);
+
     List<Booking> findByCourtIdAndDate(Long courtId, LocalDate date);
 
-    Optional<Booking> findByCourtIdAndDateAndTimeSlot(Long courtId, LocalDate date, String timeSlot);
     List<Booking> findByDate(LocalDate date);
 
+    @Query("select new com.omnitrix.gearup.model.BookedSlot(b.court.id, b.date, b.startMinute, b.durationMinutes) " +
+            "from Booking b where b.court.id = :courtId and b.date = :date and b.isCancelled = false")
+    List<BookedSlot> findBookedRanges(@Param("courtId") Long courtId, @Param("date") LocalDate date);
+
+    // Active bookings on the given courts and dates that overlap [start, end). A superset when
+    // several courts or dates are passed; callers match exact (court, date) pairs in memory.
+    @Query("select new com.omnitrix.gearup.model.BookedSlot(b.court.id, b.date, b.startMinute, b.durationMinutes) " +
+            "from Booking b where b.court.id in :courtIds and b.date in :dates and b.isCancelled = false " +
+            "and b.startMinute < :end and b.startMinute + b.durationMinutes > :start")
+    List<BookedSlot> findBookedSlots(@Param("courtIds") Collection<Long> courtIds,
+                                     @Param("dates") Collection<LocalDate> dates,
+                                     @Param("start") int start, @Param("end") int end);
+
+    // As above, with booking ids
+    @Query("select new com.omnitrix.gearup.model.BookedRange(b.id, b.court.id, b.date, b.startMinute, b.durationMinutes) " +
+            "from Booking b where b.court.id in :courtIds and b.date in :dates and b.isCancelled = false " +
+            "and b.startMinute < :end and b.startMinute + b.durationMinutes > :start")
+    List<BookedRange> findActiveRanges(@Param("courtIds") Collection<Long> courtIds,
+                                       @Param("dates") Collection<LocalDate> dates,
+                                       @Param("start") int start, @Param("end") int end);
+
+    @Query("select new com.omnitrix.gearup.model.CourtSlotRow(c.id, c.name, c.slotMinutes, b.date, " +
+            "b.startMinute, b.durationMinutes) " +
+            "from Court c left join c.bookings b " +
+            "on b.date between :from and :to and b.isCancelled = false " +
+            "where c.venue.id = :venueId order by c.id")
+    List<CourtSlotRow> findVenueSlots(@Param("venueId") Long venueId,
+                                      @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to);
+
+    @Query("select new com.omnitrix.gearup.model.ReminderRow(u.id, u.email, u.name, c.name, b.date, " +
+            "b.startMinute, b.durationMinutes) from Booking b join b.user u join b.court c " +
+            "where b.date = :date and b.isPermanent = true and b.paymentReceived = false and b.isCancelled = false " +
+            "order by u.id")
+    List<ReminderRow> findDueReminders(@Param("date") LocalDate date);
+
+    // ==== Export ====
+
+    // Rows fetched per round trip while an export streams; with a fetch size Postgres reads through
+    // a cursor, which needs an open transaction, instead of buffering the whole result
+    String EXPORT_FETCH_SIZE = "1000";
+
+    // Streams the bookings of from..to in (date, id) order; close the stream before the transaction ends
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query("select new com.omnitrix.gearup.model.BookingExportRow(b.id, b.date, b.startMinute, b.durationMinutes, " +
+            "b.status, b.isPermanent, b.weekNumber, s.id, b.paymentReceived, b.isCancelled, v.id, v.name, c.id, " +
+            "c.name, u.id, u.email, p.paymentMethod, p.amount, p.paymentDate) " +
+            "from Booking b left join b.court c left join c.venue v left join b.user u left join b.series s " +
+            "left join b.payment p " +
+            "where b.date between :from and :to and (:venueId is null or v.id = :venueId) " +
+            "and (:courtId is null or c.id = :courtId) and (:status is null or b.status = :status) " +
+            "order by b.date, b.id")
+    Stream<BookingExportRow> streamForExport(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                             @Param("venueId") Long venueId, @Param("courtId") Long courtId,
+                                             @Param("status") String status);
+
+    // ==== Unpaid permanent booking cancellation ====
+    @Query("select distinct b.series.id from Booking b where b.date = :date and b.isPermanent = true " +
+            "and b.paymentReceived = false and b.isCancelled = false and b.series is not null")
+    List<Long> findUnpaidSeriesIdsOn(@Param("date") LocalDate date);
+
+    // Permanent bookings made before series existed are grouped by user, as the old job did
+    @Query("select distinct b.user.id from Booking b where b.date = :date and b.isPermanent = true " +
+            "and b.paymentReceived = false and b.isCancelled = false and b.series is null")
+    List<Long> findUsersWithUnpaidLegacyBookingsOn(@Param("date") LocalDate date);
+
+    // The cancellations below go through the rollups (see BookingRollupRepository) in the same
+    // statement; they return the number of bookings cancelled
+    @Transactional
+    @Query(value = "with cancelled as (update bookings set is_cancelled = true, status = 'CANCELLED' " +
+            "where series_id in (:seriesIds) and not payment_received and not is_cancelled " +
+            "returning court_id, date, start_minute, duration_minutes), " +
+            BookingRollupRepository.ROLL_UP_CANCELLED + "select count(*) from cancelled", nativeQuery = true)
+    int cancelUnpaidInSeries(@Param("seriesIds") Collection<Long> seriesIds);
+
+    @Transactional
+    @Query(value = "with cancelled as (update bookings set is_cancelled = true, status = 'CANCELLED' " +
+            "where user_id in (:userIds) and series_id is null and is_permanent " +
+            "and not payment_received and not is_cancelled " +
+            "returning court_id, date, start_minute, duration_minutes), " +
+            BookingRollupRepository.ROLL_UP_CANCELLED + "select count(*) from cancelled", nativeQuery = true)
+    int cancelUnpaidLegacy(@Param("userIds") Collection<Long> userIds);
+
+    // Adds just-inserted bookings to the rollups, in the transaction that inserted them
+    @Modifying
+    @Query(value = "insert into booking_rollups (court_id, date, hour_of_day, booked_minutes, bookings) " +
+            "select b.court_id, b.date, h.hour_of_day, sum(" + BookingRollupRepository.MINUTES + "), " +
+            "sum(" + BookingRollupRepository.STARTS + ") from bookings b " +
+            BookingRollupRepository.LOCK_DAY + BookingRollupRepository.HOURS + "where b.id in (:ids) " +
+            BookingRollupRepository.ADD, nativeQuery = true)
+    int rollUpBooked(@Param("ids") Collection<Long> ids);
+
+    // ==== Admin batches (BulkBookings) ====
+
+    @Transactional
+    @Query(value = "with cancelled as (update bookings set is_cancelled = true, status = 'CANCELLED' " +
+            "where id in (:ids) and not is_cancelled " +
+            "returning court_id, date, start_minute, duration_minutes), " +
+            BookingRollupRepository.ROLL_UP_CANCELLED + "select count(*) from cancelled", nativeQuery = true)
+    int cancelByIds(@Param("ids") Collection<Long> ids);
+
+    // Adds (sign 1) or takes out (sign -1) the rollups of bookings that are being moved, payments
+    // included, since a payment counts in the hour its booking starts
+    @Modifying
+    @Query(value = "insert into booking_rollups (court_id, date, hour_of_day, booked_minutes, bookings, payments, " +
+            "revenue) select b.court_id, b.date, h.hour_of_day, " +
+            "cast(:sign as integer) * sum(" + BookingRollupRepository.MINUTES + "), " +
+            "cast(:sign as integer) * sum(" + BookingRollupRepository.STARTS + "), " +
+            "cast(:sign as integer) * sum(case when p.paid then " + BookingRollupRepository.STARTS + " else 0 end), " +
+            "cast(:sign as integer) * sum(case when p.paid then " + BookingRollupRepository.STARTS +
+            " * coalesce(p.amount, 0) else 0 end) " +
+            "from bookings b left join payments p on p.booking_id = b.id " +
+            BookingRollupRepository.LOCK_DAY + BookingRollupRepository.HOURS + "where b.id in (:ids) " +
+            "group by b.court_id, b.date, h.hour_of_day order by b.court_id, b.date, h.hour_of_day " +
+            "on conflict (court_id, date, hour_of_day) do update set " +
+            "booked_minutes = booking_rollups.booked_minutes + excluded.booked_minutes, " +
+            "bookings = booking_rollups.bookings + excluded.bookings, " +
+            "payments = booking_rollups.payments + excluded.payments, " +
+            "revenue = booking_rollups.revenue + excluded.revenue", nativeQuery = true)
+    int rollUpMoved(@Param("ids") Collection<Long> ids, @Param("sign") int sign);
+
+    // Takes bookings about to be moved out of the overlap checks until their updates are flushed,
+    // which write is_cancelled = false back with the new place, so moves within one batch can
+    // swap or chain slots. Call it before changing the entities, since running it flushes them.
+    // Only active bookings are parked; fewer than ids.size() means some were cancelled meanwhile.
+    @Modifying
+    @Query("update Booking b set b.isCancelled = true where b.id in :ids and b.isCancelled = false")
+    int parkForMove(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,113 @@
+package com.omnitrix.gearup.repository;
+
+import com.omnitrix.gearup.model.BookingRollup;
+import com.omnitrix.gearup.model.RollupTotals;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BookingRollupRepository extends JpaRepository<BookingRollup, BookingRollup.Key> {
+
+    // ==== SQL shared with the rollup statements of BookingRepository and PaymentRepository ====
+    // Each expects the booking rows as b (court_id, date, start_minute, duration_minutes).
+
+    // A shared transaction-level lock on the booking's day. A rebuild holds it exclusively, so an
+    // incremental update lands either before the rebuild reads the day or after it has replaced it.
+    String LOCK_DAY = "cross join lateral (select pg_advisory_xact_lock_shared(7365, b.date - date '2000-01-01')) day_lock ";
+
+    // One row per hour the booking touches, with the minutes it covers there and whether it starts there
+    String HOURS = "cross join lateral generate_series(b.start_minute / 60, " +
+            "(b.start_minute + b.duration_minutes - 1) / 60) as h(hour_of_day) ";
+    String MINUTES = "least(b.start_minute + b.duration_minutes, (h.hour_of_day + 1) * 60) " +
+            "- greatest(b.start_minute, h.hour_of_day * 60)";
+    String STARTS = "case when h.hour_of_day = b.start_minute / 60 then 1 else 0 end";
+
+    // Rows are written in key order so concurrent writers cannot deadlock on each other's hours
+    String ADD = "group by b.court_id, b.date, h.hour_of_day order by b.court_id, b.date, h.hour_of_day " +
+            "on conflict (court_id, date, hour_of_day) do update set " +
+            "booked_minutes = booking_rollups.booked_minutes + excluded.booked_minutes, " +
+            "bookings = booking_rollups.bookings + excluded.bookings, " +
+            "cancellations = booking_rollups.cancellations + excluded.cancellations";
+
+    // A data-modifying CTE for statements that cancel bookings and return them as "cancelled"
+    String ROLL_UP_CANCELLED = "rolled_up as (insert into booking_rollups " +
+            "(court_id, date, hour_of_day, booked_minutes, bookings, cancellations) " +
+            "select b.court_id, b.date, h.hour_of_day, -sum(" + MINUTES + "), -sum(" + STARTS + "), sum(" + STARTS + ") " +
+            "from cancelled b " + LOCK_DAY + HOURS + ADD + ") ";
+
+    // ==== Rebuild ====
+
+    // Exclusive lock on the day until the calling transaction ends
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query(value = "select count(*) from (select pg_advisory_xact_lock(7365, cast(:date as date) - date '2000-01-01')) l",
+            nativeQuery = true)
+    long lockDay(@Param("date") LocalDate date);
+
+    @Modifying
+    @Query("delete from BookingRollup r where r.id.date = :date")
+    int deleteDay(@Param("date") LocalDate date);
+
+    // The day's rollups from its bookings and their payments, as the incremental statements build them
+    @Modifying
+    @Query(value = "insert into booking_rollups (court_id, date, hour_of_day, booked_minutes, bookings, " +
+            "cancellations, payments, revenue) " +
+            "select b.court_id, b.date, h.hour_of_day, " +
+            "sum(case when b.is_cancelled then 0 else " + MINUTES + " end), " +
+            "sum(case when b.is_cancelled then 0 else " + STARTS + " end), " +
+            "sum(case when b.is_cancelled then " + STARTS + " else 0 end), " +
+            "sum(case when p.paid then " + STARTS + " else 0 end), " +
+            "sum(case when p.paid then " + STARTS + " * coalesce(p.amount, 0) else 0 end) " +
+            "from bookings b left join payments p on p.booking_id = b.id " + HOURS +
+            "where b.date = :date and b.court_id is not null " +
+            "group by b.court_id, b.date, h.hour_of_day", nativeQuery = true)
+    int insertDay(@Param("date") LocalDate date);
+
+    @Modifying
+    @Query(value = "insert into booking_rollup_days (date, rebuilt_at) values (:date, :at) " +
+            "on conflict (date) do update set rebuilt_at = excluded.rebuilt_at", nativeQuery = true)
+    int markRebuilt(@Param("date") LocalDate date, @Param("at") LocalDateTime at);
+
+    @Query("select d.date from BookingRollupDay d where d.date between :from and :to")
+    List<LocalDate> findRebuiltDays(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select min(b.date) from Booking b")
+    LocalDate findFirstBookingDate();
+
+    @Query("select max(b.date) from Booking b")
+    LocalDate findLastBookingDate();
+
+    // ==== Reports: rollups only, summed per group ====
+    String TOTALS = "sum(r.bookings), sum(r.cancellations), sum(r.bookedMinutes), sum(r.payments), sum(r.revenue)) " +
+            "from BookingRollup r join Court c on c.id = r.id.courtId " +
+            "where r.id.date between :from and :to " +
+            "and (:venueId is null or c.venue.id = :venueId) and (:courtId is null or c.id = :courtId) ";
+
+    @Query("select new com.omnitrix.gearup.model.RollupTotals(cast(r.id.date as String), cast(r.id.date as String), " +
+            TOTALS + "group by r.id.date order by r.id.date")
+    List<RollupTotals> totalsByDay(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                   @Param("venueId") Long venueId, @Param("courtId") Long courtId);
+
+    @Query("select new com.omnitrix.gearup.model.RollupTotals(cast(r.id.hourOfDay as String), cast(r.id.hourOfDay as String), " +
+            TOTALS + "group by r.id.hourOfDay order by r.id.hourOfDay")
+    List<RollupTotals> totalsByHour(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                    @Param("venueId") Long venueId, @Param("courtId") Long courtId);
+
+    @Query("select new com.omnitrix.gearup.model.RollupTotals(cast(c.id as String), c.name, " +
+            TOTALS + "group by c.id, c.name order by c.id")
+    List<RollupTotals> totalsByCourt(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                     @Param("venueId") Long venueId, @Param("courtId") Long courtId);
+
+    @Query("select new com.omnitrix.gearup.model.RollupTotals(cast(c.venue.id as String), c.venue.name, " +
+            TOTALS + "group by c.venue.id, c.venue.name order by c.venue.id")
+    List<RollupTotals> totalsByVenue(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                     @Param("venueId") Long venueId, @Param("courtId") Long courtId);
+}
@@ -0,0 +1,22 @@
+package com.omnitrix.gearup.repository;
+
+import com.omnitrix.gearup.model.BookingSeries;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BookingSeriesRepository extends JpaRepository<BookingSeries, Long> {
+
+    @Query("select distinct s.court.id from BookingSeries s where s.id in :ids")
+    List<Long> findCourtIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update BookingSeries s set s.status = 'CANCELLED' where s.id in :ids and s.status <> 'CANCELLED'")
+    int markCancelled(@Param("ids") Collection<Long> ids);
+}
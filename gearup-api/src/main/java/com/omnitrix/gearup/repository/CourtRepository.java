@@ -2,13 +2,38 @@ package com.omnitrix.gearup.repository;
 
 
 import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.CourtView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CourtRepository extends JpaRepository<Court, Long> {
+    // Venue court lists come from the query cache; inserts into courts invalidate it automatically
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference-queries")})
     List<Court> findByVenueId(Long venueId);
-}
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference-queries")})
+    @Query("select new com.omnitrix.gearup.model.CourtView(c.id, c.name, c.sportType, c.slotMinutes, c.venue.id) " +
+            "from Court c where c.venue.id = :venueId order by c.id")
+    List<CourtView> findViewsByVenueId(@Param("venueId") Long venueId);
+
+    // Every court, for report capacity
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference-queries")})
+    @Query("select new com.omnitrix.gearup.model.CourtView(c.id, c.name, c.sportType, c.slotMinutes, c.venue.id) " +
+            "from Court c order by c.id")
+    List<CourtView> findAllViews();
+
+    @Query("select c.slotMinutes from Court c where c.id = :id")
+    Optional<Integer> findSlotMinutes(@Param("id") Long id);
+}
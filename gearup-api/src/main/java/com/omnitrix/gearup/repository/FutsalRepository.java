@@ -1,10 +1,42 @@
 package com.omnitrix.gearup.repository;
 
 import com.omnitrix.gearup.model.Futsal;
+import com.omnitrix.gearup.model.VenueView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Repository
 public interface FutsalRepository extends JpaRepository<Futsal, Long> {
-}
 
+    String VIEW = "select new com.omnitrix.gearup.model.VenueView(v.id, v.name, v.location, v.contact) from Futsal v ";
+
+    // Keyset pages on id, served from the query cache until venues change
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference-queries")})
+    @Query(VIEW + "where v.id > :id order by v.id asc")
+    List<VenueView> findViewsAfter(@Param("id") Long id, Limit limit);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference-queries")})
+    @Query(VIEW + "where v.id < :id order by v.id desc")
+    List<VenueView> findViewsBefore(@Param("id") Long id, Limit limit);
+
+    // Catalog version shared by all instances (V5); see ReferenceDataCache
+    @Query(value = "select version from catalog_version where id = 1", nativeQuery = true)
+    long findCatalogVersion();
+
+    @Transactional
+    @Modifying
+    @Query(value = "update catalog_version set version = version + 1 where id = 1", nativeQuery = true)
+    int bumpCatalogVersion();
+}
@@ -0,0 +1,43 @@
+package com.omnitrix.gearup.repository;
+
+import com.omnitrix.gearup.model.PaymentNotification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PaymentNotificationRepository extends JpaRepository<PaymentNotification, String> {
+
+    // 1 when the notification is new, 0 when it repeats one already stored. A pending (0) row is
+    // replaced by a later notification with any other status and goes back to RECEIVED, so the
+    // success that follows a pending callback is processed rather than dropped as a duplicate.
+    @Modifying
+    @Query(value = "insert into payment_notifications (order_id, status_code, payload, state, attempts, received_at) " +
+            "values (:orderId, :statusCode, :payload, 'RECEIVED', 0, :receivedAt) " +
+            "on conflict (order_id) do update set status_code = excluded.status_code, payload = excluded.payload, " +
+            "state = 'RECEIVED', attempts = 0, outcome = null, received_at = excluded.received_at, " +
+            "claimed_at = null, processed_at = null " +
+            "where payment_notifications.status_code = '0' and excluded.status_code is distinct from '0'",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("orderId") String orderId, @Param("statusCode") String statusCode,
+                       @Param("payload") String payload, @Param("receivedAt") LocalDateTime receivedAt);
+
+    // Rows waiting for a worker, plus claims abandoned by a worker that died. Locked rows are
+    // skipped so several nodes can claim in parallel without waiting on each other.
+    @Query(value = "select * from payment_notifications where state = 'RECEIVED' " +
+            "or (state = 'PROCESSING' and claimed_at < :staleBefore) " +
+            "order by received_at limit :batchSize for update skip locked", nativeQuery = true)
+    List<PaymentNotification> lockClaimable(@Param("staleBefore") LocalDateTime staleBefore, @Param("batchSize") int batchSize);
+
+    // Only the worker holding the claim can record the outcome, and only once
+    @Modifying
+    @Query("update PaymentNotification n set n.state = :state, n.outcome = :outcome, n.processedAt = :at " +
+            "where n.orderId = :orderId and n.state = 'PROCESSING'")
+    int finish(@Param("orderId") String orderId, @Param("state") String state,
+               @Param("outcome") String outcome, @Param("at") LocalDateTime at);
+}
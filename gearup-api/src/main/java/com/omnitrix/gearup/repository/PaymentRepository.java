@@ -2,10 +2,44 @@ package com.omnitrix.gearup.repository;
 
 
 import com.omnitrix.gearup.model.Payment;
+import com.omnitrix.gearup.model.PaymentExportRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
-}
 
+    // Counts a payment, with its amount, in the rollup hour its booking starts; call it in the
+    // transaction that records the payment
+    @Modifying
+    @Query(value = "insert into booking_rollups (court_id, date, hour_of_day, payments, revenue) " +
+            "select b.court_id, b.date, b.start_minute / 60, 1, coalesce(cast(:amount as numeric), 0) " +
+            "from bookings b " + BookingRollupRepository.LOCK_DAY + "where b.id = :bookingId " +
+            "on conflict (court_id, date, hour_of_day) do update set " +
+            "payments = booking_rollups.payments + 1, revenue = booking_rollups.revenue + excluded.revenue",
+            nativeQuery = true)
+    int rollUpPayment(@Param("bookingId") Long bookingId, @Param("amount") BigDecimal amount);
+
+    // Streams the payments made in [from, to) in (payment date, id) order; see BookingRepository.streamForExport
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = BookingRepository.EXPORT_FETCH_SIZE))
+    @Query("select new com.omnitrix.gearup.model.PaymentExportRow(p.id, p.paymentDate, p.paymentMethod, p.paid, " +
+            "p.amount, b.id, b.date, b.startMinute, b.durationMinutes, b.status, v.id, v.name, c.id, c.name, " +
+            "u.id, u.email) " +
+            "from Payment p join p.booking b left join b.court c left join c.venue v left join b.user u " +
+            "where p.paymentDate >= :from and p.paymentDate < :to and (:venueId is null or v.id = :venueId) " +
+            "and (:courtId is null or c.id = :courtId) and (:paid is null or p.paid = :paid) " +
+            "order by p.paymentDate, p.id")
+    Stream<PaymentExportRow> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                             @Param("venueId") Long venueId, @Param("courtId") Long courtId,
+                                             @Param("paid") Boolean paid);
+}
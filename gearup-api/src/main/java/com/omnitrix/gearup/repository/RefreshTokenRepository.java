@@ -0,0 +1,59 @@
+package com.omnitrix.gearup.repository;
+
+import com.omnitrix.gearup.model.RefreshToken;
+import com.omnitrix.gearup.model.RevokedFamily;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "insert into refresh_tokens (token_hash, user_id, family, device, issued_at, expires_at) " +
+            "values (:tokenHash, :userId, :family, :device, :issuedAt, :expiresAt)", nativeQuery = true)
+    int insert(@Param("tokenHash") String tokenHash, @Param("userId") Long userId, @Param("family") String family,
+               @Param("device") String device, @Param("issuedAt") LocalDateTime issuedAt,
+               @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Revokes the presented token and issues its successor in the same family, in one statement:
+    // 1 when rotated, 0 when the token is unknown or was already revoked (by a rotation on another
+    // node, say), in which case nothing is inserted
+    @Transactional
+    @Modifying
+    @Query(value = "with rotated as (update refresh_tokens set revoked_at = :now, revoke_reason = 'ROTATED' " +
+            "where token_hash = :previous and revoked_at is null and expires_at > :now " +
+            "returning user_id, family, device) " +
+            "insert into refresh_tokens (token_hash, user_id, family, device, issued_at, expires_at) " +
+            "select :tokenHash, user_id, family, device, :now, :expiresAt from rotated", nativeQuery = true)
+    int rotate(@Param("previous") String previous, @Param("tokenHash") String tokenHash,
+               @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Revokes the family's live token; a family has at most one
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.revokedAt = :now, t.revokeReason = :reason " +
+            "where t.family = :family and t.revokedAt is null")
+    int revokeFamily(@Param("family") String family, @Param("reason") String reason, @Param("now") LocalDateTime now);
+
+    // Families revoked since the given time whose last token has not expired, oldest first. Rotated
+    // rows are left out: presenting one again is caught by rotate, which then finds nothing to revoke.
+    @Query("select new com.omnitrix.gearup.model.RevokedFamily(t.family, t.revokedAt, t.expiresAt) " +
+            "from RefreshToken t where t.revokedAt > :since and t.revokeReason <> 'ROTATED' " +
+            "and t.expiresAt > :now order by t.revokedAt asc")
+    List<RevokedFamily> findFamiliesRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now,
+                                               Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
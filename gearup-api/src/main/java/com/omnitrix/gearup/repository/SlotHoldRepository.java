@@ -0,0 +1,71 @@
+package com.omnitrix.gearup.repository;
+
+import com.omnitrix.gearup.model.BookedSlot;
+import com.omnitrix.gearup.model.SlotHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SlotHoldRepository extends JpaRepository<SlotHold, Long> {
+
+    List<SlotHold> findByHoldId(String holdId);
+
+    List<SlotHold> findByExpiresAtAfter(LocalDateTime now);
+
+    @Query("select new com.omnitrix.gearup.model.BookedSlot(h.courtId, h.date, h.startMinute, h.durationMinutes) " +
+            "from SlotHold h where h.courtId = :courtId and h.date = :date and h.expiresAt > :now")
+    List<BookedSlot> findActiveRanges(@Param("courtId") Long courtId, @Param("date") LocalDate date,
+                                      @Param("now") LocalDateTime now);
+
+    // Live holds on every court of a venue over a date range, for the venue availability grid
+    @Query("select new com.omnitrix.gearup.model.BookedSlot(h.courtId, h.date, h.startMinute, h.durationMinutes) " +
+            "from SlotHold h where h.courtId in (select c.id from Court c where c.venue.id = :venueId) " +
+            "and h.date between :from and :to and h.expiresAt > :now")
+    List<BookedSlot> findActiveOnVenue(@Param("venueId") Long venueId, @Param("from") LocalDate from,
+                                       @Param("to") LocalDate to, @Param("now") LocalDateTime now);
+
+    // Live holds overlapping the range, without the rows of holdId (the hold a booking is
+    // converting); a superset when several courts or dates are passed
+    @Query("select new com.omnitrix.gearup.model.BookedSlot(h.courtId, h.date, h.startMinute, h.durationMinutes) " +
+            "from SlotHold h where h.courtId in :courtIds and h.date in :dates and h.expiresAt > :now " +
+            "and h.startMinute < :end and h.startMinute + h.durationMinutes > :start and h.holdId <> :holdId")
+    List<BookedSlot> findActiveSlotsOfOthers(@Param("courtIds") Collection<Long> courtIds,
+                                             @Param("dates") Collection<LocalDate> dates,
+                                             @Param("start") int start, @Param("end") int end,
+                                             @Param("now") LocalDateTime now, @Param("holdId") String holdId);
+
+    // Exclusive lock on the user's holds until the calling transaction ends, so two holds placed
+    // at once by the same user, on any node, are counted one after the other
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query(value = "select count(*) from (select pg_advisory_xact_lock(7366, hashint8(:userId))) l", nativeQuery = true)
+    long lockUser(@Param("userId") Long userId);
+
+    // Live holds of a user, each counted once however many dates it covers
+    @Query("select count(distinct h.holdId) from SlotHold h where h.userId = :userId and h.expiresAt > :now")
+    long countLiveHolds(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    // Expired rows on the given slots, cleared before placing a new hold so the unique index lets it in
+    @Modifying
+    @Query("delete from SlotHold h where h.courtId = :courtId and h.date in :dates " +
+            "and h.startMinute = :startMinute and h.expiresAt <= :now")
+    int deleteExpiredOn(@Param("courtId") Long courtId, @Param("dates") Collection<LocalDate> dates,
+                        @Param("startMinute") int startMinute, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from SlotHold h where h.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from SlotHold h where h.holdId = :holdId")
+    int deleteByHoldId(@Param("holdId") String holdId);
+}
@@ -1,12 +1,39 @@
 package com.omnitrix.gearup.repository;
 
 import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.model.UserView;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    String VIEW = "select new com.omnitrix.gearup.model.UserView(u.id, u.name, u.email, u.role, " +
+            "u.dateOfBirth, u.mobileNumber, u.location, u.timeZone) from User u ";
+
     Optional<User> findByEmail(String email);
+
+    // Rehash on login and password change: only replaces the hash that was checked, so a password
+    // changed meanwhile wins
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :hash where u.id = :id and u.password = :previous")
+    int updatePassword(@Param("id") Long id, @Param("previous") String previous, @Param("hash") String hash);
+
+    @Query(VIEW + "where u.id = :id")
+    Optional<UserView> findViewById(@Param("id") Long id);
+
+    // Keyset pages on id
+    @Query(VIEW + "where u.id > :id order by u.id asc")
+    List<UserView> findViewsAfter(@Param("id") Long id, Limit limit);
+
+    @Query(VIEW + "where u.id < :id order by u.id desc")
+    List<UserView> findViewsBefore(@Param("id") Long id, Limit limit);
 }
@@ -1,55 +1,90 @@
 package com.omnitrix.gearup.security;
 
+import com.omnitrix.gearup.model.User;
 import io.jsonwebtoken.*;
-import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.security.core.userdetails.UserDetails;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
-    private final String SECRET_KEY = "your_secret";
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLE = "role";
+    private static final String CLAIM_TYPE = "typ";
+    private static final String CLAIM_FAMILY = "fam";
+    private static final String TYPE_ACCESS = "access";
+    private static final String TYPE_REFRESH = "refresh";
 
-    public String generateAccessToken(String email) {
-        return generateToken(email, 1000 * 60 * 15); // 15 min
-    }
+    private final Key key;
+    private final JwtParser parser;
 
-    public String generateRefreshToken(String email) {
-        return generateToken(email, 1000 * 60 * 60 * 24 * 7); // 7 days
+    public JwtUtil(@Value("${jwt.secret}") String secret) {
+        this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
-    private String generateToken(String email, long expiry) {
+    public String generateAccessToken(User user) {
         return Jwts.builder()
-                .setSubject(email)
+                .setSubject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_ROLE, user.getRole())
+                .claim(CLAIM_TYPE, TYPE_ACCESS)
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expiry))
-                .signWith(SignatureAlgorithm.HS256, SECRET_KEY)
+                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 15)) // 15 min
+                .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String extractUsername(String token) {
-        return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody().getSubject();
+    // The jti keeps two tokens of one family issued in the same second apart; RefreshTokenStore
+    // keys its rows by the token's hash
+    public String generateRefreshToken(long userId, String email, String family, Date expiresAt) {
+        return Jwts.builder()
+                .setSubject(email)
+                .setId(UUID.randomUUID().toString())
+                .claim(CLAIM_USER_ID, userId)
+                .claim(CLAIM_FAMILY, family)
+                .claim(CLAIM_TYPE, TYPE_REFRESH)
+                .setIssuedAt(new Date())
+                .setExpiration(expiresAt)
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
     }
 
-    public boolean validateToken(String token, UserDetails userDetails) {
-        return extractUsername(token).equals(userDetails.getUsername());
+    // Verifies signature and expiry; throws JwtException if either fails
+    public Claims parse(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
-    public String extractUsernameIgnoreExpiration(String token) {
-        return extractAllClaims(token).getSubject();  // ✅ This skips expiration check
+    // Returns the principal carried by a verified access token, or null for any other kind of token
+    public AuthUser toPrincipal(Claims claims) {
+        Number id = claims.get(CLAIM_USER_ID, Number.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        if (!TYPE_ACCESS.equals(claims.get(CLAIM_TYPE, String.class)) || id == null || role == null) {
+            return null;
+        }
+        return new AuthUser(id.longValue(), claims.getSubject(), role);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY.getBytes())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    // Returns what a refresh token carries, or null when the token is not a valid, unexpired refresh token
+    public RefreshClaims parseRefresh(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            Claims claims = parse(token);
+            Number id = claims.get(CLAIM_USER_ID, Number.class);
+            String family = claims.get(CLAIM_FAMILY, String.class);
+            if (!TYPE_REFRESH.equals(claims.get(CLAIM_TYPE, String.class)) || id == null || family == null) {
+                return null;
+            }
+            return new RefreshClaims(id.longValue(), claims.getSubject(), family, claims.getExpiration());
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
-
-
-
-
-
 }
@@ -0,0 +1,129 @@
+package com.omnitrix.gearup.security;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Runs BCrypt on a fixed pool of platform threads, one per core by default, behind a bounded
+// queue. Request threads only wait for the result, so a login storm queues here instead of
+// occupying every request thread with hashing, and once the queue is full callers get
+// PasswordHashingBusyException at once rather than waiting behind it. Hashes made at a cost other
+// than the configured one are reported by needsRehash, so changing the cost moves users over to
+// it as they log in.
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder encoder;
+    private final int cost;
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong rejected = new AtomicLong();
+    // Checked against when the user does not exist, so unknown emails take as long as wrong passwords
+    private final String dummyHash;
+
+    public PasswordHasher(PasswordEncoder encoder,
+                          @Value("${gearup.auth.bcrypt-cost:10}") int cost,
+                          @Value("${gearup.auth.hash-threads:0}") int threads,
+                          @Value("${gearup.auth.hash-queue:32}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.encoder = encoder;
+        this.cost = cost;
+        this.pool = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), named("password-hasher"), new ThreadPoolExecutor.AbortPolicy());
+        this.dummyHash = encoder.encode("gearup-no-such-user");
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> encoder.encode(rawPassword));
+    }
+
+    // False for a null hash, after the same amount of work as a real check
+    public boolean matches(CharSequence rawPassword, String hash) {
+        boolean known = hash != null;
+        boolean matches = run(() -> encoder.matches(rawPassword, known ? hash : dummyHash));
+        return known && matches;
+    }
+
+    // True for a BCrypt hash made at another cost than the configured one, or for anything that
+    // is not a BCrypt hash at all
+    public boolean needsRehash(String hash) {
+        return costOf(hash) != cost;
+    }
+
+    public int cost() {
+        return cost;
+    }
+
+    public int queueDepth() {
+        return pool.getQueue().size();
+    }
+
+    public int activeCount() {
+        return pool.getActiveCount();
+    }
+
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // "$2a$10$..." -> 10; -1 when the hash does not look like BCrypt
+    static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$'
+                || hash.charAt(6) != '$') {
+            return -1;
+        }
+        char tens = hash.charAt(4);
+        char ones = hash.charAt(5);
+        if (tens < '0' || tens > '9' || ones < '0' || ones > '9') {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+
+    private <T> T run(Supplier<T> work) {
+        Future<T> result;
+        try {
+            result = pool.submit(work::get);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new PasswordHashingBusyException("Too many logins in progress, please retry");
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
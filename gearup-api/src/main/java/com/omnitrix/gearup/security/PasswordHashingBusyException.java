@@ -0,0 +1,8 @@
+package com.omnitrix.gearup.security;
+
+// The password hashing pool and its queue are full; the request should be shed with a 503
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
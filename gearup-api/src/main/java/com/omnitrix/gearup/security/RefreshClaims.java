@@ -0,0 +1,7 @@
+package com.omnitrix.gearup.security;
+
+import java.util.Date;
+
+// The verified contents of a refresh token
+public record RefreshClaims(long userId, String email, String family, Date expiresAt) {
+}
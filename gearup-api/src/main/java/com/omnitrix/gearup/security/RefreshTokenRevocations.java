@@ -0,0 +1,47 @@
+package com.omnitrix.gearup.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Refresh-token families ended by logout or reuse, each kept until the last token it could have
+// issued has expired. Almost every token presented belongs to a live family, so lookups ask a
+// Bloom filter first and only its hits go to the exact map: a false positive costs a map lookup,
+// never a wrong answer. Revocations are rare next to lookups and serialize on this object;
+// lookups never lock.
+@Component
+public class RefreshTokenRevocations {
+
+    private final int capacity;
+    private final Map<String, Long> families = new ConcurrentHashMap<>(); // family -> expiry of its last token, epoch millis
+    private volatile BloomFilter filter;
+
+    public RefreshTokenRevocations(@Value("${gearup.auth.revocation-capacity:100000}") int capacity) {
+        this.capacity = capacity;
+        this.filter = new BloomFilter(capacity);
+    }
+
+    public boolean isRevoked(String family) {
+        return filter.mightContain(family) && families.containsKey(family);
+    }
+
+    public synchronized void revoke(String family, long expiresAt) {
+        families.merge(family, expiresAt, Math::max);
+        filter.add(family);
+    }
+
+    // Forgets families whose tokens have all expired and rebuilds the filter from the rest, so the
+    // false-positive rate stays near its design point however many revocations came and went
+    public synchronized void prune(long now) {
+        families.values().removeIf(expiresAt -> expiresAt <= now);
+        BloomFilter rebuilt = new BloomFilter(Math.max(capacity, families.size()));
+        families.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+    }
+
+    public int size() {
+        return families.size();
+    }
+}
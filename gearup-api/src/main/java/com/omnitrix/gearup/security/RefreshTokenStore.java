@@ -0,0 +1,190 @@
+package com.omnitrix.gearup.security;
+
+import com.omnitrix.gearup.model.RevokedFamily;
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// Refresh tokens, one refresh_tokens row each, kept as the SHA-256 of the token. A login starts a
+// family, one per device; a refresh revokes the presented token and issues the next one of its
+// family in a single statement. A token presented again after it was rotated means two parties
+// hold the family, so the whole family is revoked. Revoked families are also kept in memory and
+// picked up from the table every revocation-sync, so a logged-out token is turned away without a
+// query and a logout on one instance reaches the others within that interval.
+@Component
+public class RefreshTokenStore {
+
+    public static final String ROTATED = "ROTATED";
+    public static final String LOGOUT = "LOGOUT";
+    public static final String REUSED = "REUSED";
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenStore.class);
+    private static final int SYNC_BATCH = 5000;
+
+    private final RefreshTokenRepository tokenRepo;
+    private final RefreshTokenRevocations revocations;
+    private final JwtUtil jwtUtil;
+    private final Duration ttl;
+    private final Duration syncOverlap;
+    private final Counter rotated;
+    private final Counter rejected;
+    private final Counter reused;
+    private volatile LocalDateTime syncedUpTo;
+
+    public RefreshTokenStore(RefreshTokenRepository tokenRepo, RefreshTokenRevocations revocations, JwtUtil jwtUtil,
+                             MeterRegistry meterRegistry,
+                             @Value("${gearup.auth.refresh-ttl:7d}") Duration ttl,
+                             @Value("${gearup.auth.revocation-sync-overlap:1m}") Duration syncOverlap) {
+        this.tokenRepo = tokenRepo;
+        this.revocations = revocations;
+        this.jwtUtil = jwtUtil;
+        this.ttl = ttl;
+        this.syncOverlap = syncOverlap;
+        this.rotated = meterRegistry.counter("gearup.auth.refresh", "result", "rotated");
+        this.rejected = meterRegistry.counter("gearup.auth.refresh", "result", "rejected");
+        this.reused = meterRegistry.counter("gearup.auth.refresh", "result", "reused");
+    }
+
+    public record Rotation(long userId, String refreshToken) {
+    }
+
+    // Starts a new family for this login and returns its first token
+    public String issue(User user, String device) {
+        LocalDateTime now = LocalDateTime.now();
+        Date expiresAt = expiry(now);
+        String family = UUID.randomUUID().toString();
+        String token = jwtUtil.generateRefreshToken(user.getId(), user.getEmail(), family, expiresAt);
+        tokenRepo.insert(hash(token), user.getId(), family, truncate(device), now, toLocal(expiresAt));
+        return token;
+    }
+
+    // Exchanges a live refresh token for the next one of its family; empty when the token is not
+    // valid, was revoked, or was already used, and in the last case the family is revoked as well
+    public Optional<Rotation> rotate(String token) {
+        RefreshClaims claims = jwtUtil.parseRefresh(token);
+        if (claims == null || revocations.isRevoked(claims.family())) {
+            rejected.increment();
+            return Optional.empty();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Date expiresAt = expiry(now);
+        String next = jwtUtil.generateRefreshToken(claims.userId(), claims.email(), claims.family(), expiresAt);
+        if (tokenRepo.rotate(hash(token), hash(next), now, toLocal(expiresAt)) == 0) {
+            reuse(claims); // already rotated, here or on another instance
+            return Optional.empty();
+        }
+        rotated.increment();
+        return Optional.of(new Rotation(claims.userId(), next));
+    }
+
+    // Ends the session the token belongs to, on every device token of that family; false when the
+    // token is not a refresh token of ours
+    public boolean revoke(String token) {
+        RefreshClaims claims = jwtUtil.parseRefresh(token);
+        if (claims == null) {
+            return false;
+        }
+        if (!revocations.isRevoked(claims.family())) {
+            revokeFamily(claims.family(), LOGOUT);
+        }
+        return true;
+    }
+
+    private void reuse(RefreshClaims claims) {
+        reused.increment();
+        log.warn("Refresh token reused for user {}, revoking its family", claims.userId());
+        revokeFamily(claims.family(), REUSED);
+    }
+
+    private void revokeFamily(String family, String reason) {
+        LocalDateTime now = LocalDateTime.now();
+        tokenRepo.revokeFamily(family, reason, now);
+        // No token of the family can outlive one issued now
+        revocations.revoke(family, expiry(now).getTime());
+    }
+
+    // Anything revoked more than one token lifetime ago only concerns tokens that have expired
+    @PostConstruct
+    void load() {
+        syncedUpTo = LocalDateTime.now().minus(ttl);
+        syncRevocations();
+        if (revocations.size() > 0) {
+            log.info("Loaded {} revoked refresh token families", revocations.size());
+        }
+    }
+
+    // Revocations made by any instance since the last sync. The window reaches back syncOverlap so
+    // a revocation committed late, with an earlier timestamp, is still picked up.
+    @Scheduled(fixedDelayString = "${gearup.auth.revocation-sync:5000}", initialDelayString = "${gearup.auth.revocation-sync:5000}")
+    public void syncRevocations() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = syncedUpTo.minus(syncOverlap);
+        List<RevokedFamily> page;
+        do {
+            page = tokenRepo.findFamiliesRevokedSince(since, now, Limit.of(SYNC_BATCH));
+            for (RevokedFamily row : page) {
+                revocations.revoke(row.family(), toMillis(row.expiresAt()));
+                since = row.revokedAt();
+            }
+        } while (page.size() == SYNC_BATCH);
+        if (since.isAfter(syncedUpTo)) {
+            syncedUpTo = since;
+        }
+    }
+
+    // Expired tokens can no longer be presented, so neither their rows nor their revocations matter
+    @Scheduled(cron = "0 17 * * * *")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = tokenRepo.deleteExpired(now);
+        revocations.prune(toMillis(now));
+        if (deleted > 0) {
+            log.info("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Date expiry(LocalDateTime now) {
+        return new Date(toMillis(now.plus(ttl)) / 1000 * 1000); // JWT expiry has second precision
+    }
+
+    private static LocalDateTime toLocal(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String truncate(String device) {
+        return device == null || device.length() <= 255 ? device : device.substring(0, 255);
+    }
+}
@@ -0,0 +1,51 @@
+package com.omnitrix.gearup.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+// Lets Prometheus scrape with the static bearer token from gearup.metrics.scrape-token, since
+// access tokens expire long before a scrape config would be updated. The token only counts for
+// the scrape endpoint on the management port, where it grants ROLE_METRICS and nothing else; an
+// empty token disables it, leaving the endpoint to admins.
+@Component
+public class ScrapeTokenFilter extends OncePerRequestFilter {
+
+    public static final String SCRAPE_PATH = "/actuator/prometheus";
+    public static final String ROLE = "METRICS";
+
+    private final byte[] token;
+    private final int managementPort;
+
+    public ScrapeTokenFilter(@Value("${gearup.metrics.scrape-token:}") String token,
+                             @Value("${management.server.port:-1}") int managementPort) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.managementPort = managementPort;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String authHeader = request.getHeader("Authorization");
+        if (token.length > 0 && authHeader != null && authHeader.startsWith("Bearer ")
+                && request.getLocalPort() == managementPort && SCRAPE_PATH.equals(request.getRequestURI())
+                && SecurityContextHolder.getContext().getAuthentication() == null
+                && MessageDigest.isEqual(token, authHeader.substring(7).getBytes(StandardCharsets.UTF_8))) {
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                    "prometheus", null, List.of(new SimpleGrantedAuthority("ROLE_" + ROLE))));
+        }
+        chain.doFilter(request, response);
+    }
+}
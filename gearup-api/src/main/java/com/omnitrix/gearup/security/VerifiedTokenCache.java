@@ -0,0 +1,80 @@
+package com.omnitrix.gearup.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Access tokens that already passed signature verification, kept until they expire. The bound is
+// an LRU split into segments with a lock each: when full, a put evicts the least recently used
+// token of its segment, so the sessions in use stay cached and lookups rarely wait on each other.
+@Component
+public class VerifiedTokenCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    public VerifiedTokenCache(@Value("${gearup.auth.token-cache-size:10000}") int maxSize) {
+        int count = Math.max(1, Math.min(SEGMENTS, maxSize));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(Math.max(1, maxSize / count));
+        }
+    }
+
+    public AuthUser get(String token) {
+        Segment segment = segmentOf(token);
+        synchronized (segment) {
+            Entry entry = segment.get(token);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                segment.remove(token);
+                return null;
+            }
+            return entry.user;
+        }
+    }
+
+    public void put(String token, AuthUser user, long expiresAt) {
+        Segment segment = segmentOf(token);
+        synchronized (segment) {
+            segment.put(token, new Entry(user, expiresAt));
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentOf(String token) {
+        return segments[Math.floorMod(token.hashCode(), segments.length)];
+    }
+
+    private record Entry(AuthUser user, long expiresAt) {
+    }
+
+    // Access-ordered, so the eldest entry is the least recently used one
+    private static final class Segment extends LinkedHashMap<String, Entry> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedTokenCache.Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.BookedSlot;
+import com.omnitrix.gearup.model.Booking;
+import com.omnitrix.gearup.model.SlotAvailability;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.CourtRepository;
+import com.omnitrix.gearup.repository.SlotHoldRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory bitmap of taken time per (court, date). Each day is two longs, one for bookings and
+// one for payment holds, where bit i is set when the half-hour cell starting at i * 30 minutes is
+// taken, which covers every slot grid a court can use. Days are loaded lazily from the database
+// and kept up to a bound, evicting the least recently read ones; every booking or hold change on
+// this node updates the bitmaps directly, and the TTL bounds how long changes made by other nodes
+// can go unseen. A day is immutable once published, so reads take no lock, and a write replaces
+// its day through the map, which only serializes writers of that one day. Every day also
+// carries a version, taken from one increasing counter whenever its bitmaps change, which gives
+// the slots endpoint a strong ETag that can be checked without going to the database. Listeners
+// hear about every change, including ones a refresh picks up from other nodes.
+@Component
+public class AvailabilityIndex {
+
+    private final BookingRepository bookingRepo;
+    private final CourtRepository courtRepo;
+    private final SlotHoldRepository holdRepo;
+    private final long ttlNanos;
+    private final int maxDays;
+    private final Map<DayKey, Day> days = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final Map<Long, Integer> grids = new ConcurrentHashMap<>();
+    private final Map<Integer, SlotAvailability[][]> slotStates = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Timer lookupTimer;
+    private final Timer loadTimer;
+    private final Counter hits;
+
+    // Bumped on every write so a load that raced with a write is not cached.
+    private final AtomicLong writeSeq = new AtomicLong();
+    private final AtomicLong versionSeq = new AtomicLong();
+    // Versions restart with the process, so tags from an earlier run never match
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private static final int BOOKED = 1;
+    private static final int HELD = 2;
+
+    public AvailabilityIndex(BookingRepository bookingRepo, CourtRepository courtRepo, SlotHoldRepository holdRepo,
+                             MeterRegistry meterRegistry,
+                             @Value("${gearup.availability.max-days:20000}") int maxDays,
+                             @Value("${gearup.availability.ttl:5m}") Duration ttl) {
+        this.lookupTimer = Timer.builder("gearup.availability.lookup")
+                .description("Slot list for a court and date, cached or not").register(meterRegistry);
+        this.loadTimer = Timer.builder("gearup.availability.load")
+                .description("Loading a day's bookings and holds from the database").register(meterRegistry);
+        this.hits = Counter.builder("gearup.availability.hits")
+                .description("Day lookups answered from memory").register(meterRegistry);
+        this.bookingRepo = bookingRepo;
+        this.courtRepo = courtRepo;
+        this.holdRepo = holdRepo;
+        this.ttlNanos = ttl.toNanos();
+        this.maxDays = maxDays;
+    }
+
+    // Called after the change, outside any lock. A null date means every date of the court,
+    // and a null court means everything.
+    public interface Listener {
+        void changed(Long courtId, LocalDate date);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // Held slots are shown as taken, the same as booked ones
+    public List<SlotAvailability> slots(Long courtId, LocalDate date) {
+        return lookupTimer.record(() -> lookup(courtId, date));
+    }
+
+    private List<SlotAvailability> lookup(Long courtId, LocalDate date) {
+        int grid = gridOf(courtId);
+        long bits = takenSlots(courtId, date);
+        SlotAvailability[][] states = slotStates.computeIfAbsent(grid, AvailabilityIndex::slotStates);
+        SlotAvailability[] result = new SlotAvailability[states[0].length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = states[(int) (bits >>> i) & 1][i];
+        }
+        return Arrays.asList(result);
+    }
+
+    // Strong ETag for slots(courtId, date); loads the day if it is not cached or has gone stale
+    public String etag(Long courtId, LocalDate date) {
+        mask(courtId, date, BOOKED);
+        Day day = days.get(new DayKey(courtId, date));
+        // An uncached day (a load lost a race with a write) gets a tag that matches nothing
+        return "\"" + epoch + "-" + (day != null ? day.version : versionSeq.incrementAndGet()) + "\"";
+    }
+
+    // Bit i is set when slot i of the court's grid is booked or held
+    public long takenSlots(Long courtId, LocalDate date) {
+        return TimeSlots.slotBits(mask(courtId, date, BOOKED | HELD), gridOf(courtId));
+    }
+
+    public boolean isBooked(Long courtId, LocalDate date, TimeSlot slot) {
+        return (mask(courtId, date, BOOKED) & TimeSlots.cellMask(slot.startMinute(), slot.durationMinutes())) != 0;
+    }
+
+    public boolean isHeld(Long courtId, LocalDate date, TimeSlot slot) {
+        return (mask(courtId, date, HELD) & TimeSlots.cellMask(slot.startMinute(), slot.durationMinutes())) != 0;
+    }
+
+    // Slot length of the court's grid; courts that do not exist fall back to the default grid
+    public int gridOf(Long courtId) {
+        return grids.computeIfAbsent(courtId,
+                id -> courtRepo.findSlotMinutes(id).filter(TimeSlots::isSupportedGrid).orElse(TimeSlots.DEFAULT_GRID));
+    }
+
+    public void forgetCourt(Long courtId) {
+        grids.remove(courtId);
+        invalidateCourts(List.of(courtId));
+    }
+
+    public long bookedMask(Long courtId, LocalDate date) {
+        return mask(courtId, date, BOOKED);
+    }
+
+    private long mask(Long courtId, LocalDate date, int which) {
+        DayKey key = new DayKey(courtId, date);
+        Day day = days.get(key);
+        long now = System.nanoTime();
+        if (day != null && now - day.loadedAt < ttlNanos) {
+            hits.increment();
+            day.lastRead = now;
+            return day.get(which);
+        }
+        long seq = writeSeq.get();
+
+        long booked = 0;
+        long held = 0;
+        for (BookedSlot slot : bookingRepo.findBookedRanges(courtId, date)) {
+            booked |= TimeSlots.cellMask(slot.startMinute(), slot.durationMinutes());
+        }
+        for (BookedSlot slot : holdRepo.findActiveRanges(courtId, date, LocalDateTime.now())) {
+            held |= TimeSlots.cellMask(slot.startMinute(), slot.durationMinutes());
+        }
+        loadTimer.record(System.nanoTime() - now, TimeUnit.NANOSECONDS);
+
+        Day loaded = new Day(booked, held, 0, now);
+        boolean[] refreshed = new boolean[1];
+        days.compute(key, (k, previous) -> {
+            if (writeSeq.get() != seq) {
+                return previous; // a write may have landed after the queries; the next read loads again
+            }
+            // A refresh that finds nothing new keeps the version, so clients keep their ETag
+            boolean unchanged = previous != null && previous.booked == loaded.booked && previous.held == loaded.held;
+            refreshed[0] = previous != null && !unchanged;
+            return new Day(loaded.booked, loaded.held, unchanged ? previous.version : versionSeq.incrementAndGet(), now);
+        });
+        evictIfFull();
+        if (refreshed[0]) {
+            notifyListeners(courtId, date); // changed by another node
+        }
+        return loaded.get(which);
+    }
+
+    public void markBooked(Booking booking) {
+        update(booking.getCourt().getId(), booking.getDate(), booking.getSlot(), BOOKED, true);
+    }
+
+    public void markFree(Booking booking) {
+        update(booking.getCourt().getId(), booking.getDate(), booking.getSlot(), BOOKED, false);
+    }
+
+    public void markBooked(Long courtId, LocalDate date, TimeSlot slot) {
+        update(courtId, date, slot, BOOKED, true);
+    }
+
+    public void markFree(Long courtId, LocalDate date, TimeSlot slot) {
+        update(courtId, date, slot, BOOKED, false);
+    }
+
+    public void markHeld(Long courtId, LocalDate date, TimeSlot slot) {
+        update(courtId, date, slot, HELD, true);
+    }
+
+    public void markReleased(Long courtId, LocalDate date, TimeSlot slot) {
+        update(courtId, date, slot, HELD, false);
+    }
+
+    public void invalidateCourts(Collection<Long> courtIds) {
+        writeSeq.incrementAndGet();
+        days.keySet().removeIf(key -> courtIds.contains(key.courtId()));
+        courtIds.forEach(courtId -> notifyListeners(courtId, null));
+    }
+
+    public void invalidateAll() {
+        writeSeq.incrementAndGet();
+        days.clear();
+        notifyListeners(null, null);
+    }
+
+    private void update(Long courtId, LocalDate date, TimeSlot slot, int which, boolean taken) {
+        writeSeq.incrementAndGet();
+        long cells = TimeSlots.cellMask(slot.startMinute(), slot.durationMinutes());
+        // An uncached day is loaded from the database on its next read
+        days.computeIfPresent(new DayKey(courtId, date), (key, day) -> {
+            long booked = which == BOOKED ? (taken ? day.booked | cells : day.booked & ~cells) : day.booked;
+            long held = which == HELD ? (taken ? day.held | cells : day.held & ~cells) : day.held;
+            Day changed = new Day(booked, held, versionSeq.incrementAndGet(), day.loadedAt);
+            changed.lastRead = day.lastRead;
+            return changed;
+        });
+        notifyListeners(courtId, date);
+    }
+
+    // Past the bound, one caller drops the least recently read eighth of the days
+    private void evictIfFull() {
+        if (days.size() <= maxDays || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int excess = days.size() - maxDays + Math.max(1, maxDays / 8);
+            days.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().lastRead))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(days::remove);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private void notifyListeners(Long courtId, LocalDate date) {
+        for (Listener listener : listeners) {
+            listener.changed(courtId, date);
+        }
+    }
+
+    private static SlotAvailability[][] slotStates(int grid) {
+        List<String> labels = TimeSlots.labels(grid);
+        SlotAvailability[][] states = new SlotAvailability[2][labels.size()];
+        for (int i = 0; i < labels.size(); i++) {
+            states[0][i] = new SlotAvailability(labels.get(i), true);
+            states[1][i] = new SlotAvailability(labels.get(i), false);
+        }
+        return states;
+    }
+
+    private record DayKey(Long courtId, LocalDate date) {
+    }
+
+    // Replaced, never changed, once it is in the map; only the read stamp moves
+    private static final class Day {
+        final long booked;
+        final long held;
+        final long version;
+        final long loadedAt;
+        volatile long lastRead;
+
+        Day(long booked, long held, long version, long loadedAt) {
+            this.booked = booked;
+            this.held = held;
+            this.version = version;
+            this.loadedAt = loadedAt;
+            this.lastRead = loadedAt;
+        }
+
+        long get(int which) {
+            return ((which & BOOKED) != 0 ? booked : 0) | ((which & HELD) != 0 ? held : 0);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.omnitrix.gearup.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omnitrix.gearup.model.BookingExportRow;
+import com.omnitrix.gearup.model.PaymentExportRow;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Booking and payment exports as CSV or NDJSON, written row by row while the query is still
+// running. Rows come from flat projections read through a database cursor in a read-only
+// transaction, so heap use stays the same for a day or a year and the first bytes leave as
+// soon as the header is written. Each running export holds a connection until it finishes,
+// so at most max-concurrent run at a time and the rest are turned away.
+@Service
+public class BookingExports {
+
+    public enum Format {
+        CSV("text/csv"), NDJSON("application/x-ndjson");
+
+        public final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("format must be csv or ndjson");
+            }
+        }
+    }
+
+    private static final List<String> BOOKING_STATUSES = List.of("PENDING", "CONFIRMED", "CANCELLED");
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    private final BookingRepository bookingRepo;
+    private final PaymentRepository paymentRepo;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore running;
+    private final int maxDays;
+
+    public BookingExports(BookingRepository bookingRepo, PaymentRepository paymentRepo,
+                          PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry,
+                          @Value("${gearup.exports.max-concurrent:2}") int maxConcurrent,
+                          @Value("${gearup.exports.max-days:1096}") int maxDays) {
+        this.bookingRepo = bookingRepo;
+        this.paymentRepo = paymentRepo;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.running = new Semaphore(maxConcurrent);
+        this.maxDays = maxDays;
+    }
+
+    // Bookings dated from..to; status is PENDING, CONFIRMED or CANCELLED, or null for all.
+    // Throws IllegalArgumentException for bad filters and IllegalStateException when too many
+    // exports are running.
+    public StreamingResponseBody bookings(LocalDate from, LocalDate to, Long venueId, Long courtId, String status,
+                                          Format format) {
+        checkRange(from, to);
+        String bookingStatus = status == null ? null : status.toUpperCase(Locale.ROOT);
+        if (bookingStatus != null && !BOOKING_STATUSES.contains(bookingStatus)) {
+            throw new IllegalArgumentException("status must be one of " + String.join(", ", BOOKING_STATUSES));
+        }
+        return export("bookings", BookingExportRow.class, format,
+                () -> bookingRepo.streamForExport(from, to, venueId, courtId, bookingStatus));
+    }
+
+    // Payments made from..to; status is PAID or UNPAID, or null for all. Throws as bookings() does.
+    public StreamingResponseBody payments(LocalDate from, LocalDate to, Long venueId, Long courtId, String status,
+                                          Format format) {
+        checkRange(from, to);
+        Boolean paid = status == null ? null : switch (status.toUpperCase(Locale.ROOT)) {
+            case "PAID" -> true;
+            case "UNPAID" -> false;
+            default -> throw new IllegalArgumentException("status must be PAID or UNPAID");
+        };
+        return export("payments", PaymentExportRow.class, format,
+                () -> paymentRepo.streamForExport(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), venueId,
+                        courtId, paid));
+    }
+
+    private void checkRange(LocalDate from, LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days < 1 || days > maxDays) {
+            throw new IllegalArgumentException("Date range must cover 1 to " + maxDays + " days");
+        }
+    }
+
+    // The permit is only taken once the body starts writing, so a body that is never written (the
+    // client left, the request timed out before its turn) holds nothing. The check here lets a busy
+    // server answer before any bytes are committed; a body that loses the race for the last permit
+    // throws the same IllegalStateException before it writes anything.
+    private <T extends Record> StreamingResponseBody export(String name, Class<T> type, Format format,
+                                                            Supplier<Stream<T>> query) {
+        if (running.availablePermits() == 0) {
+            throw busy();
+        }
+        return out -> {
+            if (!running.tryAcquire()) {
+                throw busy();
+            }
+            try {
+                readOnly.executeWithoutResult(status -> {
+                    try (Stream<T> rows = query.get()) {
+                        long written = write(rows, type, format, out);
+                        meterRegistry.counter("gearup.exports.rows", "export", name).increment(written);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } finally {
+                running.release();
+            }
+        };
+    }
+
+    private static IllegalStateException busy() {
+        return new IllegalStateException("Too many exports running, please retry shortly");
+    }
+
+    <T extends Record> long write(Stream<T> rows, Class<T> type, Format format, OutputStream out) throws IOException {
+        RecordComponent[] columns = type.getRecordComponents();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER);
+        if (format == Format.CSV) {
+            for (int i = 0; i < columns.length; i++) {
+                writer.write(i == 0 ? "" : ",");
+                writer.write(columns[i].getName());
+            }
+            writer.write("\r\n");
+        }
+        writer.flush();
+
+        long written = 0;
+        for (T row : (Iterable<T>) rows::iterator) {
+            if (format == Format.CSV) {
+                for (int i = 0; i < columns.length; i++) {
+                    writer.write(i == 0 ? "" : ",");
+                    writeCsv(writer, value(columns[i], row));
+                }
+                writer.write("\r\n");
+            } else {
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+            written++;
+        }
+        writer.flush();
+        return written;
+    }
+
+    private static Object value(RecordComponent column, Record row) {
+        try {
+            return column.getAccessor().invoke(row);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // RFC 4180 quoting. Text that a spreadsheet would read as a formula gets a leading quote.
+    static void writeCsv(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (value instanceof String && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
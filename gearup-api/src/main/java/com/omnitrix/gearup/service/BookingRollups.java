@@ -0,0 +1,77 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.repository.BookingRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+// Rebuilds booking_rollups from bookings and payments, one day per transaction. Bookings,
+// cancellations and payments keep the rollups current as they happen (see BookingRollupRepository);
+// a rebuild is for history from before the rollups existed and for repairing a day. It holds the
+// day's advisory lock exclusively, so incremental updates to that day wait for it and are applied
+// on top of the rebuilt rows.
+@Slf4j
+@Service
+public class BookingRollups {
+
+    private final BookingRollupRepository rollupRepo;
+    private final TransactionTemplate transactionTemplate;
+
+    public BookingRollups(BookingRollupRepository rollupRepo, TransactionTemplate transactionTemplate) {
+        this.rollupRepo = rollupRepo;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Rebuilds every day from..to, inclusive, and returns the number of days rebuilt
+    public int rebuild(LocalDate from, LocalDate to) {
+        int days = 0;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            rebuildDay(date);
+            days++;
+        }
+        return days;
+    }
+
+    // Rebuilds the days with bookings that have never been rebuilt. Days booked only after the
+    // rollups existed are rebuilt once too, which leaves them unchanged.
+    public int backfill() {
+        LocalDate first = rollupRepo.findFirstBookingDate();
+        LocalDate last = rollupRepo.findLastBookingDate();
+        if (first == null) {
+            return 0;
+        }
+        long started = System.nanoTime();
+        Set<LocalDate> rebuilt = new HashSet<>(rollupRepo.findRebuiltDays(first, last));
+        int days = 0;
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            if (!rebuilt.contains(date)) {
+                rebuildDay(date);
+                days++;
+            }
+        }
+        if (days > 0) {
+            log.info("Backfilled booking rollups for {} days in {} ms", days, (System.nanoTime() - started) / 1_000_000);
+        }
+        return days;
+    }
+
+    @Scheduled(cron = "${gearup.reports.backfill-cron:0 30 3 * * *}")
+    public void nightlyBackfill() {
+        backfill();
+    }
+
+    private void rebuildDay(LocalDate date) {
+        transactionTemplate.executeWithoutResult(status -> {
+            rollupRepo.lockDay(date);
+            rollupRepo.deleteDay(date);
+            rollupRepo.insertDay(date);
+            rollupRepo.markRebuilt(date, LocalDateTime.now());
+        });
+    }
+}
@@ -0,0 +1,258 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.BookedSlot;
+import com.omnitrix.gearup.model.Booking;
+import com.omnitrix.gearup.model.BookingSeries;
+import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.BookingSeriesRepository;
+import com.omnitrix.gearup.repository.SlotHoldRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+@Service
+public class BookingService {
+
+    private final BookingRepository bookingRepo;
+    private final BookingSeriesRepository seriesRepo;
+    private final SlotHoldRepository holdRepo;
+    private final AvailabilityIndex availabilityIndex;
+    private final SlotLocks slotLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final int defaultWeeks;
+    private final int maxWeeks;
+    private final MeterRegistry meterRegistry;
+
+    public BookingService(BookingRepository bookingRepo, BookingSeriesRepository seriesRepo,
+                          SlotHoldRepository holdRepo, AvailabilityIndex availabilityIndex, SlotLocks slotLocks,
+                          TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                          @Value("${gearup.booking.series.default-weeks:3}") int defaultWeeks,
+                          @Value("${gearup.booking.series.max-weeks:26}") int maxWeeks) {
+        this.bookingRepo = bookingRepo;
+        this.seriesRepo = seriesRepo;
+        this.holdRepo = holdRepo;
+        this.availabilityIndex = availabilityIndex;
+        this.slotLocks = slotLocks;
+        this.transactionTemplate = transactionTemplate;
+        this.defaultWeeks = defaultWeeks;
+        this.maxWeeks = maxWeeks;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Builds an unsaved weekly series. Length comes from weeks, else untilDate, else the default;
+    // throws IllegalArgumentException when it falls outside 1..max-weeks.
+    public BookingSeries newSeries(User user, Court court, LocalDate startDate, TimeSlot slot,
+                                   Integer weeks, LocalDate untilDate) {
+        int count = weeksFor(startDate, weeks, untilDate);
+        BookingSeries series = new BookingSeries();
+        series.setUser(user);
+        series.setCourt(court);
+        series.setStartDate(startDate);
+        series.setEndDate(startDate.plusWeeks(count - 1));
+        series.setSlot(slot);
+        series.setWeeks(count);
+        series.setCreatedAt(LocalDateTime.now());
+        return series;
+    }
+
+    public int maxWeeks() {
+        return maxWeeks;
+    }
+
+    // Number of weekly sessions a permanent booking covers, by the same rules as newSeries
+    public int weeksFor(LocalDate startDate, Integer weeks, LocalDate untilDate) {
+        int count;
+        if (weeks != null) {
+            count = weeks;
+        } else if (untilDate != null) {
+            count = (int) ChronoUnit.WEEKS.between(startDate, untilDate) + 1;
+        } else {
+            count = defaultWeeks;
+        }
+        if (count < 1 || count > maxWeeks) {
+            throw new IllegalArgumentException("A permanent booking must cover 1 to " + maxWeeks + " weeks");
+        }
+        return count;
+    }
+
+    // Reserves every week of the series in one transaction: one conflict query, one insert for
+    // the series row and one JDBC batch for its bookings.
+    public List<Booking> reserveSeries(BookingSeries series, boolean firstWeekPaid) {
+        return reserveSeries(series, firstWeekPaid, null, null);
+    }
+
+    // As above for the holder of slot hold holdId, whose own hold does not count as a conflict.
+    // alsoInTransaction gets the saved bookings inside the booking transaction, and an exception
+    // from it rolls them back.
+    public List<Booking> reserveSeries(BookingSeries series, boolean firstWeekPaid, String holdId,
+                                       Consumer<List<Booking>> alsoInTransaction) {
+        List<Booking> bookings = new ArrayList<>(series.getWeeks());
+        for (int i = 0; i < series.getWeeks(); i++) {
+            Booking b = new Booking();
+            b.setUser(series.getUser());
+            b.setCourt(series.getCourt());
+            b.setDate(series.getStartDate().plusWeeks(i));
+            b.setSlot(series.getSlot());
+            b.setPermanent(true);
+            b.setWeekNumber(i + 1);
+            b.setSeries(series);
+            b.setStatus("CONFIRMED");
+            b.setPaymentReceived(firstWeekPaid && i == 0); // only week 1 is paid initially
+            bookings.add(b);
+        }
+        return reserve(series, bookings, holdId, alsoInTransaction);
+    }
+
+    public List<Booking> reserve(List<Booking> bookings) {
+        return reserve(null, bookings, null, null);
+    }
+
+    public List<Booking> reserve(List<Booking> bookings, String holdId, Consumer<List<Booking>> alsoInTransaction) {
+        return reserve(null, bookings, holdId, alsoInTransaction);
+    }
+
+    // Saves all bookings or none of them, and adds them to the occupancy rollups in the same
+    // transaction. Slot stripes are held until the transaction has committed, and the partial
+    // unique index on bookings catches anything that slips past this node (other instances, stale
+    // index entries). Live holds are read from slot_holds inside the transaction, under the same
+    // stripes SlotHolds.place takes. Throws IllegalArgumentException for a slot that is not on the
+    // court's grid.
+    private List<Booking> reserve(BookingSeries series, List<Booking> bookings, String holdId,
+                                  Consumer<List<Booking>> alsoInTransaction) {
+        // Latency by outcome; the conflict rate is the share of outcome=conflict
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failed";
+        try {
+            List<Booking> saved = reserveLocked(series, bookings, holdId, alsoInTransaction);
+            outcome = "booked";
+            return saved;
+        } catch (SlotConflictException e) {
+            outcome = "conflict";
+            throw e;
+        } catch (IllegalArgumentException e) {
+            outcome = "invalid";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("gearup.booking.reserve")
+                    .description("Booking reservation, from grid check to commit")
+                    .tag("kind", series != null ? "series" : "single")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private List<Booking> reserveLocked(BookingSeries series, List<Booking> bookings, String holdId,
+                                        Consumer<List<Booking>> alsoInTransaction) {
+        int[] stripes = new int[bookings.size()];
+        for (int i = 0; i < stripes.length; i++) {
+            Booking b = bookings.get(i);
+            TimeSlots.checkOnGrid(b.getSlot(), availabilityIndex.gridOf(b.getCourt().getId()));
+            stripes[i] = slotLocks.stripeOf(b.getCourt().getId(), b.getDate(), b.getStartMinute());
+        }
+
+        List<Lock> locks = slotLocks.lockAll(stripes);
+        try {
+            checkAvailable(bookings);
+            try {
+                transactionTemplate.execute(status -> {
+                    checkNotHeld(bookings, holdId);
+                    if (series != null) {
+                        seriesRepo.save(series);
+                    }
+                    bookingRepo.saveAll(bookings);
+                    bookingRepo.flush();
+                    bookingRepo.rollUpBooked(bookings.stream().map(Booking::getId).toList());
+                    if (alsoInTransaction != null) {
+                        alsoInTransaction.accept(bookings);
+                    }
+                    return null;
+                });
+            } catch (DataIntegrityViolationException e) {
+                if (!SlotConflictException.isSlotTaken(e)) {
+                    throw e;
+                }
+                throw new SlotConflictException(conflictMessage(bookings.get(0)));
+            }
+            bookings.forEach(availabilityIndex::markBooked);
+        } finally {
+            slotLocks.unlockAll(locks);
+        }
+        return bookings;
+    }
+
+    private void checkAvailable(List<Booking> bookings) {
+        if (bookings.size() == 1) {
+            Booking b = bookings.get(0);
+            if (availabilityIndex.isBooked(b.getCourt().getId(), b.getDate(), b.getSlot())) {
+                throw new SlotConflictException(conflictMessage(b));
+            }
+            return;
+        }
+
+        // One range query over the (court_id, date, start_minute) index covers the whole batch
+        Range range = Range.of(bookings);
+        List<BookedSlot> taken = bookingRepo.findBookedSlots(range.courtIds(), range.dates(), range.start(), range.end());
+        Booking conflict = firstOverlapping(bookings, taken);
+        if (conflict != null) {
+            throw new SlotConflictException(conflictMessage(conflict));
+        }
+    }
+
+    // The in-memory hold marks can be stale or miss holds placed on other nodes, so the table decides
+    private void checkNotHeld(List<Booking> bookings, String holdId) {
+        Range range = Range.of(bookings);
+        List<BookedSlot> held = holdRepo.findActiveSlotsOfOthers(range.courtIds(), range.dates(), range.start(),
+                range.end(), LocalDateTime.now(), holdId == null ? "" : holdId);
+        if (firstOverlapping(bookings, held) != null) {
+            throw new SlotConflictException("Slot is on hold for another payment");
+        }
+    }
+
+    private static Booking firstOverlapping(List<Booking> bookings, List<BookedSlot> taken) {
+        for (Booking b : bookings) {
+            for (BookedSlot slot : taken) {
+                if (slot.overlaps(b.getCourt().getId(), b.getDate(), b.getSlot())) {
+                    return b;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Courts, dates and minute range covering a batch: a superset query, filtered by firstOverlapping
+    private record Range(Set<Long> courtIds, Set<LocalDate> dates, int start, int end) {
+        static Range of(List<Booking> bookings) {
+            Set<Long> courtIds = new HashSet<>();
+            Set<LocalDate> dates = new HashSet<>();
+            int start = TimeSlot.MINUTES_PER_DAY;
+            int end = 0;
+            for (Booking b : bookings) {
+                courtIds.add(b.getCourt().getId());
+                dates.add(b.getDate());
+                start = Math.min(start, b.getStartMinute());
+                end = Math.max(end, b.getStartMinute() + b.getDurationMinutes());
+            }
+            return new Range(courtIds, dates, start, end);
+        }
+    }
+
+    private String conflictMessage(Booking b) {
+        return b.isPermanent() ? "Slot already booked on week " + b.getWeekNumber() : "Slot already booked";
+    }
+}
@@ -0,0 +1,396 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.BookedRange;
+import com.omnitrix.gearup.model.BookedSlot;
+import com.omnitrix.gearup.model.Booking;
+import com.omnitrix.gearup.model.BulkBookingRequest;
+import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.CourtRepository;
+import com.omnitrix.gearup.repository.SlotHoldRepository;
+import com.omnitrix.gearup.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Admin batches of creates, cancels and reschedules. Every item is checked first: its shape, the
+// rows it refers to, the court's grid, and then availability, with one range query for the
+// bookings and one for the holds across the whole batch. Slots freed by cancels and moves in the
+// same batch count as free, and the batch's own targets are claimed in item order. What passes is
+// applied in one transaction: one statement for the cancels, one JDBC batch for the moves and one
+// for the creates, with the rollups kept in step. The result has one entry per item, in order.
+// In an atomic batch a single failed item means nothing is applied. The batch holds the slot
+// stripes it touches until it has committed, so it may touch at most an eighth of them; the rest
+// stay free for regular reservations, and a larger batch is turned away to be split.
+@Service
+public class BulkBookings {
+
+    public static final String OK = "OK";
+    public static final String INVALID = "INVALID";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String CONFLICT = "CONFLICT";
+    public static final String NOT_APPLIED = "NOT_APPLIED"; // valid, but its atomic batch was not applied
+
+    private static final String CREATE = "CREATE";
+    private static final String CANCEL = "CANCEL";
+    private static final String RESCHEDULE = "RESCHEDULE";
+
+    private final BookingRepository bookingRepo;
+    private final CourtRepository courtRepo;
+    private final UserRepository userRepo;
+    private final SlotHoldRepository holdRepo;
+    private final AvailabilityIndex availabilityIndex;
+    private final SlotLocks slotLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxItems;
+    private final int maxStripes;
+
+    public BulkBookings(BookingRepository bookingRepo, CourtRepository courtRepo, UserRepository userRepo,
+                        SlotHoldRepository holdRepo, AvailabilityIndex availabilityIndex, SlotLocks slotLocks,
+                        TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                        @Value("${gearup.admin.bulk-max-items:500}") int maxItems) {
+        this.bookingRepo = bookingRepo;
+        this.courtRepo = courtRepo;
+        this.userRepo = userRepo;
+        this.holdRepo = holdRepo;
+        this.availabilityIndex = availabilityIndex;
+        this.slotLocks = slotLocks;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxItems = maxItems;
+        this.maxStripes = Math.max(1, slotLocks.stripeCount() / 8);
+    }
+
+    public record ItemResult(int index, String op, String status, Long bookingId, String message) {
+    }
+
+    public record Outcome(boolean applied, int succeeded, int failed, List<ItemResult> items) {
+    }
+
+    // One item of the batch as it is checked and applied
+    private static final class Plan {
+        final int index;
+        final String op;
+        Booking booking;      // loaded for CANCEL and RESCHEDULE, new for CREATE
+        Long courtId;         // target, for CREATE and RESCHEDULE
+        Court court;
+        LocalDate date;
+        TimeSlot slot;
+        String status;
+        String message;
+
+        Plan(int index, String op) {
+            this.index = index;
+            this.op = op;
+        }
+
+        boolean ok() {
+            return status == null;
+        }
+
+        boolean claims() {
+            return !CANCEL.equals(op);
+        }
+
+        void fail(String status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+    }
+
+    // Throws IllegalArgumentException for an empty or oversized batch or one touching too many
+    // stripes, and SlotConflictException when a slot is taken by another node, or a booking to move
+    // is cancelled, between the checks and the commit, in which case nothing is applied
+    public Outcome apply(BulkBookingRequest request) {
+        List<BulkBookingRequest.Item> items = request.getItems();
+        if (items == null || items.isEmpty() || items.size() > maxItems) {
+            throw new IllegalArgumentException("A batch must have 1 to " + maxItems + " items");
+        }
+        List<Plan> plans = check(items);
+        int[] stripes = stripes(plans);
+        if (stripes.length > maxStripes) {
+            throw new IllegalArgumentException("A batch may lock at most " + maxStripes + " slots at once, this one"
+                    + " needs " + stripes.length + "; split it");
+        }
+
+        List<Lock> locks = slotLocks.lockAll(stripes);
+        try {
+            checkAvailable(plans);
+            List<Plan> valid = plans.stream().filter(Plan::ok).toList();
+            boolean apply = !valid.isEmpty() && (!request.isAtomic() || valid.size() == plans.size());
+            if (apply) {
+                applyValid(valid);
+            } else {
+                valid.forEach(p -> p.fail(NOT_APPLIED, "Another item of the atomic batch failed"));
+            }
+        } finally {
+            slotLocks.unlockAll(locks);
+        }
+
+        List<ItemResult> results = new ArrayList<>(plans.size());
+        int succeeded = 0;
+        for (Plan p : plans) {
+            String status = p.ok() ? OK : p.status;
+            if (p.ok()) {
+                succeeded++;
+            }
+            results.add(new ItemResult(p.index, p.op, status, p.booking == null ? null : p.booking.getId(), p.message));
+            meterRegistry.counter("gearup.admin.bulk.items", "op", String.valueOf(p.op), "status", status).increment();
+        }
+        return new Outcome(succeeded > 0, succeeded, plans.size() - succeeded, results);
+    }
+
+    // Shape, referenced rows and the court grid, with one query per table for the whole batch
+    private List<Plan> check(List<BulkBookingRequest.Item> items) {
+        Set<Long> bookingIds = new HashSet<>();
+        Set<Long> courtIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (BulkBookingRequest.Item item : items) {
+            if (item == null) {
+                continue;
+            }
+            if (item.getBookingId() != null) {
+                bookingIds.add(item.getBookingId());
+            }
+            if (item.getCourtId() != null) {
+                courtIds.add(item.getCourtId());
+            }
+            if (item.getUserId() != null) {
+                userIds.add(item.getUserId());
+            }
+        }
+        Map<Long, Booking> bookings = byId(bookingRepo.findAllById(bookingIds), Booking::getId);
+        Map<Long, Court> courts = byId(courtRepo.findAllById(courtIds), Court::getId);
+        Map<Long, User> users = byId(userRepo.findAllById(userIds), User::getId);
+
+        List<Plan> plans = new ArrayList<>(items.size());
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            BulkBookingRequest.Item item = items.get(i);
+            String op = item == null || item.getOp() == null ? null : item.getOp().toUpperCase(Locale.ROOT);
+            Plan p = new Plan(i, op);
+            plans.add(p);
+            if (!CREATE.equals(op) && !CANCEL.equals(op) && !RESCHEDULE.equals(op)) {
+                p.fail(INVALID, "op must be CREATE, CANCEL or RESCHEDULE");
+                continue;
+            }
+
+            if (CREATE.equals(op)) {
+                if (item.getUserId() == null || item.getCourtId() == null || item.getDate() == null
+                        || item.getTimeSlot() == null) {
+                    p.fail(INVALID, "userId, courtId, date and timeSlot are required");
+                    continue;
+                }
+                User user = users.get(item.getUserId());
+                if (user == null) {
+                    p.fail(NOT_FOUND, "User not found");
+                    continue;
+                }
+                p.booking = new Booking();
+                p.booking.setUser(user);
+            } else {
+                if (item.getBookingId() == null) {
+                    p.fail(INVALID, "bookingId is required");
+                    continue;
+                }
+                p.booking = bookings.get(item.getBookingId());
+                if (p.booking == null) {
+                    p.fail(NOT_FOUND, "Booking not found");
+                    continue;
+                }
+                if (!seen.add(item.getBookingId())) {
+                    p.fail(INVALID, "Booking is already part of an earlier item");
+                    continue;
+                }
+                if (p.booking.isCancelled()) {
+                    p.fail(INVALID, "Booking is already cancelled");
+                    continue;
+                }
+                if (CANCEL.equals(op)) {
+                    continue;
+                }
+                if (item.getDate() == null || item.getTimeSlot() == null) {
+                    p.fail(INVALID, "date and timeSlot are required");
+                    continue;
+                }
+            }
+
+            p.courtId = item.getCourtId() != null ? item.getCourtId() : p.booking.getCourt().getId();
+            p.court = item.getCourtId() != null ? courts.get(item.getCourtId()) : p.booking.getCourt();
+            if (p.court == null) {
+                p.fail(NOT_FOUND, "Court not found");
+                continue;
+            }
+            p.date = item.getDate();
+            try {
+                p.slot = TimeSlot.parse(item.getTimeSlot());
+                TimeSlots.checkOnGrid(p.slot, availabilityIndex.gridOf(p.courtId));
+            } catch (IllegalArgumentException e) {
+                p.fail(INVALID, e.getMessage());
+                continue;
+            }
+            if (RESCHEDULE.equals(op) && p.courtId.equals(p.booking.getCourt().getId())
+                    && p.date.equals(p.booking.getDate()) && p.slot.equals(p.booking.getSlot())) {
+                p.fail(INVALID, "Booking is already in that slot");
+            }
+        }
+        return plans;
+    }
+
+    // Distinct stripes of every slot the batch takes or frees
+    private int[] stripes(List<Plan> plans) {
+        List<Integer> stripes = new ArrayList<>();
+        for (Plan p : plans) {
+            if (!p.ok()) {
+                continue;
+            }
+            if (p.claims()) {
+                stripes.add(slotLocks.stripeOf(p.courtId, p.date, p.slot.startMinute()));
+            }
+            if (!CREATE.equals(p.op)) {
+                Booking b = p.booking;
+                stripes.add(slotLocks.stripeOf(b.getCourt().getId(), b.getDate(), b.getStartMinute()));
+            }
+        }
+        return stripes.stream().mapToInt(Integer::intValue).distinct().toArray();
+    }
+
+    // Targets against the active bookings and holds in their range, less the bookings this batch
+    // cancels or moves, then against the targets of earlier items
+    private void checkAvailable(List<Plan> plans) {
+        List<Plan> targets = plans.stream().filter(p -> p.ok() && p.claims()).toList();
+        if (targets.isEmpty()) {
+            return;
+        }
+        Set<Long> courtIds = new HashSet<>();
+        Set<LocalDate> dates = new HashSet<>();
+        int start = TimeSlot.MINUTES_PER_DAY;
+        int end = 0;
+        for (Plan p : targets) {
+            courtIds.add(p.courtId);
+            dates.add(p.date);
+            start = Math.min(start, p.slot.startMinute());
+            end = Math.max(end, p.slot.endMinute());
+        }
+        Set<Long> freed = plans.stream().filter(p -> p.ok() && !CREATE.equals(p.op))
+                .map(p -> p.booking.getId()).collect(Collectors.toSet());
+        List<BookedRange> taken = bookingRepo.findActiveRanges(courtIds, dates, start, end).stream()
+                .filter(r -> !freed.contains(r.bookingId())).toList();
+        List<BookedSlot> held = holdRepo.findActiveSlotsOfOthers(courtIds, dates, start, end, LocalDateTime.now(), "");
+
+        List<Plan> claimed = new ArrayList<>();
+        for (Plan p : targets) {
+            if (taken.stream().anyMatch(r -> r.overlaps(p.courtId, p.date, p.slot))) {
+                p.fail(CONFLICT, "Slot already booked");
+            } else if (held.stream().anyMatch(h -> h.overlaps(p.courtId, p.date, p.slot))) {
+                p.fail(CONFLICT, "Slot is on hold for another payment");
+            } else if (claimed.stream().anyMatch(c -> c.courtId.equals(p.courtId) && c.date.equals(p.date)
+                    && c.slot.overlaps(p.slot.startMinute(), p.slot.durationMinutes()))) {
+                p.fail(CONFLICT, "Slot is taken by an earlier item");
+            } else {
+                claimed.add(p);
+            }
+        }
+    }
+
+    private void applyValid(List<Plan> valid) {
+        List<Long> cancelIds = new ArrayList<>();
+        List<Plan> moves = new ArrayList<>();
+        List<Booking> creates = new ArrayList<>();
+        for (Plan p : valid) {
+            switch (p.op) {
+                case CANCEL -> cancelIds.add(p.booking.getId());
+                case RESCHEDULE -> moves.add(p);
+                default -> {
+                    p.booking.setCourt(p.court);
+                    p.booking.setDate(p.date);
+                    p.booking.setSlot(p.slot);
+                    p.booking.setStatus("CONFIRMED");
+                    p.booking.setWeekNumber(1);
+                    creates.add(p.booking);
+                }
+            }
+        }
+        // Where moved bookings were, for the availability index once committed
+        Map<Long, BookedSlot> movedFrom = new HashMap<>();
+        moves.forEach(p -> movedFrom.put(p.booking.getId(), new BookedSlot(p.booking.getCourt().getId(),
+                p.booking.getDate(), p.booking.getStartMinute(), p.booking.getDurationMinutes())));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!cancelIds.isEmpty()) {
+                    bookingRepo.cancelByIds(cancelIds);
+                }
+                if (!moves.isEmpty()) {
+                    List<Long> moveIds = moves.stream().map(p -> p.booking.getId()).toList();
+                    // Managed copies, so the moves go out as batched updates on flush
+                    Map<Long, Booking> managed = byId(bookingRepo.findAllById(moveIds), Booking::getId);
+                    // The unpaid canceller takes no slot locks, so a booking checked above may have
+                    // been cancelled since; moving it would bring it back active
+                    if (bookingRepo.parkForMove(moveIds) != moveIds.size()) {
+                        throw new SlotConflictException(
+                                "A booking in the batch was cancelled meanwhile; nothing was applied");
+                    }
+                    bookingRepo.rollUpMoved(moveIds, -1);
+                    for (Plan p : moves) {
+                        Booking b = managed.get(p.booking.getId());
+                        b.setCourt(p.court);
+                        b.setDate(p.date);
+                        b.setSlot(p.slot);
+                        b.setCancelled(false);
+                        p.booking = b;
+                    }
+                }
+                bookingRepo.saveAll(creates);
+                bookingRepo.flush();
+                if (!moves.isEmpty()) {
+                    bookingRepo.rollUpMoved(moves.stream().map(p -> p.booking.getId()).toList(), 1);
+                }
+                if (!creates.isEmpty()) {
+                    bookingRepo.rollUpBooked(creates.stream().map(Booking::getId).toList());
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!SlotConflictException.isSlotTaken(e)) {
+                throw e;
+            }
+            throw new SlotConflictException("A slot in the batch was booked meanwhile; nothing was applied");
+        }
+
+        for (Plan p : valid) {
+            if (CANCEL.equals(p.op)) {
+                availabilityIndex.markFree(p.booking);
+            } else if (RESCHEDULE.equals(p.op)) {
+                BookedSlot from = movedFrom.get(p.booking.getId());
+                availabilityIndex.markFree(from.courtId(), from.date(),
+                        new TimeSlot(from.startMinute(), from.durationMinutes()));
+            }
+        }
+        valid.stream().filter(Plan::claims).forEach(p -> availabilityIndex.markBooked(p.booking));
+    }
+
+    private static <T> Map<Long, T> byId(Iterable<T> rows, Function<T, Long> id) {
+        Map<Long, T> byId = new HashMap<>();
+        rows.forEach(row -> byId.put(Objects.requireNonNull(id.apply(row)), row));
+        return byId;
+    }
+}
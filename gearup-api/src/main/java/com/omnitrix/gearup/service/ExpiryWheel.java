@@ -0,0 +1,92 @@
+package com.omnitrix.gearup.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Hashed timer wheel: a ring of buckets, one per tick. A key due in n ticks goes into bucket
+// (now + n) mod size with n / size rounds left to wait, so adding is O(1) and each tick only looks
+// at one bucket. Keys cannot be cancelled; the callback is expected to check whether the key is
+// still live, which keeps removal free for the common case (a hold converted before it expires).
+@Slf4j
+public class ExpiryWheel<K> {
+
+    private final ArrayDeque<Entry<K>>[] buckets;
+    private final long tickNanos;
+    private final long startNanos;
+    private final Consumer<K> onExpire;
+    private final ScheduledExecutorService ticker;
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public ExpiryWheel(int size, long tickMillis, String threadName, Consumer<K> onExpire) {
+        this.buckets = new ArrayDeque[Integer.highestOneBit(Math.max(size, 2) * 2 - 1)];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.startNanos = System.nanoTime();
+        this.onExpire = onExpire;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void schedule(K key, long delayMillis) {
+        // Rounded up so a key never fires before its delay is over
+        long dueNanos = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0));
+        long due = (dueNanos + tickNanos - 1) / tickNanos;
+        synchronized (this) {
+            long ticks = Math.max(due - tick, 1);
+            long target = tick + ticks;
+            buckets[(int) (target & (buckets.length - 1))].add(new Entry<>(key, (ticks - 1) / buckets.length));
+        }
+    }
+
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    private void advance() {
+        ArrayDeque<K> due = new ArrayDeque<>();
+        synchronized (this) {
+            tick++;
+            Iterator<Entry<K>> it = buckets[(int) (tick & (buckets.length - 1))].iterator();
+            while (it.hasNext()) {
+                Entry<K> entry = it.next();
+                if (entry.rounds == 0) {
+                    due.add(entry.key);
+                    it.remove();
+                } else {
+                    entry.rounds--;
+                }
+            }
+        }
+        for (K key : due) {
+            try {
+                onExpire.accept(key);
+            } catch (RuntimeException e) {
+                // keep ticking; retrying is up to the owner
+                log.warn("Expiry of {} failed", key, e);
+            }
+        }
+    }
+
+    private static final class Entry<K> {
+        final K key;
+        long rounds;
+
+        Entry(K key, long rounds) {
+            this.key = key;
+            this.rounds = rounds;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.omnitrix.gearup.service;
+
+// The user already has as many live slot holds as gearup.holds.max-per-user allows
+public class HoldLimitException extends RuntimeException {
+    public HoldLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,168 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.CourtView;
+import com.omnitrix.gearup.model.OccupancyReport;
+import com.omnitrix.gearup.model.ReportRow;
+import com.omnitrix.gearup.model.RollupTotals;
+import com.omnitrix.gearup.repository.BookingRollupRepository;
+import com.omnitrix.gearup.repository.CourtRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// Occupancy and revenue reports read from booking_rollups only, so a report costs one grouped scan
+// of (courts x days x hours) rows whatever the number of bookings behind them. Weeks, months and
+// weekdays are folded from the day rows here. Capacity is the courts in scope times their opening
+// hours, which are the same for every court.
+@Service
+public class OccupancyReports {
+
+    public static final List<String> GROUPINGS = List.of("day", "week", "month", "weekday", "hour", "court", "venue");
+
+    private final BookingRollupRepository rollupRepo;
+    private final CourtRepository courtRepo;
+    private final int openingHour;
+    private final int closingHour;
+    private final int maxDays;
+
+    public OccupancyReports(BookingRollupRepository rollupRepo, CourtRepository courtRepo,
+                            @Value("${gearup.reports.opening-hour:6}") int openingHour,
+                            @Value("${gearup.reports.closing-hour:24}") int closingHour,
+                            @Value("${gearup.reports.max-days:1096}") int maxDays) {
+        this.rollupRepo = rollupRepo;
+        this.courtRepo = courtRepo;
+        this.openingHour = openingHour;
+        this.closingHour = closingHour;
+        this.maxDays = maxDays;
+    }
+
+    // Throws IllegalArgumentException for an unknown grouping or a range outside 1..max-days
+    public OccupancyReport report(LocalDate from, LocalDate to, Long venueId, Long courtId, String by) {
+        if (!GROUPINGS.contains(by)) {
+            throw new IllegalArgumentException("by must be one of " + String.join(", ", GROUPINGS));
+        }
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days < 1 || days > maxDays) {
+            throw new IllegalArgumentException("Date range must cover 1 to " + maxDays + " days");
+        }
+
+        List<CourtView> courts = courtRepo.findAllViews().stream()
+                .filter(c -> venueId == null || venueId.equals(c.venueId()))
+                .filter(c -> courtId == null || courtId.equals(c.id()))
+                .toList();
+        long dayMinutes = (closingHour - openingHour) * 60L;
+
+        List<ReportRow> rows = switch (by) {
+            case "day" -> {
+                Map<String, RollupTotals> byDay = index(rollupRepo.totalsByDay(from, to, venueId, courtId));
+                List<ReportRow> out = new ArrayList<>();
+                for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                    String key = date.toString();
+                    out.add(row(key, key, byDay.get(key), courts.size() * dayMinutes));
+                }
+                yield out;
+            }
+            case "week" -> fold(from, to, venueId, courtId, courts.size() * dayMinutes, List.of(),
+                    date -> date.get(IsoFields.WEEK_BASED_YEAR) + "-W" + String.format("%02d", date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR)));
+            case "month" -> fold(from, to, venueId, courtId, courts.size() * dayMinutes, List.of(),
+                    date -> date.getYear() + "-" + String.format("%02d", date.getMonthValue()));
+            // Monday first, not from the range's first day
+            case "weekday" -> fold(from, to, venueId, courtId, courts.size() * dayMinutes,
+                    Arrays.stream(DayOfWeek.values()).map(DayOfWeek::toString).toList(),
+                    date -> date.getDayOfWeek().toString());
+            case "hour" -> {
+                Map<String, RollupTotals> byHour = index(rollupRepo.totalsByHour(from, to, venueId, courtId));
+                List<ReportRow> out = new ArrayList<>();
+                for (int hour = 0; hour < 24; hour++) {
+                    String key = String.valueOf(hour);
+                    long open = hour >= openingHour && hour < closingHour ? courts.size() * days * 60 : 0;
+                    out.add(row(key, String.format("%02d:00", hour), byHour.get(key), open));
+                }
+                yield out;
+            }
+            case "court" -> rollupRepo.totalsByCourt(from, to, venueId, courtId).stream()
+                    .map(t -> row(t.key(), t.label(), t, days * dayMinutes))
+                    .toList();
+            default -> {
+                Map<Long, Long> courtsPerVenue = new HashMap<>();
+                courts.forEach(c -> courtsPerVenue.merge(c.venueId(), 1L, Long::sum));
+                yield rollupRepo.totalsByVenue(from, to, venueId, courtId).stream()
+                        .map(t -> row(t.key(), t.label(), t,
+                                courtsPerVenue.getOrDefault(Long.valueOf(t.key()), 0L) * days * dayMinutes))
+                        .toList();
+            }
+        };
+
+        ReportRow total = new ReportRow("total", "Total", sum(rows, ReportRow::bookings), sum(rows, ReportRow::cancellations),
+                sum(rows, ReportRow::bookedMinutes), courts.size() * days * dayMinutes, null,
+                sum(rows, ReportRow::payments),
+                rows.stream().map(ReportRow::revenue).reduce(BigDecimal.ZERO, BigDecimal::add));
+        total = withOccupancy(total);
+        return new OccupancyReport(from, to, venueId, courtId, by, total, rows);
+    }
+
+    // Day rows summed into the groups keyed by the given function, listed in the order of the
+    // seed keys and then of first appearance; each group's capacity counts the days of the range
+    // that fall into it
+    private List<ReportRow> fold(LocalDate from, LocalDate to, Long venueId, Long courtId, long capacityPerDay,
+                                 List<String> seed, Function<LocalDate, String> group) {
+        Map<String, RollupTotals> byDay = index(rollupRepo.totalsByDay(from, to, venueId, courtId));
+        Map<String, ReportRow> groups = new LinkedHashMap<>();
+        seed.forEach(key -> groups.put(key, row(key, key, null, 0)));
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            String key = group.apply(date);
+            ReportRow day = row(key, key, byDay.get(date.toString()), capacityPerDay);
+            groups.merge(key, day, OccupancyReports::add);
+        }
+        return groups.values().stream().map(OccupancyReports::withOccupancy).toList();
+    }
+
+    private static Map<String, RollupTotals> index(List<RollupTotals> totals) {
+        Map<String, RollupTotals> byKey = new HashMap<>();
+        totals.forEach(t -> byKey.put(t.key(), t));
+        return byKey;
+    }
+
+    private static ReportRow row(String key, String label, RollupTotals t, long capacityMinutes) {
+        ReportRow row = t == null
+                ? new ReportRow(key, label, 0, 0, 0, capacityMinutes, null, 0, BigDecimal.ZERO)
+                : new ReportRow(key, label, value(t.bookings()), value(t.cancellations()), value(t.bookedMinutes()),
+                capacityMinutes, null, value(t.payments()), Objects.requireNonNullElse(t.revenue(), BigDecimal.ZERO));
+        return withOccupancy(row);
+    }
+
+    private static ReportRow add(ReportRow a, ReportRow b) {
+        return new ReportRow(a.key(), a.label(), a.bookings() + b.bookings(), a.cancellations() + b.cancellations(),
+                a.bookedMinutes() + b.bookedMinutes(), a.capacityMinutes() + b.capacityMinutes(), null,
+                a.payments() + b.payments(), a.revenue().add(b.revenue()));
+    }
+
+    private static ReportRow withOccupancy(ReportRow r) {
+        Double occupancy = r.capacityMinutes() == 0 ? null
+                : Math.round(10000.0 * r.bookedMinutes() / r.capacityMinutes()) / 10000.0;
+        return new ReportRow(r.key(), r.label(), r.bookings(), r.cancellations(), r.bookedMinutes(),
+                r.capacityMinutes(), occupancy, r.payments(), r.revenue());
+    }
+
+    private static long sum(List<ReportRow> rows, ToLongFunction<ReportRow> field) {
+        return rows.stream().mapToLong(field).sum();
+    }
+
+    private static long value(Long sum) {
+        return sum == null ? 0 : sum;
+    }
+}
@@ -0,0 +1,107 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.CacheRegionStats;
+import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.Futsal;
+import com.omnitrix.gearup.repository.FutsalRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Venue and court entities and their listing queries live in Hibernate's second-level cache
+// (regions in ehcache.xml). Writes through JPA keep it current on their own; admin writes still
+// evict everything so a venue edit is never served stale next to a cached court list, and move
+// the catalog version that venue and court listings use as their ETag. The version is a database
+// row shared by every instance, read at most once per version-ttl; an instance that finds it
+// moved by another evicts its own cache too, so no instance serves a changed catalog, or answers
+// 304 for one, for longer than that. Only one caller reads it at a time; the others keep answering
+// with the version they have instead of waiting for the query.
+@Service
+public class ReferenceDataCache {
+
+    public static final String QUERY_REGION = "reference-queries";
+    private static final List<String> REGIONS = List.of("venues", "courts", QUERY_REGION);
+
+    private final SessionFactory sessionFactory;
+    private final FutsalRepository venueRepo;
+    private final long versionTtlNanos;
+    // Not a monitor: it is held across the query, and virtual threads blocked on a monitor pin
+    // their carrier
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile long catalogVersion = -1;
+    private volatile long checkedAt;
+
+    public ReferenceDataCache(EntityManagerFactory entityManagerFactory, FutsalRepository venueRepo,
+                              @Value("${gearup.reference.version-ttl:5s}") Duration versionTtl) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.venueRepo = venueRepo;
+        this.versionTtlNanos = versionTtl.toNanos();
+    }
+
+    public void evict() {
+        evictLocal();
+        venueRepo.bumpCatalogVersion(); // after evicting, so a new tag is never paired with evicted data
+        refresh(true);
+    }
+
+    // Strong ETag for venue and court listings; changes on every admin write on any instance
+    public String catalogEtag() {
+        if (catalogVersion < 0 || System.nanoTime() - checkedAt >= versionTtlNanos) {
+            refresh(false);
+        }
+        return "\"catalog-" + catalogVersion + "\"";
+    }
+
+    // Writers and the first read wait for the lock; a poll that finds a read in progress returns and
+    // serves the version already known
+    private void refresh(boolean force) {
+        if (force || catalogVersion < 0) {
+            refreshLock.lock();
+        } else if (!refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            if (!force && catalogVersion >= 0 && System.nanoTime() - checkedAt < versionTtlNanos) {
+                return; // another thread just read it
+            }
+            long current = venueRepo.findCatalogVersion();
+            if (catalogVersion >= 0 && current != catalogVersion && !force) {
+                evictLocal(); // changed by another instance
+            }
+            catalogVersion = current;
+            checkedAt = System.nanoTime();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void evictLocal() {
+        sessionFactory.getCache().evictEntityData(Futsal.class);
+        sessionFactory.getCache().evictEntityData(Court.class);
+        sessionFactory.getCache().evictQueryRegion(QUERY_REGION);
+    }
+
+    public List<CacheRegionStats> stats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        List<CacheRegionStats> result = new ArrayList<>(REGIONS.size() + 1);
+        for (String region : REGIONS) {
+            CacheRegionStatistics s = statistics.getCacheRegionStatistics(region);
+            result.add(s == null
+                    ? CacheRegionStats.of(region, 0, 0, 0, 0)
+                    : CacheRegionStats.of(region, s.getHitCount(), s.getMissCount(), s.getPutCount(),
+                            Math.max(s.getElementCountInMemory(), 0)));
+        }
+        // All cacheable queries together, including misses caused by invalidation
+        result.add(CacheRegionStats.of("all-queries", statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount(), 0));
+        return result;
+    }
+}
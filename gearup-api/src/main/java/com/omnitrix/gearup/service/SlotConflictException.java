@@ -0,0 +1,22 @@
+package com.omnitrix.gearup.service;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+public class SlotConflictException extends RuntimeException {
+    public SlotConflictException(String message) {
+        super(message);
+    }
+
+    // Only a unique (23505) or exclusion (23P01) violation means another writer took the slot; any
+    // other integrity error, such as a missing court or user, is a real failure and propagates
+    static boolean isSlotTaken(DataIntegrityViolationException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql && sql.getSQLState() != null) {
+                return "23505".equals(sql.getSQLState()) || "23P01".equals(sql.getSQLState());
+            }
+        }
+        return false;
+    }
+}
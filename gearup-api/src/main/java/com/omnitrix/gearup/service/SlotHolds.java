@@ -0,0 +1,219 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.BookedSlot;
+import com.omnitrix.gearup.model.SlotHold;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.SlotHoldRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+// Time-limited holds on slots between prepare/initiate and the PayHere notification. Holds are
+// written to slot_holds, whose unique index keeps two nodes from holding the same slot, and kept
+// in memory with an expiry wheel so they disappear on time without polling the table. Holds still
+// live at startup are reloaded, including ones placed by other nodes. Held slots count as taken,
+// so a user may only have max-per-user holds live at once.
+@Slf4j
+@Service
+public class SlotHolds {
+
+    public record Hold(String id, Long userId, Long courtId, TimeSlot slot, List<LocalDate> dates,
+                       LocalDateTime expiresAt) {
+    }
+
+    private final SlotHoldRepository holdRepo;
+    private final BookingRepository bookingRepo;
+    private final AvailabilityIndex availabilityIndex;
+    private final SlotLocks slotLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final int maxPerUser;
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    private final ExpiryWheel<String> wheel;
+
+    public SlotHolds(SlotHoldRepository holdRepo, BookingRepository bookingRepo, AvailabilityIndex availabilityIndex,
+                     SlotLocks slotLocks,
+                     TransactionTemplate transactionTemplate,
+                     @Value("${gearup.holds.ttl:10m}") Duration ttl,
+                     @Value("${gearup.holds.max-per-user:3}") int maxPerUser,
+                     @Value("${gearup.holds.wheel-size:512}") int wheelSize,
+                     @Value("${gearup.holds.tick:1s}") Duration tick) {
+        this.holdRepo = holdRepo;
+        this.bookingRepo = bookingRepo;
+        this.availabilityIndex = availabilityIndex;
+        this.slotLocks = slotLocks;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = ttl;
+        this.maxPerUser = maxPerUser;
+        this.wheel = new ExpiryWheel<>(wheelSize, tick.toMillis(), "slot-hold-expiry", this::expire);
+    }
+
+    @PostConstruct
+    void reload() {
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> holdRepo.deleteExpired(now));
+        Map<String, List<SlotHold>> rows = new HashMap<>();
+        for (SlotHold row : holdRepo.findByExpiresAtAfter(now)) {
+            rows.computeIfAbsent(row.getHoldId(), id -> new ArrayList<>()).add(row);
+        }
+        rows.values().forEach(this::track);
+        if (!rows.isEmpty()) {
+            log.info("Reloaded {} slot holds", rows.size());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        wheel.stop();
+    }
+
+    // Holds the slot on every date for the TTL. Throws SlotConflictException when a date is booked
+    // or held by someone else, IllegalArgumentException when the slot is off the court's grid, and
+    // HoldLimitException when the user already has max-per-user live holds.
+    public Hold place(Long userId, Long courtId, List<LocalDate> dates, TimeSlot slot) {
+        TimeSlots.checkOnGrid(slot, availabilityIndex.gridOf(courtId));
+        int[] stripes = new int[dates.size()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = slotLocks.stripeOf(courtId, dates.get(i), slot.startMinute());
+        }
+
+        List<Lock> locks = slotLocks.lockAll(stripes);
+        try {
+            // The index answers most conflicts without a query; bookings made on other nodes since it
+            // loaded the day are checked in the table below. Other holds are caught by the unique index.
+            for (LocalDate date : dates) {
+                if (availabilityIndex.isBooked(courtId, date, slot)) {
+                    throw bookedOn(date, dates);
+                }
+            }
+
+            String id = UUID.randomUUID().toString();
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = now.plus(ttl).truncatedTo(ChronoUnit.MICROS);
+            List<SlotHold> rows = new ArrayList<>(dates.size());
+            for (LocalDate date : dates) {
+                rows.add(new SlotHold(null, id, userId, courtId, date, slot.startMinute(), slot.durationMinutes(),
+                        expiresAt, now));
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    holdRepo.lockUser(userId);
+                    if (holdRepo.countLiveHolds(userId, now) >= maxPerUser) {
+                        throw new HoldLimitException("You already have " + maxPerUser
+                                + " slots on hold; pay for or let one expire first");
+                    }
+                    checkNotBooked(courtId, dates, slot);
+                    holdRepo.deleteExpiredOn(courtId, dates, slot.startMinute(), now);
+                    holdRepo.saveAll(rows);
+                    holdRepo.flush();
+                });
+            } catch (DataIntegrityViolationException e) {
+                throw new SlotConflictException("Slot is on hold for another payment");
+            }
+            return track(rows);
+        } finally {
+            slotLocks.unlockAll(locks);
+        }
+    }
+
+    private void checkNotBooked(Long courtId, List<LocalDate> dates, TimeSlot slot) {
+        List<BookedSlot> booked = bookingRepo.findBookedSlots(List.of(courtId), dates, slot.startMinute(),
+                slot.startMinute() + slot.durationMinutes());
+        for (LocalDate date : dates) {
+            if (booked.stream().anyMatch(b -> b.overlaps(courtId, date, slot))) {
+                throw bookedOn(date, dates);
+            }
+        }
+    }
+
+    private static SlotConflictException bookedOn(LocalDate date, List<LocalDate> dates) {
+        return new SlotConflictException("Slot already booked" + (dates.size() > 1 ? " on " + date : ""));
+    }
+
+    // A live hold of the user's; holds placed on another node are picked up from the table
+    public Optional<Hold> find(String holdId, Long userId) {
+        Hold hold = holds.get(holdId);
+        if (hold == null) {
+            List<SlotHold> rows = holdRepo.findByHoldId(holdId);
+            hold = rows.isEmpty() ? null : track(rows);
+        }
+        return hold != null && hold.userId().equals(userId) && hold.expiresAt().isAfter(LocalDateTime.now())
+                ? Optional.of(hold) : Optional.empty();
+    }
+
+    // Dates the hold still has rows for, whether or not it has expired; 0 once it is gone
+    public int heldDates(String holdId) {
+        return holdRepo.findByHoldId(holdId).size();
+    }
+
+    // For use inside the booking transaction that consumes the hold
+    public void deleteRows(String holdId) {
+        holdRepo.deleteByHoldId(holdId);
+    }
+
+    // After the hold's bookings committed, or when its payment failed
+    public void release(String holdId) {
+        Hold hold = holds.remove(holdId);
+        transactionTemplate.executeWithoutResult(status -> holdRepo.deleteByHoldId(holdId));
+        if (hold != null) {
+            hold.dates().forEach(date -> availabilityIndex.markReleased(hold.courtId(), date, hold.slot()));
+        }
+    }
+
+    // The dates a permanent booking of this many weeks covers
+    public static List<LocalDate> weekly(LocalDate start, int weeks) {
+        List<LocalDate> dates = new ArrayList<>(weeks);
+        for (int i = 0; i < weeks; i++) {
+            dates.add(start.plusWeeks(i));
+        }
+        return dates;
+    }
+
+    public int activeCount() {
+        return holds.size();
+    }
+
+    private Hold track(List<SlotHold> rows) {
+        SlotHold first = rows.get(0);
+        TimeSlot slot = new TimeSlot(first.getStartMinute(), first.getDurationMinutes());
+        List<LocalDate> dates = rows.stream().map(SlotHold::getDate).toList();
+        Hold hold = new Hold(first.getHoldId(), first.getUserId(), first.getCourtId(), slot, dates, first.getExpiresAt());
+        holds.put(hold.id(), hold);
+        dates.forEach(date -> availabilityIndex.markHeld(hold.courtId(), date, slot));
+        wheel.schedule(hold.id(), Duration.between(LocalDateTime.now(), hold.expiresAt()).toMillis());
+        return hold;
+    }
+
+    private void expire(String holdId) {
+        Hold hold = holds.get(holdId);
+        if (hold == null) {
+            return; // converted or released already
+        }
+        try {
+            release(holdId);
+        } catch (RuntimeException e) {
+            // Keep it in memory and try again on a later tick
+            holds.putIfAbsent(holdId, hold);
+            wheel.schedule(holdId, 5_000);
+            log.warn("Could not expire slot hold {}", holdId, e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.omnitrix.gearup.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Striped locks keyed by (court, date, start minute). Bookings sit on the court's grid, so two
+// requests for the same slot always share a start minute. Requests racing for the same slot queue here
+// for at most the lock timeout instead of all reaching Postgres at once. Overlapping requests with
+// different starts (possible once a court's grid changes) do not share a stripe; the
+// ex_bookings_active_overlap constraint rejects the loser of those.
+@Component
+public class SlotLocks {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutNanos;
+
+    public SlotLocks(@Value("${gearup.booking.lock-stripes:1024}") int stripeCount,
+                     @Value("${gearup.booking.lock-timeout:200ms}") Duration timeout) {
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(stripeCount, 1) * 2 - 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    public int stripeOf(Long courtId, LocalDate date, int startMinute) {
+        int h = Objects.hash(courtId, date, startMinute);
+        h ^= h >>> 16;
+        return h & (stripes.length - 1);
+    }
+
+    // Locks every stripe in ascending order; releases what it took and throws if any lock times out.
+    public List<Lock> lockAll(int[] stripeIndexes) {
+        int[] order = Arrays.stream(stripeIndexes).distinct().sorted().toArray();
+        List<Lock> acquired = new ArrayList<>(order.length);
+        try {
+            for (int index : order) {
+                Lock lock = stripes[index];
+                if (!lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                    throw new SlotConflictException("Slot is being booked by someone else, please try again");
+                }
+                acquired.add(lock);
+            }
+            return acquired;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlockAll(acquired);
+            throw new SlotConflictException("Booking interrupted");
+        } catch (RuntimeException e) {
+            unlockAll(acquired);
+            throw e;
+        }
+    }
+
+    public void unlockAll(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+}
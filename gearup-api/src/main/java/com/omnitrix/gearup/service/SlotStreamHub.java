@@ -0,0 +1,287 @@
+package com.omnitrix.gearup.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omnitrix.gearup.model.CourtView;
+import com.omnitrix.gearup.model.SlotStreamEvent;
+import com.omnitrix.gearup.repository.CourtRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Live availability over Server-Sent Events. Subscribers of the same court/date or venue/date
+// share one channel, so a change is diffed and serialized once and the same frame is written to
+// every emitter. Emitters are async responses and hold no thread while idle; sends run on virtual
+// threads. Changes that arrive while a channel is sending are coalesced into its next diff. A
+// periodic heartbeat finds dead connections and the emitter timeout closes the rest.
+@Slf4j
+@Component
+public class SlotStreamHub {
+
+    private final AvailabilityIndex availabilityIndex;
+    private final CourtRepository courtRepo;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+
+    private final Map<Topic, Channel> channels = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Channel>> channelsByCourt = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final ExecutorService fanOut = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("slot-stream-", 1).factory());
+    private final ScheduledExecutorService heartbeat;
+
+    public SlotStreamHub(AvailabilityIndex availabilityIndex, CourtRepository courtRepo, ObjectMapper objectMapper,
+                         @Value("${gearup.sse.max-subscribers:10000}") int maxSubscribers,
+                         @Value("${gearup.sse.timeout:30m}") Duration timeout,
+                         @Value("${gearup.sse.heartbeat:20s}") Duration heartbeatInterval) {
+        this.availabilityIndex = availabilityIndex;
+        this.courtRepo = courtRepo;
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "slot-stream-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long every = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(this::ping, every, every, TimeUnit.MILLISECONDS);
+        availabilityIndex.addListener(this::changed);
+    }
+
+    public SseEmitter subscribeCourt(Long courtId, LocalDate date) {
+        return subscribe(new Topic(courtId, null, date), () -> List.of(courtId));
+    }
+
+    public SseEmitter subscribeVenue(Long venueId, LocalDate date) {
+        return subscribe(new Topic(null, venueId, date),
+                () -> courtRepo.findViewsByVenueId(venueId).stream().map(CourtView::id).toList());
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    public int channelCount() {
+        return channels.size();
+    }
+
+    // Throws IllegalStateException when this node already serves max-subscribers streams
+    private SseEmitter subscribe(Topic topic, Supplier<List<Long>> courtIds) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new IllegalStateException("Too many live availability streams, please poll instead");
+        }
+        SseEmitter emitter = newEmitter(timeoutMillis);
+        Channel channel;
+        try {
+            channel = join(topic, courtIds, emitter);
+        } catch (RuntimeException e) {
+            subscribers.decrementAndGet(); // never joined, so leave() will not count it
+            throw e;
+        }
+        // join() returned holding the channel's send lock: no diff reaches the emitter ahead of
+        // its snapshot, and none computed before the snapshot reaches it at all
+        try {
+            emitter.onCompletion(() -> leave(channel, emitter));
+            emitter.onError(e -> leave(channel, emitter));
+            emitter.onTimeout(emitter::complete);
+            List<SlotStreamEvent> snapshot = new ArrayList<>(channel.courtIds.size());
+            for (Long courtId : channel.courtIds) {
+                int grid = availabilityIndex.gridOf(courtId);
+                long all = (1L << TimeSlots.slotsPerDay(grid)) - 1;
+                snapshot.add(new SlotStreamEvent(courtId, topic.date(), grid,
+                        availabilityIndex.takenSlots(courtId, topic.date()), all));
+            }
+            send(channel, emitter, frame("snapshot", snapshot));
+        } catch (RuntimeException e) {
+            leave(channel, emitter);
+            throw e;
+        } finally {
+            channel.sendLock.unlock();
+        }
+        return emitter;
+    }
+
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    // Adds the emitter to the topic's channel, opening it if needed, and returns with the
+    // channel's send lock held
+    private Channel join(Topic topic, Supplier<List<Long>> courtIds, SseEmitter emitter) {
+        while (true) {
+            Channel existing = channels.get(topic);
+            if (existing == null) {
+                Channel created = open(topic, courtIds.get());
+                existing = channels.putIfAbsent(topic, created);
+                if (existing == null) {
+                    existing = created;
+                }
+            }
+            Channel channel = existing;
+            channel.sendLock.lock();
+            synchronized (channel) {
+                if (!channel.closed) {
+                    channel.emitters.add(emitter);
+                    if (channel.emitters.size() == 1) {
+                        channel.courtIds.forEach(id ->
+                                channelsByCourt.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(channel));
+                    }
+                    return channel;
+                }
+            }
+            channel.sendLock.unlock();
+            // Closed by its last subscriber leaving between get and join; open a fresh one
+        }
+    }
+
+    private Channel open(Topic topic, List<Long> courtIds) {
+        Channel channel = new Channel(topic, courtIds);
+        for (int i = 0; i < courtIds.size(); i++) {
+            channel.lastTaken[i] = availabilityIndex.takenSlots(courtIds.get(i), topic.date());
+        }
+        return channel;
+    }
+
+    private void leave(Channel channel, SseEmitter emitter) {
+        synchronized (channel) {
+            if (!channel.emitters.remove(emitter)) {
+                return; // completion after an error, or a second callback
+            }
+            subscribers.decrementAndGet();
+            if (channel.emitters.isEmpty()) {
+                channel.closed = true;
+                channels.remove(channel.topic, channel);
+                for (Long courtId : channel.courtIds) {
+                    channelsByCourt.computeIfPresent(courtId, (id, set) -> {
+                        set.remove(channel);
+                        return set.isEmpty() ? null : set;
+                    });
+                }
+            }
+        }
+    }
+
+    private void changed(Long courtId, LocalDate date) {
+        Collection<Channel> affected = courtId == null
+                ? channels.values() : channelsByCourt.getOrDefault(courtId, Set.of());
+        for (Channel channel : affected) {
+            if ((date == null || channel.topic.date().equals(date)) && channel.pending.compareAndSet(false, true)) {
+                fanOut.execute(() -> publish(channel));
+            }
+        }
+    }
+
+    private void publish(Channel channel) {
+        channel.sendLock.lock();
+        try {
+            channel.pending.set(false); // anything after this point schedules another run
+            List<SlotStreamEvent> diff = new ArrayList<>(1);
+            for (int i = 0; i < channel.courtIds.size(); i++) {
+                Long courtId = channel.courtIds.get(i);
+                long taken = availabilityIndex.takenSlots(courtId, channel.topic.date());
+                long changed = taken ^ channel.lastTaken[i];
+                if (changed != 0) {
+                    channel.lastTaken[i] = taken;
+                    diff.add(new SlotStreamEvent(courtId, channel.topic.date(), availabilityIndex.gridOf(courtId),
+                            taken, changed));
+                }
+            }
+            if (!diff.isEmpty()) {
+                Set<ResponseBodyEmitter.DataWithMediaType> frame = frame("diff", diff);
+                for (SseEmitter emitter : channel.emitters) {
+                    send(channel, emitter, frame);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not publish availability for {}", channel.topic, e);
+        } finally {
+            channel.sendLock.unlock();
+        }
+    }
+
+    private void ping() {
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = SseEmitter.event().comment("ping").build();
+        for (Channel channel : channels.values()) {
+            fanOut.execute(() -> {
+                channel.sendLock.lock();
+                try {
+                    for (SseEmitter emitter : channel.emitters) {
+                        send(channel, emitter, frame);
+                    }
+                } finally {
+                    channel.sendLock.unlock();
+                }
+            });
+        }
+    }
+
+    private void send(Channel channel, SseEmitter emitter, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+        try {
+            emitter.send(frame);
+        } catch (IOException | IllegalStateException e) {
+            // Client went away (or the emitter already completed): drop it now rather than on the next ping
+            leave(channel, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> frame(String name, List<SlotStreamEvent> events) {
+        try {
+            return SseEmitter.event().name(name).data(objectMapper.writeValueAsString(events), MediaType.APPLICATION_JSON).build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        heartbeat.shutdownNow();
+        fanOut.shutdownNow();
+        channels.values().forEach(channel -> channel.emitters.forEach(SseEmitter::complete));
+    }
+
+    // Either a court or a venue, on one date
+    private record Topic(Long courtId, Long venueId, LocalDate date) {
+    }
+
+    private static final class Channel {
+        final Topic topic;
+        final List<Long> courtIds;
+        final long[] lastTaken; // guarded by sendLock
+        final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean pending = new AtomicBoolean();
+        final ReentrantLock sendLock = new ReentrantLock();
+        boolean closed; // guarded by the channel's monitor
+
+        Channel(Topic topic, List<Long> courtIds) {
+            this.topic = topic;
+            this.courtIds = courtIds;
+            this.lastTaken = new long[courtIds.size()];
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.TimeSlot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Slot grids a court can use (30, 60 or 90 minutes) and the half-hour cells availability is
+// tracked in. A day is 48 cells, so one long holds a court's whole day. Labels are built once per
+// grid so lookups never have to format strings.
+public final class TimeSlots {
+
+    public static final int CELL_MINUTES = 30;
+    public static final int CELLS_PER_DAY = TimeSlot.MINUTES_PER_DAY / CELL_MINUTES;
+    public static final int DEFAULT_GRID = 60;
+
+    private static final Grid[] GRIDS = {grid(30), grid(60), grid(90)};
+
+    private TimeSlots() {
+    }
+
+    public static boolean isSupportedGrid(int slotMinutes) {
+        return grid(slotMinutes, false) != null;
+    }
+
+    public static int slotsPerDay(int slotMinutes) {
+        return grid(slotMinutes, true).masks().length;
+    }
+
+    public static List<String> labels(int slotMinutes) {
+        return grid(slotMinutes, true).labels();
+    }
+
+    // Cells covered by slot i of the grid
+    public static long slotMask(int slotMinutes, int index) {
+        return grid(slotMinutes, true).masks()[index];
+    }
+
+    // Cells touched by [startMinute, startMinute + durationMinutes)
+    public static long cellMask(int startMinute, int durationMinutes) {
+        int first = startMinute / CELL_MINUTES;
+        int last = Math.min((startMinute + durationMinutes + CELL_MINUTES - 1) / CELL_MINUTES, CELLS_PER_DAY);
+        if (last <= first) {
+            return 0;
+        }
+        return ((1L << last) - 1) & ~((1L << first) - 1);
+    }
+
+    // Folds a day's cell mask into per-slot bits for the grid: bit i is set when slot i overlaps a booking
+    public static long slotBits(long cells, int slotMinutes) {
+        long[] masks = grid(slotMinutes, true).masks();
+        long bits = 0;
+        for (int i = 0; i < masks.length; i++) {
+            if ((cells & masks[i]) != 0) {
+                bits |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    // A bookable slot is exactly one grid step long and starts on the grid
+    public static void checkOnGrid(TimeSlot slot, int slotMinutes) {
+        if (slot.durationMinutes() != slotMinutes || slot.startMinute() % slotMinutes != 0) {
+            throw new IllegalArgumentException("This court is booked in " + slotMinutes + "-minute slots");
+        }
+    }
+
+    private static Grid grid(int slotMinutes, boolean required) {
+        for (Grid grid : GRIDS) {
+            if (grid.minutes() == slotMinutes) {
+                return grid;
+            }
+        }
+        if (required) {
+            throw new IllegalArgumentException("Slot length must be 30, 60 or 90 minutes");
+        }
+        return null;
+    }
+
+    private static Grid grid(int minutes) {
+        int count = TimeSlot.MINUTES_PER_DAY / minutes;
+        List<String> labels = new ArrayList<>(count);
+        long[] masks = new long[count];
+        for (int i = 0; i < count; i++) {
+            labels.add(TimeSlot.label(i * minutes, minutes));
+            masks[i] = cellMask(i * minutes, minutes);
+        }
+        return new Grid(minutes, List.copyOf(labels), masks);
+    }
+
+    private record Grid(int minutes, List<String> labels, long[] masks) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.BookingSeriesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Cancels permanent series that are still unpaid shortly before a session. Affected series are
+// selected with one query and cancelled with bulk UPDATEs in bounded chunks, each in its own
+// transaction. Rows are cancelled in place, not deleted, and only rows still active and unpaid
+// are touched, so a rerun after a crash or on a second node only does the work that is left.
+@Slf4j
+@Service
+public class UnpaidBookingCanceller {
+
+    private final BookingRepository bookingRepo;
+    private final BookingSeriesRepository seriesRepo;
+    private final AvailabilityIndex availabilityIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public UnpaidBookingCanceller(BookingRepository bookingRepo, BookingSeriesRepository seriesRepo,
+                                  AvailabilityIndex availabilityIndex, TransactionTemplate transactionTemplate,
+                                  @Value("${gearup.jobs.cancel-chunk-size:500}") int chunkSize) {
+        this.bookingRepo = bookingRepo;
+        this.seriesRepo = seriesRepo;
+        this.availabilityIndex = availabilityIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    public Report cancelUnpaid(LocalDate sessionDate) {
+        long started = System.nanoTime();
+        int bookingsCancelled = 0;
+
+        List<Long> seriesIds = bookingRepo.findUnpaidSeriesIdsOn(sessionDate);
+        for (int from = 0; from < seriesIds.size(); from += chunkSize) {
+            List<Long> chunk = seriesIds.subList(from, Math.min(from + chunkSize, seriesIds.size()));
+            Set<Long> courtIds = new HashSet<>();
+            Integer rows = transactionTemplate.execute(status -> {
+                courtIds.addAll(seriesRepo.findCourtIds(chunk));
+                seriesRepo.markCancelled(chunk);
+                return bookingRepo.cancelUnpaidInSeries(chunk);
+            });
+            bookingsCancelled += rows;
+            availabilityIndex.invalidateCourts(courtIds);
+        }
+
+        List<Long> legacyUserIds = bookingRepo.findUsersWithUnpaidLegacyBookingsOn(sessionDate);
+        for (int from = 0; from < legacyUserIds.size(); from += chunkSize) {
+            List<Long> chunk = legacyUserIds.subList(from, Math.min(from + chunkSize, legacyUserIds.size()));
+            bookingsCancelled += transactionTemplate.execute(status -> bookingRepo.cancelUnpaidLegacy(chunk));
+        }
+        if (!legacyUserIds.isEmpty()) {
+            availabilityIndex.invalidateAll();
+        }
+
+        Report report = new Report(sessionDate, seriesIds.size(), legacyUserIds.size(), bookingsCancelled,
+                (System.nanoTime() - started) / 1_000_000);
+        log.info("Unpaid permanent booking cancellation for {}: {} series, {} legacy users, {} bookings cancelled in {} ms",
+                report.sessionDate(), report.series(), report.legacyUsers(), report.bookingsCancelled(), report.elapsedMillis());
+        return report;
+    }
+
+    public record Report(LocalDate sessionDate, int series, int legacyUsers, int bookingsCancelled, long elapsedMillis) {
+    }
+}
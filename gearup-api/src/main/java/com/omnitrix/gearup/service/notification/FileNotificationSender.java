@@ -0,0 +1,36 @@
+package com.omnitrix.gearup.service.notification;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+// Appends each digest to a local file, for trying the reminder pipeline without a mail provider
+@Component
+@ConditionalOnProperty(name = "gearup.notifications.sender", havingValue = "file")
+public class FileNotificationSender implements NotificationSender {
+
+    private final Path file;
+
+    public FileNotificationSender(@Value("${gearup.notifications.file:reminders.log}") String file) {
+        this.file = Path.of(file);
+    }
+
+    @Override
+    public void send(ReminderDigest digest) throws IOException {
+        String entry = LocalDateTime.now() + " to " + digest.email() + "\n" + digest.text() + "\n\n";
+        synchronized (this) {
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(entry);
+            }
+        }
+    }
+}
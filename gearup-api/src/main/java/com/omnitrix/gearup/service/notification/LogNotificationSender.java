@@ -0,0 +1,16 @@
+package com.omnitrix.gearup.service.notification;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gearup.notifications.sender", havingValue = "log", matchIfMissing = true)
+public class LogNotificationSender implements NotificationSender {
+
+    @Override
+    public void send(ReminderDigest digest) {
+        log.info("To {} <{}>: {}", digest.name(), digest.email(), digest.text());
+    }
+}
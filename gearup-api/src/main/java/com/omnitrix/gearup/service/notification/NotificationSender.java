@@ -0,0 +1,7 @@
+package com.omnitrix.gearup.service.notification;
+
+// Delivery channel for reminder digests. Implementations may block; a thrown exception makes
+// the dispatcher retry the digest with backoff.
+public interface NotificationSender {
+    void send(ReminderDigest digest) throws Exception;
+}
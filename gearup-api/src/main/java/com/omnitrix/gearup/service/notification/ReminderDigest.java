@@ -0,0 +1,19 @@
+package com.omnitrix.gearup.service.notification;
+
+import com.omnitrix.gearup.model.ReminderRow;
+
+import java.util.List;
+
+// All reminders due for one user, sent as a single message
+public record ReminderDigest(Long userId, String email, String name, List<ReminderRow> items) {
+
+    public String text() {
+        StringBuilder sb = new StringBuilder("Reminder: Please pay for your permanent booking");
+        sb.append(items.size() > 1 ? "s:" : ":");
+        for (ReminderRow item : items) {
+            sb.append("\n - ").append(item.date()).append(' ').append(item.timeSlot())
+                    .append(" at ").append(item.courtName());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,157 @@
+package com.omnitrix.gearup.service.notification;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Delivers reminder digests off the caller's thread. submit() hands the batch to a virtual thread
+// that puts the digests into a bounded queue, waiting while it is full, and returns at once; the
+// scheduled job never holds its thread or bulkhead permit for the senders' pace, and a batch waits
+// in its producer rather than piling into the queue. A fixed pool of virtual-thread workers drains
+// the queue. Failed digests are retried with exponential backoff; a retry that finds the queue
+// full waits another backoff rather than blocking the retry timer.
+@Slf4j
+@Component
+public class ReminderDispatcher {
+
+    private final NotificationSender sender;
+    private final BlockingQueue<Delivery> queue;
+    private final ExecutorService workers;
+    private final ExecutorService producers;
+    private final ScheduledExecutorService retryTimer;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public ReminderDispatcher(NotificationSender sender,
+                              @Value("${gearup.notifications.queue-capacity:1000}") int queueCapacity,
+                              @Value("${gearup.notifications.workers:8}") int workerCount,
+                              @Value("${gearup.notifications.max-attempts:3}") int maxAttempts,
+                              @Value("${gearup.notifications.retry-backoff:2s}") Duration backoff) {
+        this.sender = sender;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoff.toMillis();
+        this.retryTimer = Executors.newSingleThreadScheduledExecutor(named("reminder-retry"));
+        this.workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("reminder-worker-", 1).factory());
+        this.producers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("reminder-producer-", 1).factory());
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    // Returns at once; the digests are queued in the background as workers free up room
+    public void submit(List<ReminderDigest> digests) {
+        List<ReminderDigest> batch = List.copyOf(digests);
+        try {
+            producers.execute(() -> enqueue(batch));
+        } catch (RejectedExecutionException e) {
+            dropped.addAndGet(batch.size());
+            log.warn("{} reminders dropped, dispatcher is shut down", batch.size());
+        }
+    }
+
+    private void enqueue(List<ReminderDigest> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                queue.put(new Delivery(batch.get(i), 1));
+            } catch (InterruptedException e) {
+                dropped.addAndGet(batch.size() - i);
+                log.warn("{} reminders dropped during shutdown", batch.size() - i);
+                return;
+            }
+        }
+    }
+
+    public long sentCount() {
+        return sent.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+
+    public long retriedCount() {
+        return retried.get();
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    private void requeue(Delivery delivery, long delay) {
+        retryTimer.schedule(() -> {
+            if (!queue.offer(delivery)) {
+                requeue(delivery, delay); // still full, try again after another backoff
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Delivery delivery;
+            try {
+                delivery = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                sender.send(delivery.digest());
+                sent.incrementAndGet();
+            } catch (Exception e) {
+                retryOrGiveUp(delivery, e);
+            }
+        }
+    }
+
+    private void retryOrGiveUp(Delivery delivery, Exception cause) {
+        if (delivery.attempt() >= maxAttempts) {
+            failed.incrementAndGet();
+            log.error("Giving up on reminder for {} after {} attempts", delivery.digest().email(), delivery.attempt(), cause);
+            return;
+        }
+        retried.incrementAndGet();
+        requeue(new Delivery(delivery.digest(), delivery.attempt() + 1), backoffMillis << (delivery.attempt() - 1));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        producers.shutdownNow();
+        retryTimer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private record Delivery(ReminderDigest digest, int attempt) {
+    }
+}
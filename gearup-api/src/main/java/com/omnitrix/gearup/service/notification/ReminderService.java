@@ -0,0 +1,46 @@
+package com.omnitrix.gearup.service.notification;
+
+import com.omnitrix.gearup.model.ReminderRow;
+import com.omnitrix.gearup.repository.BookingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class ReminderService {
+
+    private final BookingRepository bookingRepo;
+    private final ReminderDispatcher dispatcher;
+
+    public ReminderService(BookingRepository bookingRepo, ReminderDispatcher dispatcher) {
+        this.bookingRepo = bookingRepo;
+        this.dispatcher = dispatcher;
+    }
+
+    // Collects reminders for unpaid permanent sessions on the date with one projection query,
+    // folds them into one digest per user and hands them to the dispatcher. The database
+    // connection is released before anything is sent.
+    public int sendDueReminders(LocalDate sessionDate) {
+        List<ReminderRow> rows = bookingRepo.findDueReminders(sessionDate);
+
+        Map<Long, List<ReminderRow>> byUser = new LinkedHashMap<>();
+        for (ReminderRow row : rows) {
+            byUser.computeIfAbsent(row.userId(), id -> new ArrayList<>()).add(row);
+        }
+        List<ReminderDigest> digests = new ArrayList<>(byUser.size());
+        for (List<ReminderRow> items : byUser.values()) {
+            ReminderRow first = items.get(0);
+            digests.add(new ReminderDigest(first.userId(), first.email(), first.name(), items));
+        }
+
+        dispatcher.submit(digests);
+        log.info("Queued {} reminder digests covering {} bookings on {}", digests.size(), rows.size(), sessionDate);
+        return digests.size();
+    }
+}
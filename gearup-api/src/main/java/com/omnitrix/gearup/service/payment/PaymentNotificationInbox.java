@@ -0,0 +1,74 @@
+package com.omnitrix.gearup.service.payment;
+
+import com.omnitrix.gearup.repository.PaymentNotificationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Idempotency store for PayHere callbacks. A callback is identified by its order id and status
+// code, so a pending notification followed by the success for the same order are two callbacks.
+// Pairs seen recently are answered from memory; the payment_notifications table is the source of
+// truth, and its insert is a no-op for a callback that another node (or an earlier run) stored.
+@Component
+public class PaymentNotificationInbox {
+
+    private final PaymentNotificationRepository notificationRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    private final int maxSeen;
+    private final Counter stored;
+    private final Counter duplicates;
+
+    public PaymentNotificationInbox(PaymentNotificationRepository notificationRepo,
+                                    TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                                    @Value("${gearup.payments.seen-cache-size:10000}") int maxSeen) {
+        this.notificationRepo = notificationRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.maxSeen = maxSeen;
+        this.stored = meterRegistry.counter("gearup.payments.notifications", "result", "stored");
+        this.duplicates = meterRegistry.counter("gearup.payments.notifications", "result", "duplicate");
+    }
+
+    // Stores the notification unless this order id and status are already known; returns whether it was new
+    public boolean accept(String orderId, Map<String, String[]> params) {
+        String[] codes = params.get("status_code");
+        String statusCode = codes == null || codes.length == 0 ? null : codes[0];
+        String key = orderId + '|' + statusCode;
+        if (seen.contains(key)) {
+            duplicates.increment();
+            return false;
+        }
+        Integer inserted = transactionTemplate.execute(status ->
+                notificationRepo.insertIfAbsent(orderId, statusCode, encode(params), LocalDateTime.now()));
+        if (seen.size() >= maxSeen) {
+            seen.clear(); // the table still deduplicates, this only costs a few extra inserts
+        }
+        seen.add(key);
+        boolean isNew = inserted != null && inserted > 0;
+        (isNew ? stored : duplicates).increment();
+        return isNew;
+    }
+
+    static String encode(Map<String, String[]> params) {
+        StringBuilder sb = new StringBuilder();
+        params.forEach((name, values) -> {
+            for (String value : values) {
+                if (!sb.isEmpty()) {
+                    sb.append('&');
+                }
+                sb.append(URLEncoder.encode(name, StandardCharsets.UTF_8)).append('=')
+                        .append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+            }
+        });
+        return sb.toString();
+    }
+}
@@ -0,0 +1,252 @@
+package com.omnitrix.gearup.service.payment;
+
+import com.omnitrix.gearup.config.Bulkheads;
+import com.omnitrix.gearup.model.Booking;
+import com.omnitrix.gearup.model.BookingSeries;
+import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.Payment;
+import com.omnitrix.gearup.model.PaymentNotification;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.repository.CourtRepository;
+import com.omnitrix.gearup.repository.PaymentNotificationRepository;
+import com.omnitrix.gearup.repository.PaymentRepository;
+import com.omnitrix.gearup.repository.UserRepository;
+import com.omnitrix.gearup.service.BookingService;
+import com.omnitrix.gearup.service.SlotConflictException;
+import com.omnitrix.gearup.service.SlotHolds;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// Turns stored PayHere notifications into bookings. A batch is claimed (state PROCESSING) under
+// FOR UPDATE SKIP LOCKED, then each notification is booked in its own transaction which also
+// moves the row to PROCESSED. The bookings and that state change commit together, so a crash or
+// a second node re-claiming a stale row can never book the same order twice. The order id is
+// also the id of the slot hold placed at initiation; it is consumed in the same transaction.
+// A pending notification (status 0) is parked as PENDING with the hold kept; the final status
+// for the order replaces it in the inbox and is processed then.
+@Slf4j
+@Component
+public class PaymentNotificationProcessor {
+
+    private final PaymentNotificationRepository notificationRepo;
+    private final PaymentRepository paymentRepo;
+    private final UserRepository userRepo;
+    private final CourtRepository courtRepo;
+    private final BookingService bookingService;
+    private final SlotHolds slotHolds;
+    private final Bulkheads bulkheads;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final Duration claimTimeout;
+    private final int maxAttempts;
+
+    public PaymentNotificationProcessor(PaymentNotificationRepository notificationRepo, PaymentRepository paymentRepo,
+                                        UserRepository userRepo, CourtRepository courtRepo,
+                                        BookingService bookingService, SlotHolds slotHolds,
+                                        Bulkheads bulkheads, TransactionTemplate transactionTemplate,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${gearup.payments.batch-size:20}") int batchSize,
+                                        @Value("${gearup.payments.claim-timeout:5m}") Duration claimTimeout,
+                                        @Value("${gearup.payments.max-attempts:5}") int maxAttempts) {
+        this.notificationRepo = notificationRepo;
+        this.paymentRepo = paymentRepo;
+        this.userRepo = userRepo;
+        this.courtRepo = courtRepo;
+        this.bookingService = bookingService;
+        this.slotHolds = slotHolds;
+        this.bulkheads = bulkheads;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.claimTimeout = claimTimeout;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Scheduled(fixedDelayString = "${gearup.payments.poll-interval:500}")
+    public void drain() {
+        List<String> claimed;
+        do {
+            claimed = claim();
+            for (String orderId : claimed) {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                String state = bulkheads.call(Bulkheads.Group.BOOKING_WRITES, () -> process(orderId));
+                sample.stop(Timer.builder("gearup.payments.process")
+                        .description("Turning a stored PayHere notification into bookings")
+                        .tag("state", state)
+                        .register(meterRegistry));
+            }
+        } while (claimed.size() == batchSize);
+    }
+
+    List<String> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<PaymentNotification> rows = notificationRepo.lockClaimable(now.minus(claimTimeout), batchSize);
+            List<String> orderIds = new ArrayList<>(rows.size());
+            for (PaymentNotification n : rows) {
+                if (n.getAttempts() >= maxAttempts) {
+                    n.setState("FAILED");
+                    n.setProcessedAt(now);
+                    log.error("Payment notification {} failed after {} attempts, needs manual review",
+                            n.getOrderId(), n.getAttempts());
+                    continue;
+                }
+                n.setState("PROCESSING");
+                n.setAttempts(n.getAttempts() + 1);
+                n.setClaimedAt(now);
+                orderIds.add(n.getOrderId());
+            }
+            return orderIds;
+        });
+    }
+
+    String process(String orderId) {
+        PaymentNotification n = notificationRepo.findById(orderId).orElseThrow();
+        Map<String, String> params = decode(n.getPayload());
+        try {
+            String statusCode = params.get("status_code");
+            if ("0".equals(statusCode)) {
+                return finish(orderId, "PENDING", "Payment pending at PayHere, waiting for its final status");
+            }
+            if (!"2".equals(statusCode)) {
+                if (statusCode != null && statusCode.startsWith("-")) {
+                    slotHolds.release(orderId); // failed, cancelled or charged back: free the slot now
+                }
+                return finish(orderId, "REJECTED", "Payment not successful (status " + statusCode + ")");
+            }
+            Consumer<List<Booking>> confirm = saved -> {
+                if (notificationRepo.finish(orderId, "PROCESSED", "Booking confirmed", LocalDateTime.now()) == 0) {
+                    throw new AlreadyHandledException();
+                }
+                slotHolds.deleteRows(orderId);
+                Payment payment = new Payment();
+                payment.setPaymentMethod("PAYHERE");
+                payment.setPaid(true);
+                payment.setAmount(amount(params.get("payhere_amount")));
+                payment.setPaymentDate(LocalDateTime.now());
+                payment.setBooking(saved.get(0));
+                paymentRepo.save(payment);
+                paymentRepo.rollUpPayment(payment.getBooking().getId(), payment.getAmount());
+            };
+            book(orderId, params, confirm);
+            slotHolds.release(orderId);
+            return "PROCESSED";
+        } catch (AlreadyHandledException e) {
+            return "PROCESSED"; // another worker finished it first; our bookings were rolled back
+        } catch (SlotConflictException | IllegalArgumentException | NoSuchElementException | DateTimeParseException e) {
+            // Paid but not bookable: keep the reason so the payment can be refunded, and free the slot
+            log.warn("Payment notification {} rejected: {}", orderId, e.getMessage());
+            String state = finish(orderId, "REJECTED", e.getMessage());
+            slotHolds.release(orderId);
+            return state;
+        } catch (RuntimeException e) {
+            // Left in PROCESSING; claimed again once the claim goes stale
+            log.error("Payment notification {} failed, will retry", orderId, e);
+            return "PROCESSING";
+        }
+    }
+
+    private void book(String orderId, Map<String, String> params, Consumer<List<Booking>> confirm) {
+        Long courtId = Long.valueOf(params.get("custom_1"));
+        LocalDate date = LocalDate.parse(params.get("custom_2"));
+        TimeSlot slot = TimeSlot.parse(params.get("custom_3"));
+        String isPermanentStr = params.get("custom_4");
+        // custom_4 is "true"/"false", or the number of weeks for a permanent booking
+        Integer weeks = isPermanentStr != null && isPermanentStr.matches("\\d+")
+                ? paidWeeks(orderId, isPermanentStr) : null;
+        boolean isPermanent = weeks != null || Boolean.parseBoolean(isPermanentStr);
+
+        User user = userRepo.findByEmail(params.get("email")).orElseThrow();
+        Court court = courtRepo.findById(courtId).orElseThrow();
+
+        if (!isPermanent) {
+            Booking booking = new Booking();
+            booking.setUser(user);
+            booking.setCourt(court);
+            booking.setDate(date);
+            booking.setSlot(slot);
+            booking.setStatus("CONFIRMED");
+            booking.setWeekNumber(1);
+            booking.setPermanent(false);
+            booking.setPaymentReceived(true);
+            bookingService.reserve(List.of(booking), orderId, confirm);
+        } else {
+            BookingSeries series = bookingService.newSeries(user, court, date, slot, weeks, null);
+            bookingService.reserveSeries(series, true, orderId, confirm);
+        }
+    }
+
+    // PayHere's payhere_amount, e.g. "1000.00"; null when missing or malformed, which rolls up as no revenue
+    private static BigDecimal amount(String value) {
+        try {
+            return value == null ? null : new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Initiation sends a count already checked against 1..max-weeks. Anything else did not come from
+    // there, so the weeks held for the order are booked instead; with no hold left the payment is
+    // rejected for refund before any booking is attempted.
+    private int paidWeeks(String orderId, String custom4) {
+        int maxWeeks = bookingService.maxWeeks();
+        if (custom4.length() <= 3) {
+            int weeks = Integer.parseInt(custom4);
+            if (weeks >= 1 && weeks <= maxWeeks) {
+                return weeks;
+            }
+        }
+        int held = slotHolds.heldDates(orderId);
+        if (held < 1 || held > maxWeeks) {
+            throw new IllegalArgumentException("Paid for " + custom4 + " weeks, outside 1 to " + maxWeeks
+                    + " and no hold to go by; refund required");
+        }
+        log.warn("Payment notification {} has custom_4={}, booking the {} weeks held instead", orderId, custom4, held);
+        return held;
+    }
+
+    private String finish(String orderId, String state, String outcome) {
+        String trimmed = outcome == null || outcome.length() <= 255 ? outcome : outcome.substring(0, 255);
+        transactionTemplate.executeWithoutResult(status ->
+                notificationRepo.finish(orderId, state, trimmed, LocalDateTime.now()));
+        return state;
+    }
+
+    static Map<String, String> decode(String payload) {
+        Map<String, String> params = new HashMap<>();
+        if (payload == null || payload.isEmpty()) {
+            return params;
+        }
+        for (String pair : payload.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.putIfAbsent(name, value);
+        }
+        return params;
+    }
+
+    private static final class AlreadyHandledException extends RuntimeException {
+    }
+}
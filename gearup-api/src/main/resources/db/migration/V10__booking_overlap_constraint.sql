@@ -0,0 +1,40 @@
+-- ux_bookings_active_start only stops two active bookings with the same start. Bookings with
+-- different starts can still overlap once a court's slot grid changes under existing bookings,
+-- and the booking services lock stripes keyed on the start minute, so two such writers never
+-- wait on each other. This constraint rejects any overlap of the minute ranges of active
+-- bookings on a court and date; the unique index stays for the lookups it serves. A violation
+-- is an exclusion_violation (23P01), which the services report as a slot conflict.
+-- btree_gist is a trusted extension, so the database owner can create it.
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- Bookings made before this may already overlap, paid ones included. Which of them keeps the
+-- slot is for an operator to settle (refund, move or cancel), so nothing is changed here: while
+-- any active bookings overlap, the migration fails and lists them as older/newer id pairs, and
+-- it can be run again once they are resolved.
+DO $$
+DECLARE
+    total bigint;
+    pairs text;
+BEGIN
+    SELECT count(*), string_agg(o.id || '/' || n.id, ', ' ORDER BY o.id, n.id)
+    INTO total, pairs
+    FROM bookings o
+    JOIN bookings n ON n.court_id = o.court_id AND n.date = o.date AND n.id > o.id
+    WHERE NOT o.is_cancelled AND NOT n.is_cancelled
+      AND int4range(o.start_minute, o.start_minute + o.duration_minutes)
+          && int4range(n.start_minute, n.start_minute + n.duration_minutes);
+
+    IF total > 0 THEN
+        RAISE EXCEPTION 'ex_bookings_active_overlap: % pairs of active bookings overlap on the same court and date (older/newer id): %',
+            total, pairs
+            USING HINT = 'Cancel or move one booking of each pair, then run the migration again';
+    END IF;
+END $$;
+
+ALTER TABLE bookings ADD CONSTRAINT ex_bookings_active_overlap
+    EXCLUDE USING gist (
+        court_id WITH =,
+        date WITH =,
+        int4range(start_minute, start_minute + duration_minutes) WITH &&
+    )
+    WHERE (NOT is_cancelled);
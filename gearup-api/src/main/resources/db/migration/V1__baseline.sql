@@ -0,0 +1,104 @@
+-- Baseline of the schema Hibernate used to manage with ddl-auto=update. Every statement is a
+-- no-op on a database Hibernate already created, so existing installs are adopted in place
+-- (spring.flyway.baseline-on-migrate with baseline version 0) and fresh ones start from here.
+
+CREATE TABLE IF NOT EXISTS users (
+    id             bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name           varchar(255),
+    email          varchar(255) UNIQUE,
+    password       varchar(255),
+    role           varchar(255),
+    refresh_token  varchar(255),
+    date_of_birth  date,
+    mobile_number  varchar(255),
+    location       varchar(255),
+    time_zone      varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS futsal_venues (
+    id        bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name      varchar(255),
+    location  varchar(255),
+    contact   varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS courts (
+    id            bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name          varchar(255),
+    sport_type    varchar(255),
+    slot_minutes  smallint NOT NULL DEFAULT 60,
+    venue_id      bigint REFERENCES futsal_venues (id)
+);
+
+CREATE TABLE IF NOT EXISTS booking_series (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id           bigint REFERENCES users (id),
+    court_id          bigint REFERENCES courts (id),
+    start_minute      smallint NOT NULL,
+    duration_minutes  smallint NOT NULL,
+    start_date        date,
+    end_date          date,
+    weeks             integer NOT NULL,
+    status            varchar(255),
+    created_at        timestamp(6)
+);
+
+-- Pooled sequence (increment 50) so a whole series goes out as one insert batch
+CREATE SEQUENCE IF NOT EXISTS bookings_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS bookings (
+    id                bigint PRIMARY KEY,
+    user_id           bigint REFERENCES users (id),
+    court_id          bigint REFERENCES courts (id),
+    date              date,
+    start_minute      smallint NOT NULL,
+    duration_minutes  smallint NOT NULL,
+    status            varchar(255),
+    is_permanent      boolean NOT NULL,
+    week_number       integer NOT NULL,
+    series_id         bigint REFERENCES booking_series (id),
+    payment_received  boolean NOT NULL,
+    is_cancelled      boolean NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS payments (
+    id              bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    payment_method  varchar(255),
+    paid            boolean NOT NULL,
+    payment_date    timestamp(6),
+    booking_id      bigint UNIQUE REFERENCES bookings (id)
+);
+
+-- Databases created before slots became numeric still have the time_slot strings and may lack
+-- the newer columns. Add them and backfill start/duration from "HH:mm-HH:mm".
+ALTER TABLE courts ADD COLUMN IF NOT EXISTS slot_minutes smallint NOT NULL DEFAULT 60;
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS series_id bigint REFERENCES booking_series (id);
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS start_minute smallint;
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS duration_minutes smallint;
+ALTER TABLE booking_series ADD COLUMN IF NOT EXISTS start_minute smallint;
+ALTER TABLE booking_series ADD COLUMN IF NOT EXISTS duration_minutes smallint;
+
+DO $$
+DECLARE
+    t text;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['bookings', 'booking_series'] LOOP
+        IF EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = t AND column_name = 'time_slot') THEN
+            EXECUTE format(
+                'UPDATE %I SET start_minute = substr(time_slot, 1, 2)::int * 60 + substr(time_slot, 4, 2)::int, '
+                || 'duration_minutes = (substr(time_slot, 7, 2)::int * 60 + substr(time_slot, 10, 2)::int '
+                || '- substr(time_slot, 1, 2)::int * 60 - substr(time_slot, 4, 2)::int + 1439) % 1440 + 1 '
+                || 'WHERE start_minute IS NULL AND time_slot ~ ''^[0-9]{2}:[0-9]{2}-[0-9]{2}:[0-9]{2}$''', t);
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN time_slot DROP NOT NULL', t);
+        END IF;
+    END LOOP;
+END $$;
+
+ALTER TABLE bookings ALTER COLUMN start_minute SET NOT NULL;
+ALTER TABLE bookings ALTER COLUMN duration_minutes SET NOT NULL;
+ALTER TABLE booking_series ALTER COLUMN start_minute SET NOT NULL;
+ALTER TABLE booking_series ALTER COLUMN duration_minutes SET NOT NULL;
+
+-- Keep the sequence ahead of ids handed out while bookings used an identity column
+SELECT setval('bookings_seq', GREATEST((SELECT COALESCE(MAX(id), 1) FROM bookings), (SELECT last_value FROM bookings_seq)));
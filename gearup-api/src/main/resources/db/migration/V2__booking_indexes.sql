@@ -0,0 +1,46 @@
+-- Indexes for the booking hot paths. Before this only primary keys and users.email were indexed,
+-- so every lookup below scanned the whole bookings table.
+
+-- At most one active booking per court, date and start minute; cancelled rows do not block
+-- rebooking. Bookings sit on the court's slot grid, so equal starts are the only way two active
+-- bookings can overlap. Also serves the availability and conflict queries, which only ever look
+-- at active rows, and their start_minute range predicates.
+-- Installs adopted through baseline-on-migrate may already hold several active bookings with the
+-- same start, which the index would refuse. The oldest (lowest id) keeps the slot; the others are
+-- cancelled and their ids logged as a warning, so they can be refunded or rebooked.
+DO $$
+DECLARE
+    cancelled bigint[];
+BEGIN
+    WITH dup AS (
+        UPDATE bookings n SET is_cancelled = true, status = 'CANCELLED'
+        WHERE NOT n.is_cancelled AND EXISTS (
+            SELECT 1 FROM bookings o
+            WHERE NOT o.is_cancelled AND o.court_id = n.court_id AND o.date = n.date
+              AND o.start_minute = n.start_minute AND o.id < n.id)
+        RETURNING n.id)
+    SELECT array_agg(id ORDER BY id) INTO cancelled FROM dup;
+    IF cancelled IS NOT NULL THEN
+        RAISE WARNING 'Cancelled % active bookings that repeat an older booking''s court, date and start: %',
+            cardinality(cancelled), cancelled;
+    END IF;
+END $$;
+
+DROP INDEX IF EXISTS ux_bookings_active_slot;
+CREATE UNIQUE INDEX IF NOT EXISTS ux_bookings_active_start
+    ON bookings (court_id, date, start_minute)
+    WHERE NOT is_cancelled;
+
+-- Court/day lookups that include cancelled rows (findByCourtIdAndDate)
+CREATE INDEX IF NOT EXISTS ix_bookings_court_date_start ON bookings (court_id, date, start_minute);
+
+-- A user's bookings in (date, id) keyset order (/api/booking/me, findByUserId)
+CREATE INDEX IF NOT EXISTS ix_bookings_user_date ON bookings (user_id, date, id);
+
+-- Daily reminder and unpaid-cancellation jobs only look at unpaid permanent bookings on one date
+CREATE INDEX IF NOT EXISTS ix_bookings_unpaid_permanent_date
+    ON bookings (date)
+    WHERE is_permanent AND NOT payment_received AND NOT is_cancelled;
+
+-- Set-based cancellation of whole series
+CREATE INDEX IF NOT EXISTS ix_bookings_series ON bookings (series_id) WHERE series_id IS NOT NULL;
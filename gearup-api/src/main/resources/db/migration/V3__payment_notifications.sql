@@ -0,0 +1,20 @@
+-- PayHere notify callbacks, stored before any booking work so retries of the same order id are
+-- acknowledged without being processed twice. PayHere can notify an order more than once with
+-- different statuses, typically 0 (pending) followed by 2 (success); the status of the stored row
+-- decides whether a later notification replaces it.
+CREATE TABLE IF NOT EXISTS payment_notifications (
+    order_id      varchar(255) PRIMARY KEY,
+    status_code   varchar(255),
+    payload       text,
+    state         varchar(255),
+    attempts      integer NOT NULL,
+    outcome       varchar(255),
+    received_at   timestamp(6),
+    claimed_at    timestamp(6),
+    processed_at  timestamp(6)
+);
+
+-- Worker polling only looks at notifications that are not finished yet
+CREATE INDEX IF NOT EXISTS ix_payment_notifications_pending
+    ON payment_notifications (received_at)
+    WHERE state IN ('RECEIVED', 'PROCESSING');
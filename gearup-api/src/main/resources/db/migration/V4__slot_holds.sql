@@ -0,0 +1,17 @@
+-- Slots held between prepare/initiate and payment confirmation. The unique index is what stops
+-- two nodes from holding the same slot; expired rows are deleted before a slot is held again.
+CREATE TABLE IF NOT EXISTS slot_holds (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    hold_id           varchar(255) NOT NULL,
+    user_id           bigint REFERENCES users (id),
+    court_id          bigint REFERENCES courts (id),
+    date              date NOT NULL,
+    start_minute      smallint NOT NULL,
+    duration_minutes  smallint NOT NULL,
+    expires_at        timestamp(6) NOT NULL,
+    created_at        timestamp(6)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_slot_holds_slot ON slot_holds (court_id, date, start_minute);
+CREATE INDEX IF NOT EXISTS ix_slot_holds_hold ON slot_holds (hold_id);
+CREATE INDEX IF NOT EXISTS ix_slot_holds_expires ON slot_holds (expires_at);
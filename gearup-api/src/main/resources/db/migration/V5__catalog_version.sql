@@ -0,0 +1,8 @@
+-- One row shared by every API instance: admin writes to venues and courts move it, and venue and
+-- court listings use it as their ETag, so no instance answers 304 for a catalog another changed.
+CREATE TABLE IF NOT EXISTS catalog_version (
+    id       smallint PRIMARY KEY CHECK (id = 1),
+    version  bigint NOT NULL
+);
+
+INSERT INTO catalog_version (id, version) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
@@ -0,0 +1,22 @@
+-- Refresh tokens, one row per token issued, stored as the SHA-256 of the token. Every login starts
+-- a family (one per device) and each refresh replaces the family's live token with a new row, so
+-- logins and refreshes no longer write to users. A row is revoked once it is rotated, or with
+-- its whole family on logout or when a rotated token is presented again.
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    token_hash     varchar(64) PRIMARY KEY,
+    user_id        bigint NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    family         varchar(36) NOT NULL,
+    device         varchar(255),
+    issued_at      timestamp(6) NOT NULL,
+    expires_at     timestamp(6) NOT NULL,
+    revoked_at     timestamp(6),
+    revoke_reason  varchar(16)
+);
+
+CREATE INDEX IF NOT EXISTS ix_refresh_tokens_family ON refresh_tokens (family);
+CREATE INDEX IF NOT EXISTS ix_refresh_tokens_user ON refresh_tokens (user_id);
+CREATE INDEX IF NOT EXISTS ix_refresh_tokens_revoked ON refresh_tokens (revoked_at) WHERE revoked_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS ix_refresh_tokens_expires ON refresh_tokens (expires_at);
+
+-- The single token per user it replaces; sessions issued before this are ended
+ALTER TABLE users DROP COLUMN IF EXISTS refresh_token;
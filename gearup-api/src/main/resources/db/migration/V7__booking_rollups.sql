@@ -0,0 +1,21 @@
+-- Occupancy and revenue per court, date and hour of day, so admin reports read a few rows per
+-- day instead of every booking. The statements that book, cancel and pay update these rows in
+-- the same transaction. A booking adds its minutes to each hour it covers and counts once, in
+-- the hour it starts; cancelling it moves that count to cancellations. A payment counts, with
+-- its amount, in the hour its booking starts.
+CREATE TABLE IF NOT EXISTS booking_rollups (
+    court_id        bigint NOT NULL REFERENCES courts (id) ON DELETE CASCADE,
+    date            date NOT NULL,
+    hour_of_day     smallint NOT NULL CHECK (hour_of_day BETWEEN 0 AND 23),
+    booked_minutes  integer NOT NULL DEFAULT 0,
+    bookings        integer NOT NULL DEFAULT 0,
+    cancellations   integer NOT NULL DEFAULT 0,
+    payments        integer NOT NULL DEFAULT 0,
+    revenue         numeric(14, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (court_id, date, hour_of_day)
+);
+
+CREATE INDEX IF NOT EXISTS ix_booking_rollups_date ON booking_rollups (date);
+
+-- What was paid; payments made before this count with no revenue
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS amount numeric(12, 2);
@@ -0,0 +1,10 @@
+-- Days whose rollups have been recomputed from bookings and payments. Bookings made before V7
+-- are not in the rollups until their day is rebuilt; the backfill walks the days missing here,
+-- so it resumes where it stopped after a restart.
+CREATE TABLE IF NOT EXISTS booking_rollup_days (
+    date        date PRIMARY KEY,
+    rebuilt_at  timestamp(6) NOT NULL
+);
+
+-- A rebuild reads one day of bookings across all courts
+CREATE INDEX IF NOT EXISTS ix_bookings_date ON bookings (date);
@@ -0,0 +1,2 @@
+-- Payment exports select a range of payment dates
+CREATE INDEX IF NOT EXISTS ix_payments_payment_date ON payments (payment_date);
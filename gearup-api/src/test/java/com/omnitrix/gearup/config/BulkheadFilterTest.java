@@ -0,0 +1,74 @@
+package com.omnitrix.gearup.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadFilterTest {
+
+    @Test
+    void saturatedGroupIsShedWithoutAffectingOthers() throws Exception {
+        Bulkheads bulkheads = new Bulkheads(1, 1, 1, 1, Duration.ZERO, 2);
+        BulkheadFilter filter = new BulkheadFilter(bulkheads);
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Hold the only admin permit
+        CompletableFuture<MockHttpServletResponse> slow = CompletableFuture.supplyAsync(() -> {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/user/admin/all"), response, (req, res) -> {
+                    inside.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return response;
+        });
+        assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/user/admin/all"), shed, (req, res) -> { });
+        assertThat(shed.getStatus()).isEqualTo(503);
+        assertThat(shed.getHeader("Retry-After")).isEqualTo("1");
+
+        MockHttpServletResponse slots = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/booking/courts/1/slots"), slots, (req, res) -> { });
+        assertThat(slots.getStatus()).isEqualTo(200);
+
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(bulkheads.inFlight(Bulkheads.Group.ADMIN)).isZero();
+        assertThat(bulkheads.rejectedCount(Bulkheads.Group.ADMIN)).isEqualTo(1);
+    }
+
+    @Test
+    void endpointsMapToTheirGroups() {
+        assertThat(BulkheadFilter.groupOf("POST", "/api/auth/login")).isEqualTo(Bulkheads.Group.AUTH);
+        assertThat(BulkheadFilter.groupOf("GET", "/api/futsal/venues/3/availability")).isEqualTo(Bulkheads.Group.AVAILABILITY);
+        assertThat(BulkheadFilter.groupOf("POST", "/api/booking/book")).isEqualTo(Bulkheads.Group.BOOKING_WRITES);
+        assertThat(BulkheadFilter.groupOf("POST", "/api/payment/notify")).isEqualTo(Bulkheads.Group.BOOKING_WRITES);
+        assertThat(BulkheadFilter.groupOf("POST", "/api/futsal/venues")).isEqualTo(Bulkheads.Group.ADMIN);
+        assertThat(BulkheadFilter.groupOf("GET", "/api/user/me")).isNull();
+    }
+
+    @Test
+    void limitsMustStayBelowThePoolSize() {
+        assertThatThrownBy(() -> new Bulkheads(6, 10, 8, 3, Duration.ZERO, 10))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("AVAILABILITY");
+    }
+}
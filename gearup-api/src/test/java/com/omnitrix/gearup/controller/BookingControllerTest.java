@@ -0,0 +1,93 @@
+package com.omnitrix.gearup.controller;
+
+import com.omnitrix.gearup.config.Bulkheads;
+import com.omnitrix.gearup.repository.CourtRepository;
+import com.omnitrix.gearup.repository.UserRepository;
+import com.omnitrix.gearup.security.AuthUser;
+import com.omnitrix.gearup.service.BookingService;
+import com.omnitrix.gearup.service.notification.ReminderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BookingControllerTest {
+
+    private final CourtRepository courtRepo = mock(CourtRepository.class);
+    private final BookingService bookingService = mock(BookingService.class);
+    private final ReminderService reminderService = mock(ReminderService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BookingController controller;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        controller = new BookingController();
+        ReflectionTestUtils.setField(controller, "userRepo", mock(UserRepository.class));
+        ReflectionTestUtils.setField(controller, "courtRepo", courtRepo);
+        ReflectionTestUtils.setField(controller, "bookingService", bookingService);
+        ReflectionTestUtils.setField(controller, "reminderService", reminderService);
+        ReflectionTestUtils.setField(controller, "bulkheads", new Bulkheads(1, 1, 1, 1, Duration.ofMillis(50), 2));
+        ReflectionTestUtils.setField(controller, "meterRegistry", meterRegistry);
+        mvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthUser(7L, "player@gearup.lk", "USER"), null, List.of()));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void bookingAnUnknownCourtIsNotFoundAndReservesNothing() throws Exception {
+        when(courtRepo.findById(99L)).thenReturn(Optional.empty());
+
+        mvc.perform(post("/api/booking/book").contentType(MediaType.APPLICATION_JSON).content("""
+                        {"courtId": 99, "date": "2025-06-06", "timeSlot": "19:00-20:00", "permanent": false}"""))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("Court not found"));
+        verify(bookingService, never()).reserve(anyList());
+        verify(bookingService, never()).reserveSeries(any(), anyBoolean());
+    }
+
+    @Test
+    void jobRunsAreTimedByOutcomeEvenWhenTheyFail() {
+        when(reminderService.sendDueReminders(any())).thenReturn(4).thenThrow(new IllegalStateException("mail down"));
+
+        controller.sendRemindersForPermanentBookings();
+        assertThatThrownBy(controller::sendRemindersForPermanentBookings).isInstanceOf(IllegalStateException.class);
+
+        assertThat(meterRegistry.get("gearup.jobs.duration").tags("job", "reminders", "outcome", "completed").timer()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("gearup.jobs.duration").tags("job", "reminders", "outcome", "failed").timer()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("gearup.jobs.rows").tag("job", "reminders").counter().count()).isEqualTo(4);
+    }
+}
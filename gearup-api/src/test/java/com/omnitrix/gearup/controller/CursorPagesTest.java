@@ -0,0 +1,164 @@
+package com.omnitrix.gearup.controller;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.omnitrix.gearup.model.BookingView;
+import com.omnitrix.gearup.model.UserView;
+import com.omnitrix.gearup.model.VenueView;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.FutsalRepository;
+import com.omnitrix.gearup.repository.UserRepository;
+import com.omnitrix.gearup.security.AuthUser;
+import com.omnitrix.gearup.service.ReferenceDataCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The list endpoints answer {"items": [...], "nextCursor": ...}; a client pages by passing
+// nextCursor back as ?after= until it comes back null.
+class CursorPagesTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+
+    private final BookingRepository bookingRepo = mock(BookingRepository.class);
+    private final FutsalRepository venueRepo = mock(FutsalRepository.class);
+    private final UserRepository userRepo = mock(UserRepository.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        BookingController bookings = new BookingController();
+        ReflectionTestUtils.setField(bookings, "bookingRepo", bookingRepo);
+        FutsalController venues = new FutsalController();
+        ReflectionTestUtils.setField(venues, "venueRepo", venueRepo);
+        ReferenceDataCache referenceDataCache = mock(ReferenceDataCache.class);
+        when(referenceDataCache.catalogEtag()).thenReturn("\"catalog-1\"");
+        ReflectionTestUtils.setField(venues, "referenceDataCache", referenceDataCache);
+        UserController users = new UserController();
+        ReflectionTestUtils.setField(users, "userRepo", userRepo);
+
+        // Dates as ISO strings, as Spring Boot's ObjectMapper writes them
+        mvc = MockMvcBuilders.standaloneSetup(bookings, venues, users)
+                .setMessageConverters(new StringHttpMessageConverter(), new MappingJackson2HttpMessageConverter(
+                        Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build()))
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+        AuthUser principal = new AuthUser(7L, "player@gearup.lk", "USER");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void fullBookingPageCarriesTheCursorOfItsLastItem() throws Exception {
+        when(bookingRepo.findViewsForUser(7L, Limit.of(2))).thenReturn(List.of(booking(11L, DATE), booking(12L, DATE)));
+
+        mvc.perform(get("/api/booking/me").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].id").value(11))
+                .andExpect(jsonPath("$.items[0].date").value("2025-06-06"))
+                .andExpect(jsonPath("$.items[0].timeSlot").value("18:00-19:00"))
+                .andExpect(jsonPath("$.nextCursor").value("2025-06-06_12"));
+    }
+
+    @Test
+    void bookingCursorContinuesAfterTheLastItemAndTheLastPageEndsTheListing() throws Exception {
+        when(bookingRepo.findViewsForUserAfter(7L, DATE, 12L, Limit.of(2))).thenReturn(List.of(booking(13L, DATE.plusDays(1))));
+
+        mvc.perform(get("/api/booking/me").param("size", "2").param("after", "2025-06-06_12"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+    }
+
+    @Test
+    void descendingBookingPagesGoBackwards() throws Exception {
+        when(bookingRepo.findViewsForUserBefore(7L, DATE, 12L, Limit.of(50))).thenReturn(List.of(booking(11L, DATE)));
+
+        mvc.perform(get("/api/booking/me").param("sort", "DESC").param("after", "2025-06-06_12"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(11));
+        verify(bookingRepo).findViewsForUserBefore(7L, DATE, 12L, Limit.of(50));
+    }
+
+    @Test
+    void badCursorOrSortIsABadRequest() throws Exception {
+        mvc.perform(get("/api/booking/me").param("after", "12"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor"));
+        mvc.perform(get("/api/booking/me").param("after", "June_12"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/booking/me").param("sort", "newest"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("sort must be asc or desc"));
+        mvc.perform(get("/api/futsal/venues").param("sort", "newest"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(bookingRepo, venueRepo);
+    }
+
+    @Test
+    void venuePagesAreKeyedOnTheIdAndSizeIsClamped() throws Exception {
+        List<VenueView> page = LongStream.rangeClosed(1, 200)
+                .mapToObj(id -> new VenueView(id, "venue " + id, "Colombo", "011")).toList();
+        when(venueRepo.findViewsAfter(0L, Limit.of(200))).thenReturn(page);
+        when(venueRepo.findViewsAfter(200L, Limit.of(200))).thenReturn(List.of());
+
+        mvc.perform(get("/api/futsal/venues").param("size", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(200)))
+                .andExpect(jsonPath("$.items[0].name").value("venue 1"))
+                .andExpect(jsonPath("$.nextCursor").value("200"));
+        mvc.perform(get("/api/futsal/venues").param("size", "5000").param("after", "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(0)))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+    }
+
+    @Test
+    void userPagesDefaultToFiftyAndCanRunBackwards() throws Exception {
+        when(userRepo.findViewsBefore(Long.MAX_VALUE, Limit.of(50))).thenReturn(List.of(user(9L), user(8L)));
+
+        mvc.perform(get("/api/user/admin/all").param("sort", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(9))
+                .andExpect(jsonPath("$.items[0].password").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+    }
+
+    private static BookingView booking(Long id, LocalDate date) {
+        return new BookingView(id, 1L, "court 1", date, 18 * 60, 60, "CONFIRMED", false, 1, true, false, null);
+    }
+
+    private static UserView user(Long id) {
+        return new UserView(id, "user " + id, "user" + id + "@gearup.lk", "USER", null, null, null, null);
+    }
+}
@@ -0,0 +1,57 @@
+package com.omnitrix.gearup.controller;
+
+import com.omnitrix.gearup.model.BookedSlot;
+import com.omnitrix.gearup.model.CourtSlotRow;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.SlotHoldRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class FutsalControllerTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+
+    private final BookingRepository bookingRepo = mock(BookingRepository.class);
+    private final SlotHoldRepository holdRepo = mock(SlotHoldRepository.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        FutsalController controller = new FutsalController();
+        ReflectionTestUtils.setField(controller, "bookingRepo", bookingRepo);
+        ReflectionTestUtils.setField(controller, "holdRepo", holdRepo);
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void venueGridShowsHeldSlotsAsTaken() throws Exception {
+        when(bookingRepo.findVenueSlots(1L, DATE, DATE.plusDays(1))).thenReturn(List.of(
+                new CourtSlotRow(1L, "court 1", 60, DATE, 18 * 60, 60),
+                new CourtSlotRow(2L, "court 2", 60, null, 0, 0)));
+        when(holdRepo.findActiveOnVenue(eq(1L), eq(DATE), eq(DATE.plusDays(1)), any())).thenReturn(List.of(
+                new BookedSlot(1L, DATE, 19 * 60, 60),
+                new BookedSlot(2L, DATE.plusDays(1), 6 * 60, 60)));
+
+        // On an hourly grid slot i starts at i:00
+        mvc.perform(get("/api/futsal/venues/1/availability").param("from", "2025-06-06").param("to", "2025-06-07"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.courts[0].booked[0]").value((1L << 18) | (1L << 19)))
+                .andExpect(jsonPath("$.courts[0].booked[1]").value(0))
+                .andExpect(jsonPath("$.courts[1].booked[0]").value(0))
+                .andExpect(jsonPath("$.courts[1].booked[1]").value(1L << 6));
+    }
+}
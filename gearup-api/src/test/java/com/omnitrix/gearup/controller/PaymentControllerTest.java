@@ -0,0 +1,91 @@
+package com.omnitrix.gearup.controller;
+
+import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.repository.CourtRepository;
+import com.omnitrix.gearup.repository.UserRepository;
+import com.omnitrix.gearup.security.AuthUser;
+import com.omnitrix.gearup.service.BookingService;
+import com.omnitrix.gearup.service.SlotHolds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PaymentControllerTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+    private static final TimeSlot SLOT = TimeSlot.parse("19:00-20:00");
+
+    private final SlotHolds slotHolds = mock(SlotHolds.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        UserRepository userRepo = mock(UserRepository.class);
+        CourtRepository courtRepo = mock(CourtRepository.class);
+        BookingService bookingService = mock(BookingService.class);
+        User user = new User();
+        user.setId(7L);
+        user.setName("player");
+        user.setEmail("player@gearup.lk");
+        Court court = new Court();
+        court.setId(1L);
+        when(userRepo.findById(7L)).thenReturn(Optional.of(user));
+        when(courtRepo.findById(1L)).thenReturn(Optional.of(court));
+        when(bookingService.weeksFor(DATE, null, DATE.plusWeeks(3))).thenReturn(4);
+
+        PaymentController controller = new PaymentController();
+        ReflectionTestUtils.setField(controller, "userRepo", userRepo);
+        ReflectionTestUtils.setField(controller, "courtRepo", courtRepo);
+        ReflectionTestUtils.setField(controller, "bookingService", bookingService);
+        ReflectionTestUtils.setField(controller, "slotHolds", slotHolds);
+        mvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthUser(7L, "player@gearup.lk", "USER"), null, List.of()));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void holdPreparedUntilADateIsReusedWhenPaying() throws Exception {
+        SlotHolds.Hold prepared = new SlotHolds.Hold("hold-1", 7L, 1L, SLOT, SlotHolds.weekly(DATE, 4),
+                LocalDateTime.now().plusMinutes(10));
+        when(slotHolds.find("hold-1", 7L)).thenReturn(Optional.of(prepared));
+
+        mvc.perform(post("/api/payment/initiate").contentType(MediaType.APPLICATION_JSON).content("""
+                        {"courtId": 1, "date": "2025-06-06", "timeSlot": "19:00-20:00", "permanent": true,
+                         "untilDate": "2025-06-27", "reference": "hold-1"}"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.payment_reference").value("hold-1"));
+        verify(slotHolds, never()).place(anyLong(), anyLong(), anyList(), any());
+    }
+}
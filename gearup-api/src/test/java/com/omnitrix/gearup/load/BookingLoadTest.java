@@ -0,0 +1,313 @@
+package com.omnitrix.gearup.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Peak-hour load on the whole app, booted against an embedded Postgres seeded with a synthetic
+// catalog: courts across venues, users with real BCrypt hashes, and a history of bookings whose
+// last week runs into the dates the clients book. Virtual-thread clients each log in, then loop
+// over a mix of slot reads, one-time and permanent bookings, payments (initiate, then the PayHere
+// notification) and logins until the run ends. The report has throughput and latency percentiles
+// per operation. Double bookings are looked for twice: the same slot acknowledged to two clients,
+// and overlapping active rows left in the database once the payment worker has caught up.
+//
+// Not part of the normal build; run it with
+//   ./mvnw test -Pload [-Dgearup.load.courts=2000 -Dgearup.load.bookings=2000000
+//                       -Dgearup.load.clients=500 -Dgearup.load.duration=PT1M]
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.server.port=-1",
+        "gearup.notifications.sender=log",
+        "logging.level.com.omnitrix.gearup=WARN"
+})
+@DirtiesContext
+class BookingLoadTest {
+
+    private static final int COURTS = Integer.getInteger("gearup.load.courts", 2000);
+    private static final int VENUES = Math.max(1, COURTS / 8);
+    private static final int BOOKINGS = Integer.getInteger("gearup.load.bookings", 2_000_000);
+    private static final int USERS = Integer.getInteger("gearup.load.users", 5000);
+    private static final int CLIENTS = Integer.getInteger("gearup.load.clients", 500);
+    private static final Duration DURATION = Duration.parse(System.getProperty("gearup.load.duration", "PT1M"));
+    // Clients book the next two weeks, 06:00 to 23:00 on the hourly grid
+    private static final int BOOKING_DAYS = 14;
+    private static final int FIRST_HOUR = 6;
+    private static final int LAST_HOUR = 22;
+    // Seeded history: 12 evening-ish hours per court and day, the last week of it still ahead
+    private static final int SEEDED_HOURS = 12;
+    private static final int SEEDED_FUTURE_DAYS = 7;
+    private static final int PERMANENT_WEEKS = 3;
+    private static final String PASSWORD = "load-test-password";
+
+    // Outlives the context, which is closed after the class; the embedded server stops at JVM exit
+    private static EmbeddedPostgres postgres;
+
+    @LocalServerPort private int port;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LoadStats stats = new LoadStats();
+    // "court|date|start" -> booking responses that claimed the slot
+    private final Map<String, AtomicInteger> acknowledged = new ConcurrentHashMap<>();
+    private HttpClient http;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        postgres = EmbeddedPostgres.builder().setServerConfig("max_connections", "200").start();
+        DataSource dataSource = postgres.getPostgresDatabase();
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        seed(dataSource);
+        registry.add("spring.datasource.url",
+                () -> postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @Test
+    void mixedPeakLoad() throws Exception {
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            http = HttpClient.newBuilder().executor(clients).connectTimeout(Duration.ofSeconds(5)).build();
+            long deadline = System.nanoTime() + DURATION.toNanos();
+            long started = System.nanoTime();
+            List<Future<?>> running = new ArrayList<>(CLIENTS);
+            for (int i = 0; i < CLIENTS; i++) {
+                int user = i % USERS + 1;
+                running.add(clients.submit(() -> {
+                    runClient(user, deadline);
+                    return null;
+                }));
+            }
+            for (Future<?> client : running) {
+                client.get();
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+            awaitPaymentWorker();
+
+            long acknowledgedTwice = acknowledged.values().stream().filter(n -> n.get() > 1).count();
+            long overlapping = overlappingActiveBookings();
+            System.out.printf("%nLoad run: %d courts, %d seeded bookings, %d users, %d clients for %s%n%s"
+                            + "Slots acknowledged to more than one booking: %d%n"
+                            + "Overlapping active bookings in the database: %d%n%n",
+                    COURTS, BOOKINGS, USERS, CLIENTS, DURATION, stats.report(elapsed), acknowledgedTwice, overlapping);
+
+            assertThat(acknowledgedTwice).isZero();
+            assertThat(overlapping).isZero();
+            assertThat(stats.count("5xx")).as("server errors").isZero();
+        }
+    }
+
+    private void runClient(int user, long deadline) {
+        String email = email(user);
+        String token = login(email);
+        while (System.nanoTime() < deadline) {
+            if (token == null) {
+                token = login(email);
+                continue;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long courtId = random.nextInt(COURTS) + 1;
+            LocalDate date = LocalDate.now().plusDays(random.nextInt(BOOKING_DAYS) + 1);
+            int hour = FIRST_HOUR + random.nextInt(LAST_HOUR - FIRST_HOUR + 1);
+            int pick = random.nextInt(100);
+            if (pick < 60) {
+                send("slots", get("/api/booking/courts/" + courtId + "/slots?date=" + date, token));
+            } else if (pick < 75) {
+                book(token, courtId, date, hour, false);
+            } else if (pick < 80) {
+                book(token, courtId, date, hour, true);
+            } else if (pick < 90) {
+                pay(token, email, courtId, date, hour);
+            } else {
+                token = login(email);
+            }
+        }
+    }
+
+    private String login(String email) {
+        HttpResponse<String> response = send("login", post("/api/auth/login", null,
+                "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}"));
+        return response != null && response.statusCode() == 200 ? field(response, "accessToken") : null;
+    }
+
+    private void book(String token, long courtId, LocalDate date, int hour, boolean permanent) {
+        String body = "{\"courtId\":" + courtId + ",\"date\":\"" + date + "\",\"timeSlot\":\"" + label(hour) + "\""
+                + (permanent ? ",\"permanent\":true,\"weeks\":" + PERMANENT_WEEKS : "") + "}";
+        HttpResponse<String> response = send(permanent ? "book-permanent" : "book",
+                post("/api/booking/book", token, body));
+        if (response != null && response.statusCode() == 200) {
+            for (int week = 0; week < (permanent ? PERMANENT_WEEKS : 1); week++) {
+                acknowledged.computeIfAbsent(courtId + "|" + date.plusWeeks(week) + "|" + hour,
+                        k -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+    }
+
+    // Holds the slot, then delivers the successful PayHere notification; the booking itself is
+    // made by the payment worker and only shows up in the database check
+    private void pay(String token, String email, long courtId, LocalDate date, int hour) {
+        HttpResponse<String> initiated = send("payment-initiate", post("/api/payment/initiate", token,
+                "{\"courtId\":" + courtId + ",\"date\":\"" + date + "\",\"timeSlot\":\"" + label(hour) + "\"}"));
+        if (initiated == null || initiated.statusCode() != 200) {
+            return;
+        }
+        String form = "order_id=" + field(initiated, "payment_reference") + "&status_code=2"
+                + "&email=" + URLEncoder.encode(email, StandardCharsets.UTF_8)
+                + "&custom_1=" + courtId + "&custom_2=" + date
+                + "&custom_3=" + URLEncoder.encode(label(hour), StandardCharsets.UTF_8) + "&custom_4=false";
+        // The endpoint is not open to anonymous callers, so the client's own token stands in for PayHere
+        send("payment-notify", HttpRequest.newBuilder(uri("/api/payment/notify"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build());
+    }
+
+    private HttpResponse<String> send(String op, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            stats.record(op, start, response.statusCode());
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            stats.record(op, start, -1);
+            return null;
+        }
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(uri(path)).header("Authorization", "Bearer " + token).GET().build();
+    }
+
+    private HttpRequest post(String path, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private String field(HttpResponse<String> response, String name) {
+        try {
+            JsonNode node = mapper.readTree(response.body()).get(name);
+            return node == null ? null : node.asText();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Stored notifications are booked by a scheduled worker; wait until none is left to claim
+    private void awaitPaymentWorker() throws SQLException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        try (Connection conn = postgres.getPostgresDatabase().getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "select count(*) from payment_notifications where state in ('RECEIVED', 'PROCESSING')")) {
+            while (System.nanoTime() < deadline) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    if (rs.getLong(1) == 0) {
+                        return;
+                    }
+                }
+                Thread.sleep(500);
+            }
+        }
+    }
+
+    // Pairs of active bookings on the same court and date whose minute ranges overlap, over every
+    // date the clients could have booked
+    private static long overlappingActiveBookings() throws SQLException {
+        try (Connection conn = postgres.getPostgresDatabase().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("select count(*) from bookings a join bookings b " +
+                     "on a.court_id = b.court_id and a.date = b.date and a.id < b.id " +
+                     "and int4range(a.start_minute, a.start_minute + a.duration_minutes) " +
+                     "&& int4range(b.start_minute, b.start_minute + b.duration_minutes) " +
+                     "where not a.is_cancelled and not b.is_cancelled and a.date > current_date")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void seed(DataSource dataSource) throws SQLException {
+        int seededDays = Math.max(1, (BOOKINGS + COURTS * SEEDED_HOURS - 1) / (COURTS * SEEDED_HOURS));
+        String hash = new BCryptPasswordEncoder().encode(PASSWORD);
+        try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+            try (PreparedStatement ps = conn.prepareStatement("insert into users (name, email, password, role, " +
+                    "time_zone) select 'load user ' || i, 'load' || i || '@gearup.lk', ?, 'USER', 'Asia/Colombo' " +
+                    "from generate_series(1, ?) i")) {
+                ps.setString(1, hash);
+                ps.setInt(2, USERS);
+                ps.executeUpdate();
+            }
+            st.execute("insert into futsal_venues (name, location, contact) " +
+                    "select 'venue ' || i, 'city ' || i % 25, '011' || lpad(i::text, 7, '0') " +
+                    "from generate_series(1, " + VENUES + ") i");
+            st.execute("insert into courts (name, sport_type, slot_minutes, venue_id) " +
+                    "select 'court ' || i, case when i % 3 = 0 then 'CRICKET' else 'FOOTBALL' end, 60, " +
+                    "(i - 1) % " + VENUES + " + 1 from generate_series(1, " + COURTS + ") i");
+            // Booking g is court g % COURTS at hour 10 + (g / COURTS) % 12, so no two overlap
+            st.execute("insert into bookings (id, user_id, court_id, date, start_minute, duration_minutes, " +
+                    "status, is_permanent, week_number, payment_received, is_cancelled) " +
+                    "select g + 1, g % " + USERS + " + 1, g % " + COURTS + " + 1, " +
+                    "current_date + " + SEEDED_FUTURE_DAYS + " - " + seededDays + " + g / " + COURTS * SEEDED_HOURS +
+                    ", (10 + (g / " + COURTS + ") % " + SEEDED_HOURS + ") * 60, 60, " +
+                    "case when g % 20 = 0 then 'CANCELLED' else 'CONFIRMED' end, g % 7 = 0, 1, g % 3 <> 0, " +
+                    "g % 20 = 0 from generate_series(0, " + (BOOKINGS - 1) + ") g");
+            st.execute("select setval('bookings_seq', " + (BOOKINGS + 1) + ")");
+            st.execute("analyze");
+        }
+    }
+
+    private static String email(int user) {
+        return "load" + user + "@gearup.lk";
+    }
+
+    private static String label(int hour) {
+        return String.format("%02d:00-%02d:00", hour, (hour + 1) % 24);
+    }
+}
@@ -0,0 +1,82 @@
+package com.omnitrix.gearup.load;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Per-operation latency histograms and response counts for a load run, kept in a Micrometer
+// registry of its own so percentiles come from the same HdrHistogram-backed timers the app uses.
+class LoadStats {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Counter>> responses = new ConcurrentHashMap<>();
+
+    void record(String op, long startNanos, int status) {
+        timers.computeIfAbsent(op, this::timer).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        responses.computeIfAbsent(op, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(statusClass(status), s -> registry.counter("load.responses", "op", op, "status", s))
+                .increment();
+    }
+
+    long count(String op, String statusClass) {
+        Counter counter = responses.getOrDefault(op, Map.of()).get(statusClass);
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    long count(String statusClass) {
+        return responses.keySet().stream().mapToLong(op -> count(op, statusClass)).sum();
+    }
+
+    String report(Duration elapsed) {
+        StringBuilder out = new StringBuilder();
+        double seconds = elapsed.toMillis() / 1000.0;
+        out.append(String.format("%-18s %9s %9s %9s %9s %9s %9s %9s  %s%n",
+                "operation", "count", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "responses"));
+        long total = 0;
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(timers).entrySet()) {
+            Timer timer = entry.getValue();
+            ValueAtPercentile[] p = timer.takeSnapshot().percentileValues();
+            Map<String, Long> byStatus = new TreeMap<>();
+            responses.get(entry.getKey()).forEach((status, counter) -> byStatus.put(status, (long) counter.count()));
+            out.append(String.format("%-18s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f  %s%n",
+                    entry.getKey(), timer.count(), timer.count() / seconds,
+                    p[0].value(TimeUnit.MILLISECONDS), p[1].value(TimeUnit.MILLISECONDS),
+                    p[2].value(TimeUnit.MILLISECONDS), p[3].value(TimeUnit.MILLISECONDS),
+                    timer.max(TimeUnit.MILLISECONDS), byStatus));
+            total += timer.count();
+        }
+        out.append(String.format("%-18s %9d %9.1f%n", "total", total, total / seconds));
+        return out.toString();
+    }
+
+    // 409 and 503 are expected answers under load (slot taken, bulkhead full), so they get their own class
+    private static String statusClass(int status) {
+        return switch (status) {
+            case 409 -> "409";
+            case 503 -> "503";
+            case -1 -> "io-error";
+            default -> status / 100 + "xx";
+        };
+    }
+
+    // Percentiles cover the whole run rather than Micrometer's default two-minute window
+    private Timer timer(String op) {
+        return Timer.builder("load.latency")
+                .tag("op", op)
+                .publishPercentiles(PERCENTILES)
+                .percentilePrecision(3)
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(registry);
+    }
+}
@@ -0,0 +1,123 @@
+package com.omnitrix.gearup.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+// ex_bookings_active_overlap against a real Postgres: active bookings on a court and date may not
+// share a minute, whatever their starts. Cancelled ones never block, but cannot be restored over
+// an active booking.
+class BookingOverlapConstraintTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+    private static Connection conn;
+
+    @BeforeAll
+    static void migrateAndSeed() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        conn = dataSource.getConnection();
+        try (Statement st = conn.createStatement()) {
+            st.execute("insert into users (id, name, email, role) values (1, 'player', 'player@gearup.lk', 'USER')");
+            st.execute("insert into futsal_venues (id, name) values (1, 'venue')");
+            st.execute("insert into courts (id, name, sport_type, slot_minutes, venue_id) values " +
+                    "(1, 'court 1', 'FOOTBALL', 60, 1), (2, 'court 2', 'FOOTBALL', 90, 1)");
+        }
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        conn.close();
+        postgres.close();
+    }
+
+    @BeforeEach
+    void clear() throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("delete from bookings");
+        }
+    }
+
+    @Test
+    void overlapWithADifferentStartIsRejectedAsAnIntegrityViolation() throws SQLException {
+        // 18:00-19:30, booked while the court was on a 90-minute grid
+        insertBooking(1, 1, DATE, 18 * 60, 90, false);
+
+        SQLException e = catchThrowableOfType(SQLException.class, () -> insertBooking(2, 1, DATE, 19 * 60, 60, false));
+
+        assertThat(e.getSQLState()).isEqualTo("23P01");
+        assertThat(e.getMessage()).contains("ex_bookings_active_overlap");
+        // What the booking services catch and answer with a slot conflict
+        assertThat(new SQLErrorCodeSQLExceptionTranslator(dataSource).translate("insert", null, e))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void adjacentOtherCourtAndOtherDayBookingsAreAllowed() {
+        assertThatNoException().isThrownBy(() -> {
+            insertBooking(1, 1, DATE, 18 * 60, 90, false);
+            insertBooking(2, 1, DATE, 19 * 60 + 30, 60, false);
+            insertBooking(3, 1, DATE, 16 * 60 + 30, 90, false);
+            insertBooking(4, 2, DATE, 18 * 60, 90, false);
+            insertBooking(5, 1, DATE.plusDays(1), 18 * 60, 90, false);
+        });
+    }
+
+    @Test
+    void cancelledBookingsDoNotBlock() {
+        assertThatNoException().isThrownBy(() -> {
+            insertBooking(1, 1, DATE, 18 * 60, 90, true);
+            insertBooking(2, 1, DATE, 19 * 60, 60, false);
+        });
+    }
+
+    @Test
+    void reactivatingACancelledBookingThatNowOverlapsIsRejected() throws SQLException {
+        insertBooking(1, 1, DATE, 18 * 60, 90, true);
+        insertBooking(2, 1, DATE, 19 * 60, 60, false);
+
+        // Restoring the cancelled booking would now double-book 19:00-19:30
+        SQLException e = catchThrowableOfType(SQLException.class, () -> {
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("update bookings set is_cancelled = false, status = 'CONFIRMED' where id = 1");
+            }
+        });
+        assertThat(e.getSQLState()).isEqualTo("23P01");
+    }
+
+    private static void insertBooking(long id, long courtId, LocalDate date, int startMinute, int durationMinutes,
+                                      boolean cancelled) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("insert into bookings (id, user_id, court_id, date, " +
+                "start_minute, duration_minutes, status, is_permanent, week_number, payment_received, " +
+                "is_cancelled) values (?, 1, ?, ?, ?, ?, ?, false, 1, false, ?)")) {
+            ps.setLong(1, id);
+            ps.setLong(2, courtId);
+            ps.setObject(3, date);
+            ps.setInt(4, startMinute);
+            ps.setInt(5, durationMinutes);
+            ps.setString(6, cancelled ? "CANCELLED" : "CONFIRMED");
+            ps.setBoolean(7, cancelled);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.omnitrix.gearup.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the migrations against a real Postgres, loads a year of bookings, calls the hot repository
+// queries through Hibernate and checks that the SQL it sent is planned as index scans rather than
+// sequential scans. Each statement is explained with the parameters it was executed with, so a
+// change to a query, a mapping or an index shows up here.
+class BookingQueryPlanTest {
+
+    private static EmbeddedPostgres postgres;
+    private static Connection conn;
+    private static LocalContainerEntityManagerFactoryBean emf;
+    private static BookingRepository bookingRepo;
+    // Statements Hibernate prepared since the last clear, with the setter calls that bound them
+    private static final List<Captured> captured = new ArrayList<>();
+
+    private record Captured(String sql, List<Object[]> bindings) {
+    }
+
+    @BeforeAll
+    static void migrateAndSeed() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        DataSource dataSource = postgres.getPostgresDatabase();
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        conn = dataSource.getConnection();
+        startJpa(dataSource);
+
+        try (Statement st = conn.createStatement()) {
+            st.execute("insert into users (name, email, role) " +
+                    "select 'user ' || i, 'user' || i || '@gearup.lk', 'USER' from generate_series(1, 2000) i");
+            st.execute("insert into futsal_venues (name) select 'venue ' || i from generate_series(1, 20) i");
+            st.execute("insert into courts (name, sport_type, slot_minutes, venue_id) " +
+                    "select 'court ' || i, 'FOOTBALL', 60, i % 20 + 1 from generate_series(1, 100) i");
+            // 100 courts x 6 evening slots a day for ~333 days
+            st.execute("insert into bookings (id, user_id, court_id, date, start_minute, duration_minutes, status, " +
+                    "is_permanent, week_number, payment_received, is_cancelled) " +
+                    "select g, g % 2000 + 1, g % 100 + 1, date '2025-01-01' + g / 600, (16 + (g / 100) % 6) * 60, 60, " +
+                    "'CONFIRMED', g % 7 = 0, 1, g % 3 <> 0, g % 10 = 0 from generate_series(0, 199999) g");
+            st.execute("analyze");
+        }
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        emf.destroy();
+        conn.close();
+        postgres.close();
+    }
+
+    @Test
+    void dayAvailabilityUsesIndex() throws SQLException {
+        assertIndexed(() -> bookingRepo.findBookedRanges(42L, LocalDate.of(2025, 6, 6)));
+    }
+
+    @Test
+    void seriesConflictCheckUsesIndex() throws SQLException {
+        // A 4-week series
+        LocalDate first = LocalDate.of(2025, 6, 6);
+        assertIndexed(() -> bookingRepo.findBookedSlots(List.of(42L),
+                List.of(first, first.plusWeeks(1), first.plusWeeks(2), first.plusWeeks(3)), 1140, 1200));
+    }
+
+    @Test
+    void courtDayLookupUsesIndex() throws SQLException {
+        assertIndexed(() -> bookingRepo.findByCourtIdAndDate(42L, LocalDate.of(2025, 6, 6)));
+    }
+
+    @Test
+    void userBookingsPageUsesIndex() throws SQLException {
+        assertIndexed(() -> bookingRepo.findViewsForUserAfter(7L, LocalDate.of(2025, 3, 1), 100L, Limit.of(50)));
+    }
+
+    @Test
+    void dueRemindersUsePartialIndex() throws SQLException {
+        String plan = assertIndexed(() -> bookingRepo.findDueReminders(LocalDate.of(2025, 6, 6)));
+        assertThat(plan).contains("ix_bookings_unpaid_permanent_date");
+        // No seeded booking belongs to a series, so the planner may go through the series index instead
+        assertIndexed(() -> bookingRepo.findUnpaidSeriesIdsOn(LocalDate.of(2025, 6, 6)));
+    }
+
+    // Runs the query through the repository and explains the first statement it sent to bookings
+    private static String assertIndexed(Runnable query) throws SQLException {
+        synchronized (captured) {
+            captured.clear();
+        }
+        query.run();
+        Captured statement;
+        synchronized (captured) {
+            statement = captured.stream().filter(c -> c.sql().contains("bookings")).findFirst()
+                    .orElseThrow(() -> new AssertionError("No statement on bookings in " + captured));
+        }
+
+        StringBuilder plan = new StringBuilder(statement.sql()).append('\n');
+        try (PreparedStatement ps = conn.prepareStatement("explain " + statement.sql())) {
+            for (Object[] binding : statement.bindings()) {
+                invoke((Method) binding[0], ps, (Object[]) binding[1]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+        }
+        assertThat(plan.toString())
+                .as(plan.toString())
+                .contains("Index")
+                .doesNotContain("Seq Scan on bookings");
+        return plan.toString();
+    }
+
+    // Hibernate over the migrated schema, named the way Spring Boot names it, with every prepared
+    // statement recorded on its way to the driver
+    private static void startJpa(DataSource dataSource) {
+        emf = new LocalContainerEntityManagerFactoryBean();
+        emf.setDataSource(new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return recording(super.getConnection());
+            }
+        });
+        emf.setPackagesToScan("com.omnitrix.gearup.model");
+        emf.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        emf.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "validate",
+                "hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName(),
+                "hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName()));
+        emf.afterPropertiesSet();
+        EntityManagerFactory factory = emf.getObject();
+        bookingRepo = new JpaRepositoryFactory(SharedEntityManagerCreator.createSharedEntityManager(factory))
+                .getRepository(BookingRepository.class);
+    }
+
+    private static Connection recording(Connection target) {
+        return (Connection) Proxy.newProxyInstance(BookingQueryPlanTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(method, target, args);
+                    if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement ps) {
+                        Captured statement = new Captured((String) args[0], new ArrayList<>());
+                        synchronized (captured) {
+                            captured.add(statement);
+                        }
+                        return recording(ps, statement);
+                    }
+                    return result;
+                });
+    }
+
+    private static PreparedStatement recording(PreparedStatement target, Captured statement) {
+        return (PreparedStatement) Proxy.newProxyInstance(BookingQueryPlanTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length > 1
+                            && args[0] instanceof Integer) {
+                        statement.bindings().add(new Object[]{method, args});
+                    }
+                    return invoke(method, target, args);
+                });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws SQLException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException sql) {
+                throw sql;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
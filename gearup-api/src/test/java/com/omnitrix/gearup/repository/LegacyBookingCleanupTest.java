@@ -0,0 +1,135 @@
+package com.omnitrix.gearup.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Databases adopted at the baseline may hold bookings that the later indexes and constraints
+// refuse. Same-start duplicates are cancelled, newest first; overlaps with different starts stop
+// the migration until an operator has resolved them.
+class LegacyBookingCleanupTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+
+    private static EmbeddedPostgres postgres;
+    private static int databases;
+
+    @BeforeAll
+    static void start() throws Exception {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    void newerBookingsWithTheSameStartAreCancelledBeforeTheUniqueIndex() throws SQLException {
+        DataSource dataSource = baseline();
+        try (Connection conn = dataSource.getConnection()) {
+            insertBooking(conn, 1, 1, DATE, 18 * 60, 60, false);
+            insertBooking(conn, 2, 1, DATE, 18 * 60, 60, false);
+            insertBooking(conn, 3, 1, DATE, 18 * 60, 60, false);
+            insertBooking(conn, 4, 1, DATE, 19 * 60, 60, false);
+            insertBooking(conn, 5, 2, DATE, 18 * 60, 60, false);
+            insertBooking(conn, 6, 1, DATE, 19 * 60, 60, true);
+
+            Flyway.configure().dataSource(dataSource).load().migrate();
+
+            assertThat(activeIds(conn)).containsExactly(1L, 4L, 5L);
+        }
+    }
+
+    @Test
+    void overlappingBookingsStopTheOverlapConstraintUntilResolved() throws SQLException {
+        DataSource dataSource = baseline();
+        try (Connection conn = dataSource.getConnection()) {
+            // 18:00-19:30 from a 90-minute grid, then hourly bookings at 19:00 (paid) and 20:00
+            insertBooking(conn, 1, 1, DATE, 18 * 60, 90, false);
+            insertBooking(conn, 2, 1, DATE, 19 * 60, 60, false);
+            insertBooking(conn, 3, 1, DATE, 20 * 60, 60, false);
+            insertBooking(conn, 4, 2, DATE, 19 * 60, 60, false);
+            try (Statement st = conn.createStatement()) {
+                st.execute("update bookings set payment_received = true where id = 2");
+            }
+
+            assertThatThrownBy(() -> Flyway.configure().dataSource(dataSource).load().migrate())
+                    .isInstanceOf(FlywayException.class)
+                    .hasMessageContaining("1 pairs")
+                    .hasMessageContaining("1/2");
+            // Nothing was cancelled, and the migrations before it are kept
+            assertThat(activeIds(conn)).containsExactly(1L, 2L, 3L, 4L);
+            assertThat(Flyway.configure().dataSource(dataSource).load().info().current().getVersion().getVersion())
+                    .isEqualTo("9");
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("update bookings set is_cancelled = true, status = 'CANCELLED' where id = 1");
+            }
+            Flyway.configure().dataSource(dataSource).load().migrate();
+
+            assertThat(activeIds(conn)).containsExactly(2L, 3L, 4L);
+        }
+    }
+
+    // A fresh database migrated to V1, with one user, venue and two courts
+    private static DataSource baseline() throws SQLException {
+        String name = "legacy_" + ++databases;
+        try (Connection conn = postgres.getPostgresDatabase().getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("create database " + name);
+        }
+        DataSource dataSource = postgres.getDatabase("postgres", name);
+        Flyway.configure().dataSource(dataSource).target("1").load().migrate();
+        try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("insert into users (id, name, email, role) values (1, 'player', 'player@gearup.lk', 'USER')");
+            st.execute("insert into futsal_venues (id, name) values (1, 'venue')");
+            st.execute("insert into courts (id, name, sport_type, slot_minutes, venue_id) values " +
+                    "(1, 'court 1', 'FOOTBALL', 60, 1), (2, 'court 2', 'FOOTBALL', 60, 1)");
+        }
+        return dataSource;
+    }
+
+    private static List<Long> activeIds(Connection conn) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("select id from bookings where not is_cancelled order by id")) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static void insertBooking(Connection conn, long id, long courtId, LocalDate date, int startMinute,
+                                      int durationMinutes, boolean cancelled) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("insert into bookings (id, user_id, court_id, date, " +
+                "start_minute, duration_minutes, status, is_permanent, week_number, payment_received, " +
+                "is_cancelled) values (?, 1, ?, ?, ?, ?, ?, false, 1, false, ?)")) {
+            ps.setLong(1, id);
+            ps.setLong(2, courtId);
+            ps.setObject(3, date);
+            ps.setInt(4, startMinute);
+            ps.setInt(5, durationMinutes);
+            ps.setString(6, cancelled ? "CANCELLED" : "CONFIRMED");
+            ps.setBoolean(7, cancelled);
+            ps.executeUpdate();
+        }
+    }
+}
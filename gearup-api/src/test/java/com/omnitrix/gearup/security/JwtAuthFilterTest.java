@@ -0,0 +1,92 @@
+package com.omnitrix.gearup.security;
+
+import com.omnitrix.gearup.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class JwtAuthFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JwtUtil jwtUtil;
+    private VerifiedTokenCache tokenCache;
+    private JwtAuthFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = spy(new JwtUtil("test-secret-for-the-jwt-filter-at-least-32-bytes"));
+        tokenCache = new VerifiedTokenCache(100);
+        filter = new JwtAuthFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "tokenCache", tokenCache);
+        ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+        filter.registerTimers();
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void verifiedTokenIsCachedAndServedWithoutParsingAgain() throws Exception {
+        String token = jwtUtil.generateAccessToken(user());
+
+        Authentication first = authenticate(token);
+        Authentication second = authenticate(token);
+
+        assertThat(first.getPrincipal()).isInstanceOfSatisfying(AuthUser.class, u -> {
+            assertThat(u.getId()).isEqualTo(7L);
+            assertThat(u.getRole()).isEqualTo("USER");
+        });
+        assertThat(second.getPrincipal()).isSameAs(first.getPrincipal());
+        verify(jwtUtil, times(1)).parse(anyString());
+        assertThat(tokenCache.size()).isEqualTo(1);
+        assertThat(meterRegistry.get("gearup.auth.jwt").tag("result", "cached").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void badTokensLeaveTheRequestUnauthenticated() throws Exception {
+        String refresh = jwtUtil.generateRefreshToken(7L, "player@gearup.lk", "family",
+                new Date(System.currentTimeMillis() + 60_000));
+
+        assertThat(authenticate("not-a-jwt")).isNull();
+        assertThat(authenticate(refresh)).isNull();
+        assertThat(tokenCache.size()).isZero();
+        assertThat(meterRegistry.get("gearup.auth.jwt").tag("result", "rejected").timer().count()).isEqualTo(2);
+    }
+
+    // Runs one request through the filter and returns the authentication it ended up with
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/booking/my");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertThat(chain.getRequest()).isSameAs(request);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(7L);
+        user.setEmail("player@gearup.lk");
+        user.setRole("USER");
+        return user;
+    }
+}
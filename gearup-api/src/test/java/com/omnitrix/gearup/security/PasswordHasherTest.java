@@ -0,0 +1,99 @@
+package com.omnitrix.gearup.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHasherTest {
+
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void shutdown() {
+        if (hasher != null) {
+            hasher.shutdown();
+        }
+    }
+
+    @Test
+    void hashesAtTheConfiguredCostAndFlagsOtherCostsForRehash() {
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(5), 5, 2, 4);
+        String hash = hasher.encode("secret");
+        String older = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertThat(hash).startsWith("$2a$05$");
+        assertThat(hasher.matches("secret", hash)).isTrue();
+        assertThat(hasher.matches("wrong", hash)).isFalse();
+        assertThat(hasher.matches("secret", older)).isTrue();
+        assertThat(hasher.needsRehash(hash)).isFalse();
+        assertThat(hasher.needsRehash(older)).isTrue();
+        assertThat(hasher.needsRehash("plain-text")).isTrue();
+    }
+
+    @Test
+    void unknownUserNeverMatches() {
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(4), 4, 1, 1);
+
+        assertThat(hasher.matches("gearup-no-such-user", null)).isFalse();
+    }
+
+    @Test
+    void costIsReadFromTheHashPrefix() {
+        assertThat(PasswordHasher.costOf("$2a$10$abcdefghijklmnopqrstuv")).isEqualTo(10);
+        assertThat(PasswordHasher.costOf("$2b$04$abcdefghijklmnopqrstuv")).isEqualTo(4);
+        assertThat(PasswordHasher.costOf("$2a$1x$abc")).isEqualTo(-1);
+        assertThat(PasswordHasher.costOf(null)).isEqualTo(-1);
+    }
+
+    @Test
+    void fullQueueShedsInsteadOfWaiting() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                if (!"gearup-no-such-user".contentEquals(rawPassword)) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return "$2a$04$" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals(encode(rawPassword));
+            }
+        };
+        // One thread, one queued task: the third concurrent request is shed
+        hasher = new PasswordHasher(blocking, 4, 1, 1);
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> running = callers.submit(() -> hasher.encode("a"));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> queued = callers.submit(() -> hasher.encode("b"));
+            while (hasher.queueDepth() == 0) {
+                Thread.onSpinWait();
+            }
+
+            assertThatThrownBy(() -> hasher.encode("c")).isInstanceOf(PasswordHashingBusyException.class);
+            assertThat(hasher.rejectedCount()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(running.get()).isEqualTo("$2a$04$a");
+            assertThat(queued.get()).isEqualTo("$2a$04$b");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.omnitrix.gearup.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RefreshTokenRevocationsTest {
+
+    @Test
+    void revokedFamiliesAreFoundAndOthersAreNot() {
+        RefreshTokenRevocations revocations = new RefreshTokenRevocations(1000);
+        String revoked = UUID.randomUUID().toString();
+        revocations.revoke(revoked, Long.MAX_VALUE);
+
+        assertThat(revocations.isRevoked(revoked)).isTrue();
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(revocations.isRevoked(UUID.randomUUID().toString())).isFalse();
+        }
+    }
+
+    @Test
+    void filterFalsePositivesStayNearOnePercentAtCapacity() {
+        BloomFilter filter = new BloomFilter(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(UUID.randomUUID().toString());
+        }
+        int hits = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                hits++;
+            }
+        }
+        assertThat(hits).isLessThan(2_000);
+    }
+
+    @Test
+    void pruneForgetsFamiliesWhoseTokensExpired() {
+        RefreshTokenRevocations revocations = new RefreshTokenRevocations(10);
+        revocations.revoke("expired", 1_000);
+        revocations.revoke("live", 5_000);
+
+        revocations.prune(2_000);
+
+        assertThat(revocations.isRevoked("expired")).isFalse();
+        assertThat(revocations.isRevoked("live")).isTrue();
+        assertThat(revocations.size()).isEqualTo(1);
+    }
+}
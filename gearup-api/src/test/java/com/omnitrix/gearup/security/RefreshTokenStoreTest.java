@@ -0,0 +1,192 @@
+package com.omnitrix.gearup.security;
+
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The store against the real insert and rotate statements of RefreshTokenRepository, run on an
+// embedded Postgres; family revocation is checked on the mock
+class RefreshTokenStoreTest {
+
+    private static EmbeddedPostgres postgres;
+    private static Connection conn;
+    private static String insertSql;
+    private static String rotateSql;
+
+    private final JwtUtil jwtUtil = new JwtUtil("test-secret-for-refresh-tokens-at-least-32-bytes");
+    private RefreshTokenRepository tokenRepo;
+    private RefreshTokenRevocations revocations;
+    private RefreshTokenStore store;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        Flyway.configure().dataSource(postgres.getPostgresDatabase()).load().migrate();
+        conn = postgres.getPostgresDatabase().getConnection();
+        try (Statement st = conn.createStatement()) {
+            st.execute("insert into users (id, email, role) values (7, 'player@gearup.lk', 'USER')");
+        }
+        insertSql = query("insert", String.class, Long.class, String.class, String.class,
+                LocalDateTime.class, LocalDateTime.class)
+                .replace(":tokenHash", "?").replace(":userId", "?").replace(":family", "?")
+                .replace(":device", "?").replace(":issuedAt", "?").replace(":expiresAt", "?");
+        rotateSql = query("rotate", String.class, String.class, LocalDateTime.class, LocalDateTime.class);
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        conn.close();
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (Statement st = conn.createStatement()) {
+            st.execute("delete from refresh_tokens");
+        }
+        tokenRepo = mock(RefreshTokenRepository.class);
+        when(tokenRepo.insert(any(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                ps.setString(1, inv.getArgument(0));
+                ps.setLong(2, inv.getArgument(1));
+                ps.setString(3, inv.getArgument(2));
+                ps.setString(4, inv.getArgument(3));
+                ps.setTimestamp(5, Timestamp.valueOf(inv.<LocalDateTime>getArgument(4)));
+                ps.setTimestamp(6, Timestamp.valueOf(inv.<LocalDateTime>getArgument(5)));
+                return ps.executeUpdate();
+            }
+        });
+        when(tokenRepo.rotate(any(), any(), any(), any())).thenAnswer(inv -> {
+            // :now appears twice, so the parameters are bound by name through a rewrite
+            String sql = rotateSql
+                    .replace(":previous", "'" + inv.getArgument(0) + "'")
+                    .replace(":tokenHash", "'" + inv.getArgument(1) + "'")
+                    .replace(":now", "'" + Timestamp.valueOf(inv.<LocalDateTime>getArgument(2)) + "'::timestamp")
+                    .replace(":expiresAt", "'" + Timestamp.valueOf(inv.<LocalDateTime>getArgument(3)) + "'::timestamp");
+            try (Statement st = conn.createStatement()) {
+                return st.executeUpdate(sql);
+            }
+        });
+        revocations = new RefreshTokenRevocations(100);
+        store = new RefreshTokenStore(tokenRepo, revocations, jwtUtil, new SimpleMeterRegistry(),
+                Duration.ofDays(7), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void eachLoginStartsItsOwnFamily() throws Exception {
+        String phone = store.issue(user(), "phone");
+        String laptop = store.issue(user(), "laptop");
+
+        assertThat(jwtUtil.parseRefresh(phone).family()).isNotEqualTo(jwtUtil.parseRefresh(laptop).family());
+        assertThat(liveTokens()).isEqualTo(2);
+        assertThat(storedHashes()).doesNotContain(phone, laptop);
+    }
+
+    @Test
+    void refreshRotatesWithinTheFamily() throws Exception {
+        String first = store.issue(user(), "phone");
+
+        RefreshTokenStore.Rotation rotation = store.rotate(first).orElseThrow();
+
+        assertThat(rotation.userId()).isEqualTo(7L);
+        assertThat(jwtUtil.parseRefresh(rotation.refreshToken()).family())
+                .isEqualTo(jwtUtil.parseRefresh(first).family());
+        assertThat(liveTokens()).isEqualTo(1);
+        assertThat(store.rotate(rotation.refreshToken())).isPresent();
+        verify(tokenRepo, never()).revokeFamily(anyString(), anyString(), any());
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheFamily() throws Exception {
+        String first = store.issue(user(), "phone");
+        String second = store.rotate(first).orElseThrow().refreshToken();
+        String family = jwtUtil.parseRefresh(first).family();
+
+        assertThat(store.rotate(first)).isEmpty();
+
+        verify(tokenRepo).revokeFamily(eq(family), eq(RefreshTokenStore.REUSED), any());
+        assertThat(revocations.isRevoked(family)).isTrue();
+        // the holder of the newer token is turned away too, without a query
+        assertThat(store.rotate(second)).isEmpty();
+        verify(tokenRepo, never()).rotate(eq(RefreshTokenStore.hash(second)), any(), any(), any());
+    }
+
+    @Test
+    void logoutEndsOnlyThatDevice() {
+        String phone = store.issue(user(), "phone");
+        String laptop = store.issue(user(), "laptop");
+
+        assertThat(store.revoke(phone)).isTrue();
+        assertThat(store.revoke(phone)).isTrue(); // second logout is answered from memory
+
+        verify(tokenRepo, times(1)).revokeFamily(anyString(), eq(RefreshTokenStore.LOGOUT), any());
+        assertThat(store.rotate(phone)).isEmpty();
+        assertThat(store.rotate(laptop)).isPresent();
+    }
+
+    @Test
+    void tokensThatAreNotRefreshTokensAreRejected() {
+        String access = jwtUtil.generateAccessToken(user());
+
+        assertThat(store.rotate(access)).isEmpty();
+        assertThat(store.rotate("not-a-jwt")).isEmpty();
+        assertThat(store.rotate(null)).isEmpty();
+        assertThat(store.revoke(access)).isFalse();
+    }
+
+    private static String query(String method, Class<?>... parameterTypes) throws Exception {
+        return RefreshTokenRepository.class.getMethod(method, parameterTypes).getAnnotation(Query.class).value();
+    }
+
+    private static int liveTokens() throws Exception {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("select count(*) from refresh_tokens where revoked_at is null")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static String storedHashes() throws Exception {
+        StringBuilder hashes = new StringBuilder();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("select token_hash from refresh_tokens")) {
+            while (rs.next()) {
+                hashes.append(rs.getString(1)).append('\n');
+            }
+        }
+        return hashes.toString();
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(7L);
+        user.setEmail("player@gearup.lk");
+        user.setRole("USER");
+        return user;
+    }
+}
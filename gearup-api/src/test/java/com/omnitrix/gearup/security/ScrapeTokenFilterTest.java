@@ -0,0 +1,57 @@
+package com.omnitrix.gearup.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScrapeTokenFilterTest {
+
+    private static final int MANAGEMENT_PORT = 8081;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void scrapeTokenGrantsMetricsOnTheScrapeEndpointOfTheManagementPort() throws Exception {
+        Authentication auth = authenticate(new ScrapeTokenFilter("scrape-secret", MANAGEMENT_PORT),
+                request(MANAGEMENT_PORT, "/actuator/prometheus", "scrape-secret"));
+
+        assertThat(auth).isNotNull();
+        assertThat(auth.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_METRICS");
+    }
+
+    @Test
+    void scrapeTokenCountsNowhereElse() throws Exception {
+        ScrapeTokenFilter filter = new ScrapeTokenFilter("scrape-secret", MANAGEMENT_PORT);
+
+        assertThat(authenticate(filter, request(MANAGEMENT_PORT, "/actuator/prometheus", "wrong"))).isNull();
+        assertThat(authenticate(filter, request(MANAGEMENT_PORT, "/actuator/metrics", "scrape-secret"))).isNull();
+        assertThat(authenticate(filter, request(8080, "/actuator/prometheus", "scrape-secret"))).isNull();
+        // No token configured: only admins can scrape
+        assertThat(authenticate(new ScrapeTokenFilter("", MANAGEMENT_PORT),
+                request(MANAGEMENT_PORT, "/actuator/prometheus", ""))).isNull();
+    }
+
+    private static MockHttpServletRequest request(int port, String path, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setLocalPort(port);
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    private static Authentication authenticate(ScrapeTokenFilter filter, MockHttpServletRequest request)
+            throws Exception {
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
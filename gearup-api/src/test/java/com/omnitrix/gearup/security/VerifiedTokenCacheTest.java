@@ -0,0 +1,66 @@
+package com.omnitrix.gearup.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private static final AuthUser USER = new AuthUser(1L, "player@gearup.lk", "USER");
+
+    @Test
+    void expiredTokensAreNotServed() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        long now = System.currentTimeMillis();
+        cache.put("live", USER, now + 60_000);
+        cache.put("expired", USER, now - 1);
+
+        assertThat(cache.get("live")).isSameAs(USER);
+        assertThat(cache.get("expired")).isNull();
+        assertThat(cache.get("never seen")).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void fullCacheEvictsTheLeastRecentlyUsedToken() {
+        // 32 entries over 16 segments: two per segment
+        VerifiedTokenCache cache = new VerifiedTokenCache(32);
+        List<String> sameSegment = tokensInOneSegment(3);
+        long expiresAt = System.currentTimeMillis() + 60_000;
+
+        cache.put(sameSegment.get(0), USER, expiresAt);
+        cache.put(sameSegment.get(1), USER, expiresAt);
+        assertThat(cache.get(sameSegment.get(0))).isNotNull(); // now the most recently used
+        cache.put(sameSegment.get(2), USER, expiresAt);
+
+        assertThat(cache.get(sameSegment.get(0))).isNotNull();
+        assertThat(cache.get(sameSegment.get(1))).isNull();
+        assertThat(cache.get(sameSegment.get(2))).isNotNull();
+    }
+
+    @Test
+    void sizeStaysAtTheBoundInsteadOfStartingOver() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(32);
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        for (int i = 0; i < 1000; i++) {
+            cache.put("token-" + i, USER, expiresAt);
+            assertThat(cache.size()).isLessThanOrEqualTo(32);
+        }
+        assertThat(cache.size()).isEqualTo(32);
+        assertThat(cache.get("token-999")).isSameAs(USER);
+    }
+
+    private static List<String> tokensInOneSegment(int count) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; tokens.size() < count; i++) {
+            String token = "token-" + i;
+            if (Math.floorMod(token.hashCode(), 16) == 0) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
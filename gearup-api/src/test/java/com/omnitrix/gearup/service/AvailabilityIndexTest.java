@@ -0,0 +1,161 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.BookedSlot;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.CourtRepository;
+import com.omnitrix.gearup.repository.SlotHoldRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AvailabilityIndexTest {
+
+    private static final LocalDate DATE = LocalDate.of(2030, 1, 7);
+
+    @Test
+    void etagChangesOnlyWhenTheDayChanges() throws Exception {
+        BookingRepository bookingRepo = mock(BookingRepository.class);
+        CourtRepository courtRepo = mock(CourtRepository.class);
+        when(courtRepo.findSlotMinutes(anyLong())).thenReturn(Optional.of(60));
+        // Mocked repositories answer empty lists: nothing booked or held
+        AvailabilityIndex index = new AvailabilityIndex(bookingRepo, courtRepo, mock(SlotHoldRepository.class),
+                new SimpleMeterRegistry(), 100, Duration.ofMillis(50));
+
+        String first = index.etag(1L, DATE);
+        assertThat(index.etag(1L, DATE)).isEqualTo(first);
+        verify(bookingRepo, times(1)).findBookedRanges(any(), any());
+
+        // A refresh that finds the same bookings keeps the tag
+        Thread.sleep(60);
+        assertThat(index.etag(1L, DATE)).isEqualTo(first);
+        verify(bookingRepo, times(2)).findBookedRanges(any(), any());
+
+        index.markHeld(1L, DATE, TimeSlot.parse("18:00-19:00"));
+        String held = index.etag(1L, DATE);
+        assertThat(held).isNotEqualTo(first);
+
+        index.markBooked(1L, DATE, TimeSlot.parse("18:00-19:00"));
+        assertThat(index.etag(1L, DATE)).isNotIn(first, held);
+        assertThat(index.etag(2L, DATE)).isNotIn(first, held);
+    }
+
+    @Test
+    void listenersHearLocalWritesAndInvalidations() {
+        CourtRepository courtRepo = mock(CourtRepository.class);
+        when(courtRepo.findSlotMinutes(anyLong())).thenReturn(Optional.of(60));
+        AvailabilityIndex index = new AvailabilityIndex(mock(BookingRepository.class), courtRepo,
+                mock(SlotHoldRepository.class), new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+        List<String> heard = new ArrayList<>();
+        index.addListener((courtId, date) -> heard.add(courtId + "@" + date));
+
+        index.markHeld(1L, DATE, TimeSlot.parse("18:00-19:00"));
+        index.invalidateCourts(List.of(2L));
+        index.invalidateAll();
+
+        assertThat(heard).containsExactly("1@" + DATE, "2@null", "null@null");
+    }
+
+    @Test
+    void writeDuringALoadIsNotOverwrittenByTheLoad() throws Exception {
+        BookingRepository bookingRepo = mock(BookingRepository.class);
+        AvailabilityIndex index = index(bookingRepo, 100);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        // The first load read the table before the booking committed; later loads see it
+        when(bookingRepo.findBookedRanges(any(), any())).thenAnswer(inv -> {
+            loading.countDown();
+            written.await(5, TimeUnit.SECONDS);
+            return List.of();
+        }).thenReturn(List.of(new BookedSlot(1L, DATE, 18 * 60, 60)));
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<Boolean> stale = pool.submit(() -> index.isBooked(1L, DATE, TimeSlot.parse("18:00-19:00")));
+        loading.await(5, TimeUnit.SECONDS);
+        index.markBooked(1L, DATE, TimeSlot.parse("18:00-19:00"));
+        written.countDown();
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isFalse();
+        pool.shutdown();
+
+        assertThat(index.isBooked(1L, DATE, TimeSlot.parse("18:00-19:00"))).isTrue();
+        verify(bookingRepo, times(2)).findBookedRanges(any(), any());
+    }
+
+    @Test
+    void concurrentWritesToOneDayAreAllKept() throws Exception {
+        AvailabilityIndex index = index(mock(BookingRepository.class), 100);
+        assertThat(index.takenSlots(1L, DATE)).isZero();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int hour = 0; hour < 24; hour++) {
+            TimeSlot slot = new TimeSlot(hour * 60, 60);
+            writers.add(pool.submit(() -> {
+                start.await();
+                index.markHeld(1L, DATE, slot);
+                index.takenSlots(1L, DATE);
+                index.markBooked(1L, DATE, slot);
+                index.markReleased(1L, DATE, slot);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(5, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(index.bookedMask(1L, DATE)).isEqualTo(TimeSlots.cellMask(0, 24 * 60));
+        for (int hour = 0; hour < 24; hour++) {
+            assertThat(index.isHeld(1L, DATE, new TimeSlot(hour * 60, 60))).isFalse();
+        }
+    }
+
+    @Test
+    void fullIndexEvictsTheLeastRecentlyReadDays() {
+        BookingRepository bookingRepo = mock(BookingRepository.class);
+        AvailabilityIndex index = index(bookingRepo, 8);
+        for (int i = 0; i < 8; i++) {
+            index.takenSlots(1L, DATE.plusDays(i));
+        }
+        index.takenSlots(1L, DATE); // the oldest load, but read again just now
+
+        for (int i = 8; i < 12; i++) {
+            index.takenSlots(1L, DATE.plusDays(i));
+        }
+        index.takenSlots(1L, DATE);
+        index.takenSlots(1L, DATE.plusDays(11));
+        index.takenSlots(1L, DATE.plusDays(1));
+
+        verify(bookingRepo, times(1)).findBookedRanges(1L, DATE);
+        verify(bookingRepo, times(1)).findBookedRanges(1L, DATE.plusDays(11));
+        verify(bookingRepo, times(2)).findBookedRanges(eq(1L), eq(DATE.plusDays(1)));
+    }
+
+    private static AvailabilityIndex index(BookingRepository bookingRepo, int maxDays) {
+        CourtRepository courtRepo = mock(CourtRepository.class);
+        when(courtRepo.findSlotMinutes(anyLong())).thenReturn(Optional.of(60));
+        return new AvailabilityIndex(bookingRepo, courtRepo, mock(SlotHoldRepository.class),
+                new SimpleMeterRegistry(), maxDays, Duration.ofMinutes(5));
+    }
+}
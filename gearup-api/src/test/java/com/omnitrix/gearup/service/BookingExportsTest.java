@@ -0,0 +1,202 @@
+package com.omnitrix.gearup.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.omnitrix.gearup.model.BookingExportRow;
+import com.omnitrix.gearup.model.PaymentExportRow;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BookingExportsTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+
+    private final BookingRepository bookingRepo = mock(BookingRepository.class);
+    private final PaymentRepository paymentRepo = mock(PaymentRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BookingExports exports;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        exports = new BookingExports(bookingRepo, paymentRepo, mock(PlatformTransactionManager.class), objectMapper,
+                meterRegistry, 1, 366);
+    }
+
+    @Test
+    void csvHasAHeaderAndQuotesWhatNeedsQuoting() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(bookingRepo.streamForExport(DATE, DATE, null, null, "CONFIRMED")).thenReturn(Stream.of(
+                booking(1, "Court \"A\", north", "=cmd()", new BigDecimal("1500.00")),
+                booking(2, "Court B", "player@gearup.lk", null)).onClose(() -> closed.set(true)));
+
+        String csv = run(exports.bookings(DATE, DATE, null, null, "confirmed", BookingExports.Format.CSV));
+
+        assertThat(csv.split("\r\n")).containsExactly(
+                "id,date,timeSlot,durationMinutes,status,permanent,weekNumber,seriesId,paymentReceived,cancelled," +
+                        "venueId,venueName,courtId,courtName,userId,userEmail,paymentMethod,amount,paymentDate",
+                "1,2025-06-06,18:00-19:30,90,CONFIRMED,false,1,,true,false,1,venue,1,\"Court \"\"A\"\", north\",7," +
+                        "'=cmd(),PAYHERE,1500.00,2025-06-05T12:30",
+                "2,2025-06-06,18:00-19:30,90,CONFIRMED,false,1,,true,false,1,venue,1,Court B,7," +
+                        "player@gearup.lk,PAYHERE,,2025-06-05T12:30");
+        assertThat(closed).isTrue();
+        assertThat(meterRegistry.counter("gearup.exports.rows", "export", "bookings").count()).isEqualTo(2);
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws Exception {
+        when(paymentRepo.streamForExport(any(), any(), eq(3L), isNull(), eq(true))).thenReturn(Stream.of(
+                new PaymentExportRow(5L, LocalDateTime.of(2025, 6, 5, 12, 30), "PAYHERE", true,
+                        new BigDecimal("1500.00"), 1L, DATE, 18 * 60, 60, "CONFIRMED", 3L, "venue", 1L, "Court A",
+                        7L, "player@gearup.lk")));
+
+        String ndjson = run(exports.payments(DATE, DATE, 3L, null, "PAID", BookingExports.Format.NDJSON));
+
+        assertThat(ndjson).isEqualTo("{\"id\":5,\"paymentDate\":\"2025-06-05T12:30:00\",\"paymentMethod\":\"PAYHERE\"," +
+                "\"paid\":true,\"amount\":1500.00,\"bookingId\":1,\"bookingDate\":\"2025-06-06\"," +
+                "\"timeSlot\":\"18:00-19:00\",\"bookingStatus\":\"CONFIRMED\",\"venueId\":3,\"venueName\":\"venue\"," +
+                "\"courtId\":1,\"courtName\":\"Court A\",\"userId\":7,\"userEmail\":\"player@gearup.lk\"}\n");
+        // Payment dates are bounded by whole days
+        verify(paymentRepo).streamForExport(DATE.atStartOfDay(), DATE.plusDays(1).atStartOfDay(), 3L, null, true);
+    }
+
+    @Test
+    void largeExportsAreWrittenAsTheyAreRead() throws Exception {
+        when(bookingRepo.streamForExport(any(), any(), any(), any(), any())).thenReturn(
+                IntStream.range(0, 100_000).mapToObj(i -> booking(i, "Court A", "player@gearup.lk", null)));
+        CountingOutputStream out = new CountingOutputStream();
+
+        exports.bookings(DATE, DATE.plusDays(365), null, null, null, BookingExports.Format.CSV).writeTo(out);
+
+        assertThat(out.count).isGreaterThan(10_000_000);
+        // The header is flushed on its own, then the rows in buffer-sized writes
+        assertThat(out.writes).isGreaterThan(100);
+        assertThat(out.largestWrite).isLessThanOrEqualTo(64 * 1024 * 3);
+    }
+
+    @Test
+    void onlyMaxConcurrentExportsRunAtOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookingRepo.streamForExport(any(), any(), any(), any(), any())).thenAnswer(inv -> Stream.of(1)
+                .map(i -> {
+                    started.countDown();
+                    await(release);
+                    return booking(i, "Court A", "player@gearup.lk", null);
+                }))
+                .thenReturn(Stream.empty());
+        StreamingResponseBody first = exports.bookings(DATE, DATE, null, null, null, BookingExports.Format.CSV);
+        StreamingResponseBody second = exports.bookings(DATE, DATE, null, null, null, BookingExports.Format.CSV);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> running = writer.submit(() -> run(first));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> exports.bookings(DATE, DATE, null, null, null, BookingExports.Format.CSV))
+                    .isInstanceOf(IllegalStateException.class);
+            // Created before the first one started, turned away before writing a byte
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertThatThrownBy(() -> second.writeTo(out)).isInstanceOf(IllegalStateException.class);
+            assertThat(out.size()).isZero();
+
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).contains("player@gearup.lk");
+        } finally {
+            release.countDown();
+            writer.shutdownNow();
+        }
+        assertThat(run(exports.bookings(DATE, DATE, null, null, null, BookingExports.Format.CSV))).startsWith("id,");
+    }
+
+    @Test
+    void bodiesThatAreNeverWrittenHoldNoPermit() throws Exception {
+        when(bookingRepo.streamForExport(any(), any(), any(), any(), any())).thenReturn(Stream.empty());
+        for (int i = 0; i < 3; i++) {
+            exports.bookings(DATE, DATE, null, null, null, BookingExports.Format.CSV);
+        }
+
+        assertThat(run(exports.bookings(DATE, DATE, null, null, null, BookingExports.Format.CSV))).startsWith("id,");
+    }
+
+    @Test
+    void badFiltersAreRejectedBeforeAnyQuery() {
+        assertThatThrownBy(() -> exports.bookings(DATE, DATE.minusDays(1), null, null, null, BookingExports.Format.CSV))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> exports.bookings(DATE, DATE.plusDays(366), null, null, null, BookingExports.Format.CSV))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> exports.bookings(DATE, DATE, null, null, "LOST", BookingExports.Format.CSV))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> exports.payments(DATE, DATE, null, null, "CONFIRMED", BookingExports.Format.CSV))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BookingExports.Format.parse("xlsx")).isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(bookingRepo, paymentRepo);
+    }
+
+    private static String run(StreamingResponseBody body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static BookingExportRow booking(long id, String courtName, String userEmail, BigDecimal amount) {
+        return new BookingExportRow(id, DATE, 18 * 60, 90, "CONFIRMED", false, 1, null, true, false, 1L, "venue",
+                1L, courtName, 7L, userEmail, "PAYHERE", amount, LocalDateTime.of(2025, 6, 5, 12, 30));
+    }
+
+    private static final class CountingOutputStream extends java.io.OutputStream {
+        long count;
+        int writes;
+        int largestWrite;
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+            writes++;
+            largestWrite = Math.max(largestWrite, len);
+        }
+    }
+}
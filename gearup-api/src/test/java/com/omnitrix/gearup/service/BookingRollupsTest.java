@@ -0,0 +1,257 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.BookingRollupRepository;
+import com.omnitrix.gearup.repository.PaymentRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The incremental rollup statements of BookingRepository and PaymentRepository against a rebuild
+// of the same day, on an embedded Postgres: both must arrive at the same rows
+class BookingRollupsTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+
+    private static EmbeddedPostgres postgres;
+    private static Connection conn;
+
+    private BookingRollups rollups;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        Flyway.configure().dataSource(postgres.getPostgresDatabase()).load().migrate();
+        conn = postgres.getPostgresDatabase().getConnection();
+        try (Statement st = conn.createStatement()) {
+            st.execute("insert into users (id, name, email, role) values (1, 'player', 'player@gearup.lk', 'USER'), " +
+                    "(2, 'regular', 'regular@gearup.lk', 'USER')");
+            st.execute("insert into futsal_venues (id, name) values (1, 'venue')");
+            st.execute("insert into courts (id, name, sport_type, slot_minutes, venue_id) values " +
+                    "(1, 'court 1', 'FOOTBALL', 60, 1), (2, 'court 2', 'FOOTBALL', 90, 1)");
+        }
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        conn.close();
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (Statement st = conn.createStatement()) {
+            st.execute("delete from payments");
+            st.execute("delete from bookings");
+            st.execute("delete from booking_rollups");
+            st.execute("delete from booking_rollup_days");
+        }
+        BookingRollupRepository rollupRepo = mock(BookingRollupRepository.class);
+        String insertDay = query(BookingRollupRepository.class, "insertDay", LocalDate.class);
+        String markRebuilt = query(BookingRollupRepository.class, "markRebuilt", LocalDate.class, LocalDateTime.class);
+        when(rollupRepo.lockDay(any())).thenReturn(1L);
+        when(rollupRepo.deleteDay(any())).thenAnswer(inv ->
+                update("delete from booking_rollups where date = '" + inv.getArgument(0) + "'"));
+        when(rollupRepo.insertDay(any())).thenAnswer(inv ->
+                update(insertDay.replace(":date", "'" + inv.getArgument(0) + "'::date")));
+        when(rollupRepo.markRebuilt(any(), any())).thenAnswer(inv -> update(markRebuilt
+                .replace(":date", "'" + inv.getArgument(0) + "'::date")
+                .replace(":at", "'" + Timestamp.valueOf(inv.<LocalDateTime>getArgument(1)) + "'::timestamp")));
+        when(rollupRepo.findRebuiltDays(any(), any())).thenAnswer(inv ->
+                dates("select date from booking_rollup_days order by date"));
+        when(rollupRepo.findFirstBookingDate()).thenAnswer(inv -> dates("select min(date) from bookings").get(0));
+        when(rollupRepo.findLastBookingDate()).thenAnswer(inv -> dates("select max(date) from bookings").get(0));
+
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        rollups = new BookingRollups(rollupRepo, transactionTemplate);
+    }
+
+    @Test
+    void bookingsCancellationsAndPaymentsMatchARebuild() throws Exception {
+        insertBooking(1, 1, 1, DATE, 18 * 60, 60);
+        insertBooking(2, 2, 1, DATE, 19 * 60, 60);
+        insertBooking(3, 1, 2, DATE, 18 * 60 + 30, 90); // 18:30-20:00, two hours
+        insertBooking(4, 2, 2, DATE, 20 * 60, 90);
+        rollUpBooked(List.of(1L, 2L, 3L, 4L));
+        pay(1, new BigDecimal("1500.00"));
+        pay(3, null); // an amount PayHere did not send
+        // user 2's unpaid permanent bookings, 2 and 4
+        assertThat(cancelUnpaidLegacy(List.of(2L))).isEqualTo(2);
+
+        List<String> incremental = rollupRows();
+        assertThat(incremental).containsExactly(
+                "1 18 60 1 0 1 1500.00",
+                "1 19 0 0 1 0 0.00",
+                "2 18 30 1 0 1 0.00",
+                "2 19 60 0 0 0 0.00",
+                "2 20 0 0 1 0 0.00",
+                "2 21 0 0 0 0 0.00");
+
+        assertThat(rollups.rebuild(DATE, DATE)).isEqualTo(1);
+
+        assertThat(rollupRows()).isEqualTo(incremental);
+    }
+
+    @Test
+    void batchCancelsAndMovesMatchARebuild() throws Exception {
+        insertBooking(1, 1, 1, DATE, 18 * 60, 60);
+        insertBooking(2, 2, 1, DATE, 19 * 60, 60);
+        insertBooking(3, 1, 2, DATE, 18 * 60 + 30, 90);
+        rollUpBooked(List.of(1L, 2L, 3L));
+        pay(1, new BigDecimal("1500.00"));
+
+        assertThat(cancelByIds(List.of(2L))).isEqualTo(1);
+        // Booking 1 moves to court 2 at 21:00, booking 3 to where booking 1 was
+        rollUpMoved(List.of(1L, 3L), -1);
+        update("update bookings set court_id = 2, start_minute = 1260 where id = 1");
+        update("update bookings set court_id = 1, start_minute = 1080, duration_minutes = 60 where id = 3");
+        rollUpMoved(List.of(1L, 3L), 1);
+
+        // Moves leave all-zero rows behind on the hours they left, which add nothing to a report
+        List<String> incremental = rollupRows().stream().filter(r -> !r.endsWith(" 0 0 0 0 0.00")).toList();
+        assertThat(rollups.rebuild(DATE, DATE)).isEqualTo(1);
+
+        assertThat(rollupRows()).isEqualTo(incremental);
+        assertThat(incremental).containsExactly("1 18 60 1 0 0 0.00", "1 19 0 0 1 0 0.00",
+                "2 21 60 1 0 1 1500.00");
+    }
+
+    @Test
+    void backfillRebuildsOnlyDaysNeverRebuilt() throws Exception {
+        insertBooking(1, 1, 1, DATE, 18 * 60, 60);
+        insertBooking(2, 1, 1, DATE.plusDays(2), 18 * 60, 60);
+        rollups.rebuild(DATE, DATE);
+        // Written around the rollups, e.g. by hand: only an explicit rebuild of the day picks it up
+        insertBooking(3, 1, 1, DATE, 19 * 60, 60);
+
+        assertThat(rollups.backfill()).isEqualTo(2);
+
+        assertThat(rollupRows()).containsExactly("1 18 60 1 0 0 0.00", "1 18 60 1 0 0 0.00");
+        assertThat(dates("select date from booking_rollup_days order by date"))
+                .containsExactly(DATE, DATE.plusDays(1), DATE.plusDays(2));
+        assertThat(rollups.backfill()).isZero();
+    }
+
+    private static void rollUpBooked(Collection<Long> ids) throws Exception {
+        update(query(BookingRepository.class, "rollUpBooked", Collection.class).replace(":ids", join(ids)));
+    }
+
+    private static void rollUpMoved(Collection<Long> ids, int sign) throws Exception {
+        update(query(BookingRepository.class, "rollUpMoved", Collection.class, int.class)
+                .replace(":ids", join(ids)).replace(":sign", String.valueOf(sign)));
+    }
+
+    private static int cancelByIds(Collection<Long> ids) throws Exception {
+        String sql = query(BookingRepository.class, "cancelByIds", Collection.class).replace(":ids", join(ids));
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static int cancelUnpaidLegacy(Collection<Long> userIds) throws Exception {
+        String sql = query(BookingRepository.class, "cancelUnpaidLegacy", Collection.class)
+                .replace(":userIds", join(userIds));
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void pay(long bookingId, BigDecimal amount) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement("insert into payments (payment_method, paid, " +
+                "payment_date, booking_id, amount) values ('PAYHERE', true, now(), ?, ?)")) {
+            ps.setLong(1, bookingId);
+            ps.setBigDecimal(2, amount);
+            ps.executeUpdate();
+        }
+        update(query(PaymentRepository.class, "rollUpPayment", Long.class, BigDecimal.class)
+                .replace(":bookingId", String.valueOf(bookingId))
+                .replace(":amount", amount == null ? "null" : amount.toPlainString()));
+    }
+
+    private static String query(Class<?> repository, String method, Class<?>... parameterTypes) throws Exception {
+        return repository.getMethod(method, parameterTypes).getAnnotation(Query.class).value();
+    }
+
+    private static String join(Collection<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(", "));
+    }
+
+    private static int update(String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            return st.executeUpdate(sql);
+        }
+    }
+
+    private static List<LocalDate> dates(String sql) throws SQLException {
+        List<LocalDate> dates = new ArrayList<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                dates.add(rs.getObject(1, LocalDate.class));
+            }
+        }
+        return dates;
+    }
+
+    // "court hour minutes bookings cancellations payments revenue", by court, date and hour
+    private static List<String> rollupRows() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("select court_id, hour_of_day, booked_minutes, bookings, cancellations, " +
+                     "payments, revenue from booking_rollups order by court_id, date, hour_of_day")) {
+            while (rs.next()) {
+                rows.add(rs.getLong(1) + " " + rs.getInt(2) + " " + rs.getInt(3) + " " + rs.getInt(4) + " "
+                        + rs.getInt(5) + " " + rs.getInt(6) + " " + rs.getBigDecimal(7).toPlainString());
+            }
+        }
+        return rows;
+    }
+
+    private static void insertBooking(long id, long userId, long courtId, LocalDate date, int startMinute,
+                                      int durationMinutes) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("insert into bookings (id, user_id, court_id, date, " +
+                "start_minute, duration_minutes, status, is_permanent, week_number, payment_received, " +
+                "is_cancelled) values (?, ?, ?, ?, ?, ?, 'CONFIRMED', true, 1, ?, false)")) {
+            ps.setLong(1, id);
+            ps.setLong(2, userId);
+            ps.setLong(3, courtId);
+            ps.setObject(4, date);
+            ps.setInt(5, startMinute);
+            ps.setInt(6, durationMinutes);
+            ps.setBoolean(7, userId == 1);
+            ps.executeUpdate();
+        }
+    }
+}
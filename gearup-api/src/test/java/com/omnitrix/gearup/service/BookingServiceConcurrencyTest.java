@@ -0,0 +1,252 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.BookedSlot;
+import com.omnitrix.gearup.model.Booking;
+import com.omnitrix.gearup.model.BookingSeries;
+import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.BookingSeriesRepository;
+import com.omnitrix.gearup.repository.CourtRepository;
+import com.omnitrix.gearup.repository.SlotHoldRepository;
+import org.junit.jupiter.api.BeforeEach;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingServiceConcurrencyTest {
+
+    private static final int REQUESTS = 500;
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+    private static final TimeSlot SLOT = TimeSlot.parse("19:00-20:00");
+
+    // Stands in for the bookings table and its partial unique index on (court_id, date, start_minute)
+    private final Set<BookedSlot> activeSlots = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inserts = new AtomicInteger();
+    private BookingRepository bookingRepo;
+    private BookingSeriesRepository seriesRepo;
+    private CourtRepository courtRepo;
+    private SlotHoldRepository holdRepo;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepo = mock(BookingRepository.class);
+        seriesRepo = mock(BookingSeriesRepository.class);
+        courtRepo = mock(CourtRepository.class);
+        holdRepo = mock(SlotHoldRepository.class); // no holds: its queries answer empty lists
+        transactionTemplate = mock(TransactionTemplate.class);
+
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+                ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        when(courtRepo.findSlotMinutes(anyLong())).thenReturn(Optional.of(60));
+        when(bookingRepo.findBookedRanges(anyLong(), any())).thenAnswer(inv -> activeSlots.stream()
+                .filter(k -> k.courtId().equals(inv.getArgument(0)) && k.date().equals(inv.getArgument(1)))
+                .toList());
+        when(bookingRepo.findBookedSlots(anyCollection(), anyCollection(), anyInt(), anyInt()))
+                .thenAnswer(inv -> List.copyOf(activeSlots));
+        when(bookingRepo.saveAll(anyIterable())).thenAnswer(inv -> {
+            Iterable<Booking> bookings = inv.getArgument(0);
+            List<BookedSlot> added = new ArrayList<>();
+            Thread.sleep(2); // a round trip to the database
+            for (Booking b : bookings) {
+                BookedSlot key = new BookedSlot(b.getCourt().getId(), b.getDate(), b.getStartMinute(),
+                        b.getDurationMinutes());
+                if (!activeSlots.add(key)) {
+                    added.forEach(activeSlots::remove);
+                    throw new DataIntegrityViolationException("duplicate key",
+                            new SQLException("duplicate key value violates ux_bookings_active_start", "23505"));
+                }
+                added.add(key);
+            }
+            inserts.incrementAndGet();
+            return bookings;
+        });
+    }
+
+    @Test
+    void onlyOneOfManyParallelBookingsForTheSameSlotSucceeds() throws Exception {
+        BookingService service = newNode();
+
+        Result result = race(REQUESTS, i -> service);
+
+        assertThat(result.failures).isEmpty();
+        assertThat(result.successes.get()).isEqualTo(1);
+        assertThat(result.conflicts.get()).isEqualTo(REQUESTS - 1);
+        assertThat(activeSlots).containsExactly(slot(DATE));
+        assertThat(meterRegistry.get("gearup.booking.reserve").tag("outcome", "conflict").timer().count())
+                .isEqualTo(REQUESTS - 1);
+    }
+
+    @Test
+    void uniqueIndexResolvesRacesBetweenNodes() throws Exception {
+        // Separate locks and indexes, as on two API instances sharing one database
+        BookingService nodeA = newNode();
+        BookingService nodeB = newNode();
+
+        Result result = race(REQUESTS, i -> i % 2 == 0 ? nodeA : nodeB);
+
+        assertThat(result.failures).isEmpty();
+        assertThat(result.successes.get()).isEqualTo(1);
+        assertThat(inserts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void otherIntegrityErrorsAreNotReportedAsConflicts() {
+        BookingService service = newNode();
+        when(bookingRepo.saveAll(anyIterable())).thenThrow(new DataIntegrityViolationException("fk",
+                new SQLException("insert violates foreign key constraint on court_id", "23503")));
+
+        assertThatThrownBy(() -> service.reserve(List.of(booking(DATE, false, 1))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void permanentBookingIsRejectedWhenAnyWeekIsTaken() {
+        BookingService service = newNode();
+        service.reserve(List.of(booking(DATE.plusWeeks(1), false, 1)));
+
+        List<Booking> series = List.of(
+                booking(DATE, true, 1), booking(DATE.plusWeeks(1), true, 2), booking(DATE.plusWeeks(2), true, 3));
+
+        assertThatThrownBy(() -> service.reserve(series))
+                .isInstanceOf(SlotConflictException.class)
+                .hasMessage("Slot already booked on week 2");
+        assertThat(activeSlots).containsExactly(slot(DATE.plusWeeks(1)));
+    }
+
+    @Test
+    void longSeriesIsCheckedWithOneQueryAndSavedInOneBatch() {
+        BookingService service = newNode();
+        BookingSeries series = service.newSeries(new User(), court(), DATE, SLOT, 12, null);
+
+        List<Booking> bookings = service.reserveSeries(series, true);
+
+        assertThat(bookings).hasSize(12);
+        assertThat(bookings.get(11).getDate()).isEqualTo(DATE.plusWeeks(11));
+        assertThat(bookings).filteredOn(Booking::isPaymentReceived).containsExactly(bookings.get(0));
+        assertThat(activeSlots).hasSize(12);
+        verify(bookingRepo, times(1)).findBookedSlots(anyCollection(), anyCollection(), anyInt(), anyInt());
+        verify(bookingRepo, times(1)).saveAll(anyIterable());
+        verify(seriesRepo, times(1)).save(series);
+    }
+
+    @Test
+    void seriesLengthIsBoundedByMaxWeeks() {
+        BookingService service = newNode();
+
+        assertThatThrownBy(() -> service.newSeries(new User(), court(), DATE, SLOT, 27, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.newSeries(new User(), court(), DATE, SLOT, null, DATE.plusWeeks(25)).getWeeks())
+                .isEqualTo(26);
+        assertThat(service.newSeries(new User(), court(), DATE, SLOT, null, null).getWeeks()).isEqualTo(3);
+    }
+
+    @Test
+    void slotOffTheCourtGridIsRejected() {
+        when(courtRepo.findSlotMinutes(1L)).thenReturn(Optional.of(90));
+        BookingService service = newNode();
+
+        assertThatThrownBy(() -> service.reserve(List.of(booking(DATE, false, 1))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("This court is booked in 90-minute slots");
+
+        Booking onGrid = booking(DATE, false, 1);
+        onGrid.setSlot(TimeSlot.parse("18:00-19:30"));
+        service.reserve(List.of(onGrid));
+        assertThat(activeSlots).containsExactly(new BookedSlot(1L, DATE, 18 * 60, 90));
+    }
+
+    private BookingService newNode() {
+        return new BookingService(bookingRepo, seriesRepo, holdRepo,
+                new AvailabilityIndex(bookingRepo, courtRepo, holdRepo, meterRegistry, 1000, Duration.ofMinutes(5)),
+                new SlotLocks(64, Duration.ofMillis(200)),
+                transactionTemplate, meterRegistry, 3, 26);
+    }
+
+    private Result race(int requests, IntFunction<BookingService> node) throws Exception {
+        Result result = new Result();
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            BookingService service = node.apply(i);
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    service.reserve(List.of(booking(DATE, false, 1)));
+                    result.successes.incrementAndGet();
+                } catch (SlotConflictException e) {
+                    result.conflicts.incrementAndGet();
+                } catch (Throwable t) {
+                    result.failures.add(t);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        pool.shutdown();
+        return result;
+    }
+
+    private static Court court() {
+        Court court = new Court();
+        court.setId(1L);
+        return court;
+    }
+
+    private static Booking booking(LocalDate date, boolean permanent, int week) {
+        Booking b = new Booking();
+        b.setCourt(court());
+        b.setDate(date);
+        b.setSlot(SLOT);
+        b.setPermanent(permanent);
+        b.setWeekNumber(week);
+        return b;
+    }
+
+    private static BookedSlot slot(LocalDate date) {
+        return new BookedSlot(1L, date, SLOT.startMinute(), SLOT.durationMinutes());
+    }
+
+    private static class Result {
+        final AtomicInteger successes = new AtomicInteger();
+        final AtomicInteger conflicts = new AtomicInteger();
+        final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    }
+}
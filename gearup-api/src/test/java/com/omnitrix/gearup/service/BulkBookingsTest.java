@@ -0,0 +1,262 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.BookedRange;
+import com.omnitrix.gearup.model.BookedSlot;
+import com.omnitrix.gearup.model.Booking;
+import com.omnitrix.gearup.model.BulkBookingRequest;
+import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.CourtRepository;
+import com.omnitrix.gearup.repository.SlotHoldRepository;
+import com.omnitrix.gearup.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkBookingsTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+
+    // Stands in for the bookings table
+    private final List<Booking> table = new ArrayList<>();
+    private final List<BookedSlot> holds = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong(100);
+    private final Court court = new Court();
+    private final User user = new User();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BookingRepository bookingRepo;
+    private CourtRepository courtRepo;
+    private UserRepository userRepo;
+    private SlotHoldRepository holdRepo;
+    private AvailabilityIndex index;
+    private TransactionTemplate transactionTemplate;
+    private BulkBookings bulk;
+
+    @BeforeEach
+    void setUp() {
+        court.setId(1L);
+        user.setId(7L);
+        bookingRepo = mock(BookingRepository.class);
+        courtRepo = mock(CourtRepository.class);
+        userRepo = mock(UserRepository.class);
+        holdRepo = mock(SlotHoldRepository.class);
+        index = mock(AvailabilityIndex.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(index.gridOf(anyLong())).thenReturn(60);
+        when(courtRepo.findAllById(anyIterable())).thenReturn(List.of(court));
+        when(userRepo.findAllById(anyIterable())).thenReturn(List.of(user));
+        when(bookingRepo.findAllById(anyIterable())).thenAnswer(inv -> {
+            Collection<Long> wanted = inv.getArgument(0);
+            return table.stream().filter(b -> wanted.contains(b.getId())).toList();
+        });
+        when(bookingRepo.findActiveRanges(anyCollection(), anyCollection(), anyInt(), anyInt())).thenAnswer(inv ->
+                table.stream().filter(b -> !b.isCancelled())
+                        .map(b -> new BookedRange(b.getId(), b.getCourt().getId(), b.getDate(), b.getStartMinute(),
+                                b.getDurationMinutes()))
+                        .toList());
+        when(holdRepo.findActiveSlotsOfOthers(anyCollection(), anyCollection(), anyInt(), anyInt(), any(), anyString()))
+                .thenAnswer(inv -> holds);
+        when(bookingRepo.parkForMove(anyCollection())).thenAnswer(inv -> inv.<Collection<Long>>getArgument(0).size());
+        when(bookingRepo.saveAll(anyIterable())).thenAnswer(inv -> {
+            for (Booking b : inv.<Iterable<Booking>>getArgument(0)) {
+                b.setId(ids.incrementAndGet());
+                table.add(b);
+            }
+            return inv.getArgument(0);
+        });
+
+        bulk = bulk(64);
+    }
+
+    @Test
+    void eachItemGetsItsOwnResultAndTheValidOnesApplyTogether() {
+        insert(1, "18:00-19:00");
+        insert(2, "19:00-20:00");
+        insert(3, "20:00-21:00");
+        holds.add(new BookedSlot(1L, DATE, 22 * 60, 60));
+
+        BulkBookings.Outcome outcome = bulk.apply(request(false,
+                reschedule(1, "19:00-20:00"),      // swaps with the next item
+                reschedule(2, "18:00-19:00"),
+                cancel(3),
+                create("20:00-21:00"),             // the slot item 2 frees
+                create("20:00-21:00"),
+                create("20:30-21:30"),             // off the court's grid
+                create("22:00-23:00"),             // held for someone's payment
+                reschedule(99, "08:00-09:00"),
+                cancel(3),
+                item("move", null)));
+
+        assertThat(outcome.items()).extracting(BulkBookings.ItemResult::status).containsExactly(
+                "OK", "OK", "OK", "OK", "CONFLICT", "INVALID", "CONFLICT", "NOT_FOUND", "INVALID", "INVALID");
+        assertThat(outcome.applied()).isTrue();
+        assertThat(outcome.succeeded()).isEqualTo(4);
+        assertThat(outcome.failed()).isEqualTo(6);
+        assertThat(outcome.items().get(3).bookingId()).isEqualTo(101L);
+        assertThat(table.get(0).getSlot()).isEqualTo(TimeSlot.parse("19:00-20:00"));
+        assertThat(table.get(1).getSlot()).isEqualTo(TimeSlot.parse("18:00-19:00"));
+
+        // One availability query and one statement per kind of change, all in one transaction
+        verify(bookingRepo, times(1)).findActiveRanges(anyCollection(), anyCollection(), anyInt(), anyInt());
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        verify(bookingRepo).cancelByIds(List.of(3L));
+        verify(bookingRepo).rollUpMoved(List.of(1L, 2L), -1);
+        verify(bookingRepo).parkForMove(List.of(1L, 2L));
+        verify(bookingRepo).rollUpMoved(List.of(1L, 2L), 1);
+        verify(bookingRepo).rollUpBooked(List.of(101L));
+        assertThat(meterRegistry.counter("gearup.admin.bulk.items", "op", "CREATE", "status", "CONFLICT").count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void anAtomicBatchWithAFailedItemAppliesNothing() {
+        insert(1, "18:00-19:00");
+
+        BulkBookings.Outcome outcome = bulk.apply(request(true, cancel(1), create("18:00-19:00"),
+                create("19:30-20:30")));
+
+        assertThat(outcome.items()).extracting(BulkBookings.ItemResult::status)
+                .containsExactly("NOT_APPLIED", "NOT_APPLIED", "INVALID");
+        assertThat(outcome.applied()).isFalse();
+        assertThat(outcome.failed()).isEqualTo(3);
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+        verify(bookingRepo, never()).cancelByIds(anyCollection());
+    }
+
+    @Test
+    void slotsBookedOutsideTheBatchConflict() {
+        insert(1, "18:00-19:00");
+
+        BulkBookings.Outcome outcome = bulk.apply(request(true, create("18:00-19:00"), create("19:00-20:00")));
+
+        assertThat(outcome.items()).extracting(BulkBookings.ItemResult::status)
+                .containsExactly("CONFLICT", "NOT_APPLIED");
+        verify(bookingRepo, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    void aMoveOfABookingCancelledSinceTheChecksFailsTheBatch() {
+        insert(1, "18:00-19:00");
+        insert(2, "19:00-20:00");
+        // The unpaid canceller got to booking 2 between the checks and the transaction
+        when(bookingRepo.parkForMove(anyCollection())).thenReturn(1);
+
+        assertThatThrownBy(() -> bulk.apply(request(false, reschedule(1, "20:00-21:00"),
+                reschedule(2, "21:00-22:00"))))
+                .isInstanceOf(SlotConflictException.class);
+        verify(bookingRepo, never()).rollUpMoved(anyCollection(), anyInt());
+        verify(bookingRepo, never()).flush();
+    }
+
+    @Test
+    void emptyAndOversizedBatchesAreRejected() {
+        assertThatThrownBy(() -> bulk.apply(request(false))).isInstanceOf(IllegalArgumentException.class);
+        BulkBookingRequest.Item[] items = new BulkBookingRequest.Item[11];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = create(String.format("%02d:00-%02d:00", 8 + i, 9 + i));
+        }
+        assertThatThrownBy(() -> bulk.apply(request(false, items))).isInstanceOf(IllegalArgumentException.class);
+        verify(bookingRepo, never()).findAllById(anyIterable());
+    }
+
+    @Test
+    void batchesTouchingTooManyStripesAreRejectedBeforeLocking() {
+        // 16 stripes: a batch may hold 2 of them
+        BulkBookings narrow = bulk(16);
+        insert(1, "08:00-09:00");
+        BulkBookingRequest.Item[] items = new BulkBookingRequest.Item[8];
+        items[0] = reschedule(1, "09:00-10:00");
+        for (int i = 1; i < items.length; i++) {
+            items[i] = create(String.format("%02d:00-%02d:00", 10 + i, 11 + i));
+        }
+
+        assertThatThrownBy(() -> narrow.apply(request(false, items)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("at most 2 slots");
+        verify(bookingRepo, never()).findActiveRanges(anyCollection(), anyCollection(), anyInt(), anyInt());
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+    }
+
+    private BulkBookings bulk(int stripes) {
+        return new BulkBookings(bookingRepo, courtRepo, userRepo, holdRepo, index,
+                new SlotLocks(stripes, Duration.ofMillis(200)), transactionTemplate, meterRegistry, 10);
+    }
+
+    private void insert(long id, String slot) {
+        Booking b = new Booking();
+        b.setId(id);
+        b.setUser(user);
+        b.setCourt(court);
+        b.setDate(DATE);
+        b.setSlot(TimeSlot.parse(slot));
+        b.setStatus("CONFIRMED");
+        table.add(b);
+    }
+
+    private static BulkBookingRequest request(boolean atomic, BulkBookingRequest.Item... items) {
+        BulkBookingRequest request = new BulkBookingRequest();
+        request.setAtomic(atomic);
+        request.setItems(List.of(items));
+        return request;
+    }
+
+    private static BulkBookingRequest.Item create(String slot) {
+        BulkBookingRequest.Item item = item("create", slot);
+        item.setUserId(7L);
+        item.setCourtId(1L);
+        return item;
+    }
+
+    private static BulkBookingRequest.Item reschedule(long bookingId, String slot) {
+        BulkBookingRequest.Item item = item("reschedule", slot);
+        item.setBookingId(bookingId);
+        return item;
+    }
+
+    private static BulkBookingRequest.Item cancel(long bookingId) {
+        BulkBookingRequest.Item item = new BulkBookingRequest.Item();
+        item.setOp("cancel");
+        item.setBookingId(bookingId);
+        return item;
+    }
+
+    private static BulkBookingRequest.Item item(String op, String slot) {
+        BulkBookingRequest.Item item = new BulkBookingRequest.Item();
+        item.setOp(op);
+        item.setDate(slot == null ? null : DATE);
+        item.setTimeSlot(slot);
+        return item;
+    }
+}
@@ -0,0 +1,39 @@
+package com.omnitrix.gearup.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiryWheelTest {
+
+    @Test
+    void keysExpireAfterTheirDelayIncludingLaterRounds() throws Exception {
+        Map<String, Long> expiredAt = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(3);
+        long start = System.nanoTime();
+        // 4 buckets of 10ms: the 120ms key has to wait out two full turns of the wheel
+        ExpiryWheel<String> wheel = new ExpiryWheel<>(4, 10, "test-wheel", key -> {
+            expiredAt.put(key, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            done.countDown();
+        });
+        try {
+            wheel.schedule("soon", 20);
+            wheel.schedule("later", 60);
+            wheel.schedule("rounds", 120);
+
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(expiredAt.get("soon")).isGreaterThanOrEqualTo(20);
+            assertThat(expiredAt.get("later")).isGreaterThanOrEqualTo(60);
+            assertThat(expiredAt.get("rounds")).isGreaterThanOrEqualTo(120);
+            assertThat(expiredAt.get("soon")).isLessThan(expiredAt.get("later"));
+            assertThat(expiredAt.get("later")).isLessThan(expiredAt.get("rounds"));
+        } finally {
+            wheel.stop();
+        }
+    }
+}
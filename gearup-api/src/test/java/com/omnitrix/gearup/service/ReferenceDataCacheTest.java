@@ -0,0 +1,101 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.Futsal;
+import com.omnitrix.gearup.repository.FutsalRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReferenceDataCacheTest {
+
+    // Stands in for the catalog_version row both instances share
+    private final AtomicLong version = new AtomicLong();
+    private final FutsalRepository venueRepo = mock(FutsalRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        when(venueRepo.findCatalogVersion()).thenAnswer(inv -> version.get());
+        when(venueRepo.bumpCatalogVersion()).thenAnswer(inv -> {
+            version.incrementAndGet();
+            return 1;
+        });
+    }
+
+    @Test
+    void writeOnOneInstanceChangesTheTagAndEvictsOnAnother() {
+        Cache cacheA = mock(Cache.class);
+        Cache cacheB = mock(Cache.class);
+        ReferenceDataCache nodeA = node(cacheA, Duration.ZERO);
+        ReferenceDataCache nodeB = node(cacheB, Duration.ZERO);
+        String before = nodeB.catalogEtag();
+        assertThat(nodeA.catalogEtag()).isEqualTo(before);
+
+        nodeA.evict();
+
+        assertThat(nodeA.catalogEtag()).isNotEqualTo(before);
+        assertThat(nodeB.catalogEtag()).isEqualTo(nodeA.catalogEtag());
+        verify(cacheB).evictEntityData(Futsal.class);
+        verify(cacheB).evictEntityData(Court.class);
+        verify(cacheB).evictQueryRegion(ReferenceDataCache.QUERY_REGION);
+    }
+
+    @Test
+    void versionIsReadOncePerTtl() {
+        Cache cacheB = mock(Cache.class);
+        ReferenceDataCache nodeA = node(mock(Cache.class), Duration.ZERO);
+        ReferenceDataCache nodeB = node(cacheB, Duration.ofHours(1));
+        String before = nodeB.catalogEtag();
+
+        nodeA.evict();
+
+        // Within the TTL the other instance still answers with the tag it read
+        assertThat(nodeB.catalogEtag()).isEqualTo(before);
+        verify(cacheB, never()).evictQueryRegion(ReferenceDataCache.QUERY_REGION);
+    }
+
+    @Test
+    void pollsDuringAVersionReadServeTheKnownVersion() throws Exception {
+        ReferenceDataCache node = node(mock(Cache.class), Duration.ZERO);
+        String known = node.catalogEtag();
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(venueRepo.findCatalogVersion()).thenAnswer(inv -> {
+            reading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return version.get();
+        });
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(node::catalogEtag);
+        try {
+            assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Answered at once, without waiting for the read in progress
+            assertThat(CompletableFuture.supplyAsync(node::catalogEtag).get(1, TimeUnit.SECONDS)).isEqualTo(known);
+        } finally {
+            release.countDown();
+        }
+        assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo(known);
+    }
+
+    private ReferenceDataCache node(Cache cache, Duration ttl) {
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        return new ReferenceDataCache(entityManagerFactory, venueRepo, ttl);
+    }
+}
@@ -0,0 +1,268 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.model.BookedSlot;
+import com.omnitrix.gearup.model.Booking;
+import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.SlotHold;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.BookingSeriesRepository;
+import com.omnitrix.gearup.repository.CourtRepository;
+import com.omnitrix.gearup.repository.SlotHoldRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlotHoldsTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+    private static final TimeSlot SLOT = TimeSlot.parse("19:00-20:00");
+
+    // Stands in for slot_holds and its unique index on (court_id, date, start_minute)
+    private final List<SlotHold> table = new ArrayList<>();
+    private final List<BookedSlot> booked = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private AvailabilityIndex index;
+    private BookingService bookingService;
+    private SlotHolds holds;
+
+    @BeforeEach
+    void setUp() {
+        SlotHoldRepository holdRepo = mock(SlotHoldRepository.class);
+        BookingRepository bookingRepo = mock(BookingRepository.class);
+        CourtRepository courtRepo = mock(CourtRepository.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+                ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(courtRepo.findSlotMinutes(anyLong())).thenReturn(Optional.of(60));
+
+        when(holdRepo.saveAll(anyIterable())).thenAnswer(inv -> {
+            synchronized (table) {
+                for (SlotHold row : inv.<Iterable<SlotHold>>getArgument(0)) {
+                    if (table.stream().anyMatch(h -> h.getCourtId().equals(row.getCourtId())
+                            && h.getDate().equals(row.getDate()) && h.getStartMinute() == row.getStartMinute())) {
+                        throw new DataIntegrityViolationException("duplicate key",
+                            new SQLException("duplicate key value violates ux_slot_holds_slot", "23505"));
+                    }
+                    row.setId(ids.incrementAndGet());
+                    table.add(row);
+                }
+            }
+            return inv.getArgument(0);
+        });
+        when(holdRepo.deleteExpiredOn(anyLong(), anyCollection(), anyInt(), any())).thenAnswer(inv -> {
+            synchronized (table) {
+                int before = table.size();
+                table.removeIf(h -> h.getCourtId().equals(inv.getArgument(0))
+                        && inv.<Collection<LocalDate>>getArgument(1).contains(h.getDate())
+                        && h.getStartMinute() == inv.<Integer>getArgument(2)
+                        && !h.getExpiresAt().isAfter(inv.getArgument(3)));
+                return before - table.size();
+            }
+        });
+        when(holdRepo.deleteByHoldId(anyString())).thenAnswer(inv -> {
+            synchronized (table) {
+                int before = table.size();
+                table.removeIf(h -> h.getHoldId().equals(inv.getArgument(0)));
+                return before - table.size();
+            }
+        });
+        when(holdRepo.countLiveHolds(anyLong(), any())).thenAnswer(inv -> rows(h -> h.getUserId().equals(inv.getArgument(0))
+                && h.getExpiresAt().isAfter(inv.getArgument(1))).stream().map(SlotHold::getHoldId).distinct().count());
+        when(holdRepo.findByHoldId(anyString())).thenAnswer(inv -> rows(h -> h.getHoldId().equals(inv.getArgument(0))));
+        when(holdRepo.findActiveRanges(anyLong(), any(), any())).thenAnswer(inv -> slots(
+                rows(h -> h.getCourtId().equals(inv.getArgument(0)) && h.getDate().equals(inv.getArgument(1))
+                        && h.getExpiresAt().isAfter(inv.getArgument(2)))));
+        when(holdRepo.findActiveSlotsOfOthers(anyCollection(), anyCollection(), anyInt(), anyInt(), any(), anyString()))
+                .thenAnswer(inv -> slots(rows(h -> h.getExpiresAt().isAfter(inv.getArgument(4))
+                        && !h.getHoldId().equals(inv.getArgument(5)))));
+        when(bookingRepo.findBookedRanges(anyLong(), any())).thenAnswer(inv -> booked.stream()
+                .filter(b -> b.courtId().equals(inv.getArgument(0)) && b.date().equals(inv.getArgument(1))).toList());
+        when(bookingRepo.findBookedSlots(anyCollection(), anyCollection(), anyInt(), anyInt()))
+                .thenAnswer(inv -> List.copyOf(booked));
+        when(bookingRepo.saveAll(anyIterable())).thenAnswer(inv -> {
+            for (Booking b : inv.<Iterable<Booking>>getArgument(0)) {
+                booked.add(new BookedSlot(b.getCourt().getId(), b.getDate(), b.getStartMinute(), b.getDurationMinutes()));
+            }
+            return inv.getArgument(0);
+        });
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        index = new AvailabilityIndex(bookingRepo, courtRepo, holdRepo, meterRegistry, 1000, Duration.ofMinutes(5));
+        SlotLocks slotLocks = new SlotLocks(64, Duration.ofMillis(200));
+        bookingService = new BookingService(bookingRepo, mock(BookingSeriesRepository.class), holdRepo, index,
+                slotLocks, transactionTemplate, meterRegistry, 3, 26);
+        holds = new SlotHolds(holdRepo, bookingRepo, index, slotLocks, transactionTemplate, Duration.ofMinutes(10), 2,
+                64, Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void stop() {
+        holds.stop();
+    }
+
+    @Test
+    void secondHoldOnTheSameSlotIsRejected() {
+        holds.place(1L, 1L, List.of(DATE), SLOT);
+
+        assertThatThrownBy(() -> holds.place(2L, 1L, List.of(DATE), SLOT))
+                .isInstanceOf(SlotConflictException.class)
+                .hasMessage("Slot is on hold for another payment");
+        assertThat(table).hasSize(1);
+    }
+
+    @Test
+    void aUserCannotHoldMoreThanTheLimit() {
+        holds.place(1L, 1L, SlotHolds.weekly(DATE, 4), SLOT);
+        holds.place(1L, 1L, List.of(DATE), TimeSlot.parse("20:00-21:00"));
+
+        assertThatThrownBy(() -> holds.place(1L, 1L, List.of(DATE), TimeSlot.parse("21:00-22:00")))
+                .isInstanceOf(HoldLimitException.class);
+        assertThat(table).hasSize(5);
+        // Other users are not affected, and a released hold makes room again
+        SlotHolds.Hold other = holds.place(2L, 1L, List.of(DATE), TimeSlot.parse("21:00-22:00"));
+        holds.release(other.id());
+        holds.release(table.get(0).getHoldId());
+        holds.place(1L, 1L, List.of(DATE), TimeSlot.parse("21:00-22:00"));
+    }
+
+    @Test
+    void bookedSlotCannotBeHeld() {
+        bookingService.reserve(List.of(booking()));
+
+        assertThatThrownBy(() -> holds.place(1L, 1L, List.of(DATE), SLOT))
+                .isInstanceOf(SlotConflictException.class)
+                .hasMessage("Slot already booked");
+        assertThat(table).isEmpty();
+    }
+
+    @Test
+    void slotBookedOnAnotherNodeCannotBeHeld() {
+        // This node loaded the day before another node booked the slot, so only the table knows
+        assertThat(index.isBooked(1L, DATE, SLOT)).isFalse();
+        booked.add(new BookedSlot(1L, DATE, SLOT.startMinute(), SLOT.durationMinutes()));
+
+        assertThatThrownBy(() -> holds.place(1L, 1L, List.of(DATE, DATE.plusWeeks(1)), SLOT))
+                .isInstanceOf(SlotConflictException.class)
+                .hasMessage("Slot already booked on " + DATE);
+        assertThat(table).isEmpty();
+    }
+
+    @Test
+    void directBookingIsRejectedWhileAnotherNodeHoldsTheSlot() {
+        // This node loaded the day before another node held the slot, so only the table knows
+        assertThat(index.isHeld(1L, DATE, SLOT)).isFalse();
+        table.add(new SlotHold(99L, "other-node", 2L, 1L, DATE, SLOT.startMinute(), SLOT.durationMinutes(),
+                LocalDateTime.now().plusMinutes(10), LocalDateTime.now()));
+
+        assertThatThrownBy(() -> bookingService.reserve(List.of(booking())))
+                .isInstanceOf(SlotConflictException.class)
+                .hasMessage("Slot is on hold for another payment");
+        assertThat(booked).isEmpty();
+    }
+
+    @Test
+    void holderConvertsItsOwnHold() {
+        SlotHolds.Hold hold = holds.place(1L, 1L, List.of(DATE), SLOT);
+        assertThatThrownBy(() -> bookingService.reserve(List.of(booking())))
+                .isInstanceOf(SlotConflictException.class);
+
+        bookingService.reserve(List.of(booking()), hold.id(), saved -> holds.deleteRows(hold.id()));
+        holds.release(hold.id());
+
+        assertThat(booked).hasSize(1);
+        assertThat(table).isEmpty();
+        assertThat(holds.activeCount()).isZero();
+        assertThat(index.isHeld(1L, DATE, SLOT)).isFalse();
+        assertThat(index.isBooked(1L, DATE, SLOT)).isTrue();
+    }
+
+    @Test
+    void holdPlacedOnAnotherNodeIsFoundOnlyByItsUser() {
+        table.add(new SlotHold(99L, "other-node", 2L, 1L, DATE, SLOT.startMinute(), SLOT.durationMinutes(),
+                LocalDateTime.now().plusMinutes(10), LocalDateTime.now()));
+
+        assertThat(holds.find("other-node", 3L)).isEmpty();
+        assertThat(holds.find("other-node", 2L)).hasValueSatisfying(hold -> {
+            assertThat(hold.courtId()).isEqualTo(1L);
+            assertThat(hold.dates()).containsExactly(DATE);
+            assertThat(hold.slot()).isEqualTo(SLOT);
+        });
+        assertThat(index.isHeld(1L, DATE, SLOT)).isTrue();
+    }
+
+    @Test
+    void expiredHoldIsReleasedByTheWheel() throws Exception {
+        table.add(new SlotHold(99L, "short", 2L, 1L, DATE, SLOT.startMinute(), SLOT.durationMinutes(),
+                LocalDateTime.now().plusNanos(50_000_000), LocalDateTime.now()));
+        assertThat(holds.find("short", 2L)).isPresent();
+
+        // The hold leaves memory before its rows are deleted, so wait for the whole release
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((holds.activeCount() > 0 || !rows(h -> true).isEmpty() || index.isHeld(1L, DATE, SLOT))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(holds.activeCount()).isZero();
+        assertThat(rows(h -> true)).isEmpty();
+        assertThat(index.isHeld(1L, DATE, SLOT)).isFalse();
+        holds.place(1L, 1L, List.of(DATE), SLOT);
+    }
+
+    private List<SlotHold> rows(Predicate<SlotHold> filter) {
+        synchronized (table) {
+            return table.stream().filter(filter).toList();
+        }
+    }
+
+    private static List<BookedSlot> slots(List<SlotHold> rows) {
+        return rows.stream()
+                .map(h -> new BookedSlot(h.getCourtId(), h.getDate(), h.getStartMinute(), h.getDurationMinutes()))
+                .toList();
+    }
+
+    private static Booking booking() {
+        Court court = new Court();
+        court.setId(1L);
+        Booking b = new Booking();
+        b.setCourt(court);
+        b.setDate(DATE);
+        b.setSlot(SLOT);
+        b.setWeekNumber(1);
+        return b;
+    }
+}
@@ -0,0 +1,220 @@
+package com.omnitrix.gearup.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omnitrix.gearup.model.CourtView;
+import com.omnitrix.gearup.repository.CourtRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SlotStreamHubTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+
+    // Taken-slot bitmaps the mocked index answers with, by court
+    private final Map<Long, Long> taken = new ConcurrentHashMap<>();
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final AvailabilityIndex availabilityIndex = mock(AvailabilityIndex.class);
+    private final CourtRepository courtRepo = mock(CourtRepository.class);
+    private AvailabilityIndex.Listener listener;
+    private SlotStreamHub hub;
+
+    @BeforeEach
+    void setUp() {
+        when(availabilityIndex.gridOf(anyLong())).thenReturn(60);
+        when(availabilityIndex.takenSlots(anyLong(), any())).thenAnswer(inv -> taken.getOrDefault(inv.<Long>getArgument(0), 0L));
+        when(courtRepo.findViewsByVenueId(1L)).thenReturn(List.of(
+                new CourtView(1L, "court 1", "FOOTBALL", 60, 1L), new CourtView(2L, "court 2", "FOOTBALL", 60, 1L)));
+        hub = hub(3);
+        ArgumentCaptor<AvailabilityIndex.Listener> captor = ArgumentCaptor.forClass(AvailabilityIndex.Listener.class);
+        verify(availabilityIndex).addListener(captor.capture());
+        listener = captor.getValue();
+    }
+
+    @AfterEach
+    void stop() {
+        hub.stop();
+    }
+
+    @Test
+    void subscribersOfOneTopicShareAChannelAndGetTheSameDiff() throws Exception {
+        RecordingEmitter a = subscribeCourt(1L);
+        RecordingEmitter b = subscribeCourt(1L);
+        subscribeVenue(1L);
+        assertThat(hub.channelCount()).isEqualTo(2);
+        assertThat(hub.subscriberCount()).isEqualTo(3);
+        clearInvocations(availabilityIndex);
+
+        change(1L, 1L << 18);
+
+        await(() -> a.frames.size() == 2 && b.frames.size() == 2 && emitters.get(2).frames.size() == 2);
+        assertThat(a.frames.get(0)).startsWith("event:snapshot");
+        assertThat(a.frames.get(1)).startsWith("event:diff").isEqualTo(b.frames.get(1));
+        assertThat(emitters.get(2).frames.get(1)).contains("\"courtId\":1").doesNotContain("\"courtId\":2");
+        // The court and venue channels each compute their diff once, whatever their subscribers
+        verify(availabilityIndex, times(2)).takenSlots(1L, DATE);
+    }
+
+    @Test
+    void snapshotReachesANewSubscriberBeforeAnyDiff() throws Exception {
+        RecordingEmitter first = subscribeCourt(1L);
+        first.block();
+        change(1L, 1L << 18); // the first diff is now stuck sending, holding the channel
+        await(() -> first.blocked.getCount() == 0);
+
+        Thread late = Thread.ofVirtual().start(() -> subscribeCourt(1L));
+        late.join(100);
+        assertThat(late.isAlive()).as("waits for the diff in progress").isTrue();
+
+        first.release();
+        late.join(5_000);
+        change(1L, (1L << 18) | (1L << 19));
+        RecordingEmitter second = emitters.get(1);
+        await(() -> second.frames.size() == 2);
+        assertThat(second.frames.get(0)).startsWith("event:snapshot");
+        assertThat(second.frames.get(1)).startsWith("event:diff");
+    }
+
+    @Test
+    void changesArrivingWhileSendingAreCoalescedIntoTheNextDiff() throws Exception {
+        RecordingEmitter emitter = subscribeCourt(1L);
+        emitter.block();
+        change(1L, 1L << 18);
+        await(() -> emitter.blocked.getCount() == 0);
+
+        change(1L, (1L << 18) | (1L << 19));
+        change(1L, (1L << 18) | (1L << 19) | (1L << 20));
+        change(1L, (1L << 18) | (1L << 20));
+        emitter.release();
+
+        await(() -> emitter.frames.size() == 3);
+        Thread.sleep(50);
+        assertThat(emitter.frames).hasSize(3);
+        assertThat(emitter.frames.get(2)).contains("\"taken\":" + ((1L << 18) | (1L << 20)))
+                .contains("\"changed\":" + (1L << 20));
+    }
+
+    @Test
+    void deadEmitterIsDroppedOnTheNextSendAndTheChannelCloses() throws Exception {
+        RecordingEmitter alive = subscribeCourt(1L);
+        RecordingEmitter dead = subscribeCourt(1L);
+        dead.dead = true;
+
+        change(1L, 1L << 18);
+
+        await(() -> hub.subscriberCount() == 1);
+        await(() -> alive.frames.size() == 2);
+        alive.dead = true;
+        change(1L, 1L << 19);
+        await(() -> hub.subscriberCount() == 0);
+        assertThat(hub.channelCount()).isZero();
+    }
+
+    @Test
+    void subscribersBeyondTheCapAreRefusedAndFailedJoinsAreNotCounted() {
+        hub.stop();
+        hub = hub(2);
+        subscribeCourt(1L);
+        when(courtRepo.findViewsByVenueId(9L)).thenThrow(new IllegalStateException("database down"));
+        assertThatThrownBy(() -> hub.subscribeVenue(9L, DATE)).hasMessage("database down");
+        assertThat(hub.subscriberCount()).isEqualTo(1);
+
+        subscribeCourt(2L);
+        assertThatThrownBy(() -> hub.subscribeCourt(3L, DATE))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Too many");
+        assertThat(hub.subscriberCount()).isEqualTo(2);
+    }
+
+    private SlotStreamHub hub(int maxSubscribers) {
+        return new SlotStreamHub(availabilityIndex, courtRepo, new ObjectMapper().findAndRegisterModules(),
+                maxSubscribers, Duration.ofMinutes(30), Duration.ofHours(1)) {
+            @Override
+            SseEmitter newEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    private RecordingEmitter subscribeCourt(Long courtId) {
+        return (RecordingEmitter) hub.subscribeCourt(courtId, DATE);
+    }
+
+    private RecordingEmitter subscribeVenue(Long venueId) {
+        return (RecordingEmitter) hub.subscribeVenue(venueId, DATE);
+    }
+
+    private void change(Long courtId, long bits) {
+        taken.put(courtId, bits);
+        listener.changed(courtId, DATE);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    // Keeps every frame written to it; can hold the next diff or fail like a closed connection
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<String> frames = new CopyOnWriteArrayList<>();
+        volatile boolean dead;
+        volatile CountDownLatch blocked = new CountDownLatch(0);
+        volatile CountDownLatch gate = new CountDownLatch(0);
+
+        void block() {
+            blocked = new CountDownLatch(1);
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            if (dead) {
+                throw new IOException("Broken pipe");
+            }
+            StringBuilder frame = new StringBuilder();
+            items.forEach(item -> frame.append(item.getData()));
+            if (frame.indexOf("event:diff") == 0 && blocked.getCount() > 0) {
+                blocked.countDown();
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            frames.add(frame.toString());
+        }
+    }
+}
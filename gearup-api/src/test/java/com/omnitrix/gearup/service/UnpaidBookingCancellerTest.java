@@ -0,0 +1,153 @@
+package com.omnitrix.gearup.service;
+
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.BookingSeriesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UnpaidBookingCancellerTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+
+    // Stands in for bookings: rows are cancelled in place, never deleted
+    private final List<Row> bookings = new ArrayList<>();
+    private final AtomicInteger transactions = new AtomicInteger();
+    // The transaction with this number throws instead of committing; 0 for none
+    private int failingTransaction;
+    private BookingRepository bookingRepo;
+    private BookingSeriesRepository seriesRepo;
+    private AvailabilityIndex availabilityIndex;
+
+    private static final class Row {
+        final Long seriesId;
+        final long userId;
+        final long courtId;
+        final boolean paid;
+        boolean cancelled;
+
+        Row(Long seriesId, long userId, long courtId, boolean paid) {
+            this.seriesId = seriesId;
+            this.userId = userId;
+            this.courtId = courtId;
+            this.paid = paid;
+        }
+
+        boolean unpaidActive() {
+            return !paid && !cancelled;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        bookingRepo = mock(BookingRepository.class);
+        seriesRepo = mock(BookingSeriesRepository.class);
+        availabilityIndex = mock(AvailabilityIndex.class);
+
+        when(bookingRepo.findUnpaidSeriesIdsOn(any())).thenAnswer(inv -> bookings.stream()
+                .filter(b -> b.seriesId != null && b.unpaidActive()).map(b -> b.seriesId).distinct().sorted().toList());
+        when(bookingRepo.findUsersWithUnpaidLegacyBookingsOn(any())).thenAnswer(inv -> bookings.stream()
+                .filter(b -> b.seriesId == null && b.unpaidActive()).map(b -> b.userId).distinct().sorted().toList());
+        when(seriesRepo.findCourtIds(anyCollection())).thenAnswer(inv -> bookings.stream()
+                .filter(b -> inv.<Collection<Long>>getArgument(0).contains(b.seriesId))
+                .map(b -> b.courtId).distinct().toList());
+        when(bookingRepo.cancelUnpaidInSeries(anyCollection())).thenAnswer(inv ->
+                cancel(bookings.stream().filter(b -> inv.<Collection<Long>>getArgument(0).contains(b.seriesId)).toList()));
+        when(bookingRepo.cancelUnpaidLegacy(anyCollection())).thenAnswer(inv ->
+                cancel(bookings.stream().filter(b -> b.seriesId == null
+                        && inv.<Collection<Long>>getArgument(0).contains(b.userId)).toList()));
+    }
+
+    @Test
+    void seriesAreCancelledInChunksOfTheirOwnTransaction() {
+        for (long series = 1; series <= 5; series++) {
+            bookings.add(new Row(series, series, 10 + series, false));
+            bookings.add(new Row(series, series, 10 + series, false));
+        }
+        bookings.add(new Row(6L, 6L, 16L, true)); // paid, left alone
+        bookings.add(new Row(null, 7L, 17L, false));
+
+        UnpaidBookingCanceller.Report report = canceller(2).cancelUnpaid(DATE);
+
+        assertThat(report.series()).isEqualTo(5);
+        assertThat(report.legacyUsers()).isEqualTo(1);
+        assertThat(report.bookingsCancelled()).isEqualTo(11);
+        verify(bookingRepo).cancelUnpaidInSeries(List.of(1L, 2L));
+        verify(bookingRepo).cancelUnpaidInSeries(List.of(3L, 4L));
+        verify(bookingRepo).cancelUnpaidInSeries(List.of(5L));
+        verify(seriesRepo, times(3)).markCancelled(anyCollection());
+        assertThat(transactions).hasValue(4);
+        verify(availabilityIndex, times(3)).invalidateCourts(anyCollection());
+        verify(availabilityIndex).invalidateAll();
+        assertThat(bookings).hasSize(12).filteredOn(b -> b.cancelled).hasSize(11);
+    }
+
+    @Test
+    void rerunAfterAFailedChunkOnlyDoesWhatIsLeft() {
+        for (long series = 1; series <= 5; series++) {
+            bookings.add(new Row(series, series, 10 + series, false));
+        }
+        UnpaidBookingCanceller canceller = canceller(2);
+
+        failingTransaction = 2;
+        assertThatThrownBy(() -> canceller.cancelUnpaid(DATE)).isInstanceOf(IllegalStateException.class);
+        // The first chunk committed and keeps its cancellations
+        assertThat(bookings).filteredOn(b -> b.cancelled).extracting(b -> b.seriesId).containsExactly(1L, 2L);
+
+        failingTransaction = 0;
+        UnpaidBookingCanceller.Report rerun = canceller.cancelUnpaid(DATE);
+        assertThat(rerun.series()).isEqualTo(3);
+        assertThat(rerun.bookingsCancelled()).isEqualTo(3);
+        assertThat(bookings).allMatch(b -> b.cancelled);
+
+        UnpaidBookingCanceller.Report again = canceller.cancelUnpaid(DATE);
+        assertThat(again.series()).isZero();
+        assertThat(again.bookingsCancelled()).isZero();
+        verify(availabilityIndex, times(0)).invalidateAll();
+    }
+
+    private UnpaidBookingCanceller canceller(int chunkSize) {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> {
+            List<Boolean> before = bookings.stream().map(b -> b.cancelled).toList();
+            Object result = ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null);
+            if (transactions.incrementAndGet() == failingTransaction) {
+                // Rolled back
+                for (int i = 0; i < before.size(); i++) {
+                    bookings.get(i).cancelled = before.get(i);
+                }
+                throw new IllegalStateException("connection lost");
+            }
+            return result;
+        });
+        return new UnpaidBookingCanceller(bookingRepo, seriesRepo, availabilityIndex, transactionTemplate, chunkSize);
+    }
+
+    // As the UPDATE does: only rows still active and unpaid change, and the count says how many
+    private static int cancel(List<Row> rows) {
+        int changed = 0;
+        for (Row row : rows) {
+            if (row.unpaidActive()) {
+                row.cancelled = true;
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
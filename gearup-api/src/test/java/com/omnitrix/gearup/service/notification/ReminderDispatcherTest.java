@@ -0,0 +1,87 @@
+package com.omnitrix.gearup.service.notification;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReminderDispatcherTest {
+
+    private ReminderDispatcher dispatcher;
+
+    @AfterEach
+    void stop() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void failedDigestsAreRetriedThenGivenUp() throws Exception {
+        Map<String, Integer> attempts = new ConcurrentHashMap<>();
+        dispatcher = new ReminderDispatcher(digest -> {
+            int attempt = attempts.merge(digest.email(), 1, Integer::sum);
+            if (digest.email().startsWith("broken") || attempt < 3) {
+                throw new IllegalStateException("mail server down");
+            }
+        }, 10, 2, 3, Duration.ofMillis(10));
+
+        dispatcher.submit(List.of(digest("flaky@gearup.lk"), digest("broken@gearup.lk")));
+
+        await(() -> dispatcher.sentCount() + dispatcher.failedCount() == 2);
+        assertThat(dispatcher.sentCount()).isEqualTo(1);
+        assertThat(dispatcher.failedCount()).isEqualTo(1);
+        assertThat(dispatcher.retriedCount()).isEqualTo(4);
+        assertThat(attempts).containsEntry("flaky@gearup.lk", 3).containsEntry("broken@gearup.lk", 3);
+    }
+
+    @Test
+    void submitReturnsAtOnceAndTheBatchWaitsForRoom() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher = new ReminderDispatcher(digest -> release.await(), 2, 1, 3, Duration.ofMillis(10));
+        List<ReminderDigest> digests = IntStream.range(0, 6).mapToObj(i -> digest("user" + i + "@gearup.lk")).toList();
+
+        // The scheduled job gets its thread back while the sender is stuck on the first digest
+        long started = System.nanoTime();
+        dispatcher.submit(digests);
+        assertThat(System.nanoTime() - started).isLessThan(TimeUnit.MILLISECONDS.toNanos(200));
+
+        // One digest in the worker's hands, two queued, the rest waiting in the producer
+        await(() -> dispatcher.queueDepth() == 2);
+        Thread.sleep(50);
+        assertThat(dispatcher.queueDepth()).isEqualTo(2);
+
+        release.countDown();
+        await(() -> dispatcher.sentCount() == 6);
+        assertThat(dispatcher.droppedCount()).isZero();
+    }
+
+    @Test
+    void batchesSubmittedAfterShutdownAreCountedAsDropped() {
+        dispatcher = new ReminderDispatcher(digest -> { }, 2, 1, 3, Duration.ofMillis(10));
+        dispatcher.shutdown();
+
+        dispatcher.submit(List.of(digest("late@gearup.lk")));
+
+        assertThat(dispatcher.droppedCount()).isEqualTo(1);
+    }
+
+    private static ReminderDigest digest(String email) {
+        return new ReminderDigest(1L, email, "Player", List.of());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.omnitrix.gearup.service.payment;
+
+import com.omnitrix.gearup.repository.PaymentNotificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The inbox against the real insert of PaymentNotificationRepository, run on an embedded Postgres
+class PaymentNotificationInboxTest {
+
+    private static EmbeddedPostgres postgres;
+    private static Connection conn;
+    private static String insertSql;
+
+    private PaymentNotificationRepository notificationRepo;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        Flyway.configure().dataSource(postgres.getPostgresDatabase()).load().migrate();
+        conn = postgres.getPostgresDatabase().getConnection();
+        insertSql = PaymentNotificationRepository.class
+                .getMethod("insertIfAbsent", String.class, String.class, String.class, LocalDateTime.class)
+                .getAnnotation(Query.class).value()
+                .replace(":orderId", "?").replace(":statusCode", "?")
+                .replace(":payload", "?").replace(":receivedAt", "?");
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        conn.close();
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (Statement st = conn.createStatement()) {
+            st.execute("delete from payment_notifications");
+        }
+        notificationRepo = mock(PaymentNotificationRepository.class);
+        when(notificationRepo.insertIfAbsent(any(), any(), any(), any())).thenAnswer(inv -> {
+            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                ps.setString(1, inv.getArgument(0));
+                ps.setString(2, inv.getArgument(1));
+                ps.setString(3, inv.getArgument(2));
+                ps.setTimestamp(4, Timestamp.valueOf(inv.<LocalDateTime>getArgument(3)));
+                return ps.executeUpdate();
+            }
+        });
+        transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+                ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    void duplicateDeliveryIsStoredOnce() throws Exception {
+        PaymentNotificationInbox inbox = newInbox();
+        assertThat(inbox.accept("ORD-1", notification("ORD-1", "2"))).isTrue();
+        assertThat(inbox.accept("ORD-1", notification("ORD-1", "2"))).isFalse();
+        // another node, or this one after a restart, only has the table to go by
+        assertThat(newInbox().accept("ORD-1", notification("ORD-1", "2"))).isFalse();
+
+        assertThat(row("ORD-1")).isEqualTo("2 RECEIVED");
+    }
+
+    @Test
+    void successAfterPendingReplacesThePendingRow() throws Exception {
+        PaymentNotificationInbox inbox = newInbox();
+        assertThat(inbox.accept("ORD-2", notification("ORD-2", "0"))).isTrue();
+        try (Statement st = conn.createStatement()) {
+            st.execute("update payment_notifications set state = 'PENDING', attempts = 1 where order_id = 'ORD-2'");
+        }
+
+        assertThat(inbox.accept("ORD-2", notification("ORD-2", "2"))).isTrue();
+        assertThat(row("ORD-2")).isEqualTo("2 RECEIVED");
+
+        // a retried pending callback arriving late leaves the success alone
+        assertThat(newInbox().accept("ORD-2", notification("ORD-2", "0"))).isFalse();
+        assertThat(row("ORD-2")).isEqualTo("2 RECEIVED");
+    }
+
+    @Test
+    void finalStatusIsNotReplaced() throws Exception {
+        PaymentNotificationInbox inbox = newInbox();
+        assertThat(inbox.accept("ORD-3", notification("ORD-3", "-2"))).isTrue();
+        assertThat(inbox.accept("ORD-3", notification("ORD-3", "2"))).isFalse();
+
+        assertThat(row("ORD-3")).isEqualTo("-2 RECEIVED");
+    }
+
+    private PaymentNotificationInbox newInbox() {
+        return new PaymentNotificationInbox(notificationRepo, transactionTemplate, new SimpleMeterRegistry(), 100);
+    }
+
+    private static Map<String, String[]> notification(String orderId, String statusCode) {
+        return Map.of("order_id", new String[]{orderId}, "status_code", new String[]{statusCode});
+    }
+
+    private static String row(String orderId) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "select status_code, state, payload from payment_notifications where order_id = ?")) {
+            ps.setString(1, orderId);
+            try (ResultSet rs = ps.executeQuery()) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getString(3)).contains("status_code=" + rs.getString(1));
+                String row = rs.getString(1) + " " + rs.getString(2);
+                assertThat(rs.next()).isFalse();
+                return row;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.omnitrix.gearup.service.payment;
+
+import com.omnitrix.gearup.config.Bulkheads;
+import com.omnitrix.gearup.model.Booking;
+import com.omnitrix.gearup.model.BookingSeries;
+import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.Payment;
+import com.omnitrix.gearup.model.PaymentNotification;
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.repository.CourtRepository;
+import com.omnitrix.gearup.repository.PaymentNotificationRepository;
+import com.omnitrix.gearup.repository.PaymentRepository;
+import com.omnitrix.gearup.repository.UserRepository;
+import com.omnitrix.gearup.service.BookingService;
+import com.omnitrix.gearup.service.SlotHolds;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentNotificationProcessorTest {
+
+    private final PaymentNotification row = new PaymentNotification();
+    private PaymentNotificationRepository notificationRepo;
+    private PaymentRepository paymentRepo;
+    private BookingService bookingService;
+    private SlotHolds slotHolds;
+    private PaymentNotificationProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        notificationRepo = mock(PaymentNotificationRepository.class);
+        paymentRepo = mock(PaymentRepository.class);
+        UserRepository userRepo = mock(UserRepository.class);
+        CourtRepository courtRepo = mock(CourtRepository.class);
+        bookingService = mock(BookingService.class);
+        slotHolds = mock(SlotHolds.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+        row.setOrderId("ORD-1");
+        when(notificationRepo.findById("ORD-1")).thenReturn(Optional.of(row));
+        when(userRepo.findByEmail("player@gearup.lk")).thenReturn(Optional.of(new User()));
+        when(courtRepo.findById(3L)).thenReturn(Optional.of(new Court()));
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+                ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        // reserve saves the bookings and runs the caller's step in the same transaction
+        when(bookingService.reserve(anyList(), any(), any())).thenAnswer(inv -> {
+            List<Booking> bookings = inv.getArgument(0);
+            bookings.get(0).setId(77L);
+            inv.<Consumer<List<Booking>>>getArgument(2).accept(bookings);
+            return bookings;
+        });
+        when(bookingService.reserveSeries(any(), anyBoolean(), any(), any())).thenAnswer(inv -> {
+            List<Booking> bookings = List.of(new Booking());
+            inv.<Consumer<List<Booking>>>getArgument(3).accept(bookings);
+            return bookings;
+        });
+        when(bookingService.maxWeeks()).thenReturn(26);
+        when(bookingService.newSeries(any(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            BookingSeries series = new BookingSeries();
+            series.setWeeks(inv.<Integer>getArgument(4));
+            return series;
+        });
+
+        processor = new PaymentNotificationProcessor(notificationRepo, paymentRepo, userRepo, courtRepo,
+                bookingService, slotHolds, new Bulkheads(1, 1, 1, 1, Duration.ZERO, 2), transactionTemplate,
+                new SimpleMeterRegistry(), 20, Duration.ofMinutes(5), 5);
+    }
+
+    @Test
+    void pendingIsParkedAndTheSuccessThatFollowsIsBooked() {
+        row.setPayload(payload("0"));
+        assertThat(processor.process("ORD-1")).isEqualTo("PENDING");
+        verify(notificationRepo).finish(eq("ORD-1"), eq("PENDING"), anyString(), any());
+        verify(slotHolds, never()).release(anyString());
+        verify(bookingService, never()).reserve(anyList(), any(), any());
+
+        // the inbox replaced the row with the success and put it back to RECEIVED
+        row.setPayload(payload("2"));
+        when(notificationRepo.finish(eq("ORD-1"), eq("PROCESSED"), anyString(), any())).thenReturn(1);
+        assertThat(processor.process("ORD-1")).isEqualTo("PROCESSED");
+
+        verify(bookingService).reserve(anyList(), eq("ORD-1"), any());
+        verify(slotHolds).deleteRows("ORD-1");
+        verify(paymentRepo).save(any(Payment.class));
+        verify(notificationRepo, never()).finish(eq("ORD-1"), eq("REJECTED"), any(), any());
+    }
+
+    @Test
+    void duplicateDeliveryAlreadyFinishedElsewhereIsNotBookedAgain() {
+        row.setPayload(payload("2"));
+        // another worker moved the row out of PROCESSING first
+        when(notificationRepo.finish(eq("ORD-1"), eq("PROCESSED"), anyString(), any())).thenReturn(0);
+
+        assertThat(processor.process("ORD-1")).isEqualTo("PROCESSED");
+        verify(paymentRepo, never()).save(any());
+        verify(slotHolds, never()).deleteRows(anyString());
+    }
+
+    @Test
+    void failedPaymentIsRejectedAndFreesTheHold() {
+        row.setPayload(payload("-2"));
+        assertThat(processor.process("ORD-1")).isEqualTo("REJECTED");
+        verify(slotHolds).release("ORD-1");
+        verify(bookingService, never()).reserve(anyList(), any(), any());
+    }
+
+    @Test
+    void weeksOutsideTheAllowedRangeFallBackToTheWeeksHeld() {
+        row.setPayload(payload("2", "0"));
+        when(slotHolds.heldDates("ORD-1")).thenReturn(4);
+        when(notificationRepo.finish(eq("ORD-1"), eq("PROCESSED"), anyString(), any())).thenReturn(1);
+
+        assertThat(processor.process("ORD-1")).isEqualTo("PROCESSED");
+        verify(bookingService).newSeries(any(), any(), any(), any(), eq(4), any());
+        verify(bookingService).reserveSeries(any(), eq(true), eq("ORD-1"), any());
+    }
+
+    @Test
+    void weeksOutsideTheAllowedRangeWithoutAHoldAreRejectedForRefund() {
+        row.setPayload(payload("2", "999999999999"));
+
+        assertThat(processor.process("ORD-1")).isEqualTo("REJECTED");
+        verify(notificationRepo).finish(eq("ORD-1"), eq("REJECTED"), contains("refund required"), any());
+        verify(slotHolds).release("ORD-1");
+        verify(bookingService, never()).newSeries(any(), any(), any(), any(), any(), any());
+        verify(bookingService, never()).reserveSeries(any(), anyBoolean(), any(), any());
+    }
+
+    @Test
+    void weeksInRangeAreBookedAsSent() {
+        row.setPayload(payload("2", "8"));
+        when(notificationRepo.finish(eq("ORD-1"), eq("PROCESSED"), anyString(), any())).thenReturn(1);
+
+        assertThat(processor.process("ORD-1")).isEqualTo("PROCESSED");
+        verify(bookingService).newSeries(any(), any(), any(), any(), eq(8), any());
+        verify(slotHolds, never()).heldDates(anyString());
+    }
+
+    private static String payload(String statusCode) {
+        return payload(statusCode, "false");
+    }
+
+    private static String payload(String statusCode, String custom4) {
+        return PaymentNotificationInbox.encode(Map.of(
+                "order_id", new String[]{"ORD-1"},
+                "status_code", new String[]{statusCode},
+                "payhere_amount", new String[]{"1000.00"},
+                "email", new String[]{"player@gearup.lk"},
+                "custom_1", new String[]{"3"},
+                "custom_2", new String[]{"2025-06-06"},
+                "custom_3", new String[]{"18:00-19:00"},
+                "custom_4", new String[]{custom4}));
+    }
+}
@@ -0,0 +1,20 @@
+package com.omnitrix.gearup.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// JMH's own main, with the GC profiler always added so allocation per operation (gc.alloc.rate.norm)
+// is reported next to every score; a path that starts allocating more shows up there first.
+// Takes the usual JMH arguments, e.g. "Slots -f 1 -wi 3 -i 5" or "-rf json -rff results.json".
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build()).run();
+    }
+}
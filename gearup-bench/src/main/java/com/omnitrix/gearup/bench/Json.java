@@ -0,0 +1,18 @@
+package com.omnitrix.gearup.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// The ObjectMapper the API answers with: Spring's defaults plus Spring Boot's ISO dates
+final class Json {
+
+    private Json() {
+    }
+
+    static ObjectMapper mapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.omnitrix.gearup.bench;
+
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.security.AuthUser;
+import com.omnitrix.gearup.security.JwtUtil;
+import com.omnitrix.gearup.security.RefreshTokenRevocations;
+import com.omnitrix.gearup.security.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Token work on the auth path: signing the tokens a login hands out, resolving a bearer token the
+// way JwtAuthFilter does, either verified from scratch or served from the verified-token cache,
+// and the revocation check a refresh makes for a family that is still live (the common case,
+// answered by the Bloom filter alone while 100k other families are revoked).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private VerifiedTokenCache tokenCache;
+    private User user;
+    private String accessToken;
+    private RefreshTokenRevocations revocations;
+    private String family;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil("benchmark-secret-for-gearup-jwt-at-least-32-bytes");
+        user = new User();
+        user.setId(7L);
+        user.setEmail("player@gearup.lk");
+        user.setRole("USER");
+        accessToken = jwtUtil.generateAccessToken(user);
+        tokenCache = new VerifiedTokenCache(10_000);
+        Claims claims = jwtUtil.parse(accessToken);
+        tokenCache.put(accessToken, jwtUtil.toPrincipal(claims), claims.getExpiration().getTime());
+        revocations = new RefreshTokenRevocations(100_000);
+        for (int i = 0; i < 100_000; i++) {
+            revocations.revoke(UUID.randomUUID().toString(), Long.MAX_VALUE);
+        }
+        family = UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtUtil.generateAccessToken(user);
+    }
+
+    @Benchmark
+    public String generateRefreshToken() {
+        return jwtUtil.generateRefreshToken(user.getId(), user.getEmail(), family,
+                new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(7)));
+    }
+
+    @Benchmark
+    public AuthUser parseAccessToken() {
+        return jwtUtil.toPrincipal(jwtUtil.parse(accessToken));
+    }
+
+    @Benchmark
+    public AuthUser cachedAccessToken() {
+        return tokenCache.get(accessToken);
+    }
+
+    @Benchmark
+    public boolean liveFamilyCheck() {
+        return revocations.isRevoked(family);
+    }
+}
@@ -0,0 +1,109 @@
+package com.omnitrix.gearup.bench;
+
+import com.omnitrix.gearup.controller.AuthController;
+import com.omnitrix.gearup.model.AuthRequest;
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.repository.RefreshTokenRepository;
+import com.omnitrix.gearup.repository.UserRepository;
+import com.omnitrix.gearup.security.JwtUtil;
+import com.omnitrix.gearup.security.PasswordHasher;
+import com.omnitrix.gearup.security.RefreshTokenRevocations;
+import com.omnitrix.gearup.security.RefreshTokenStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Logins per second through AuthController.login at each BCrypt cost, with as many callers as
+// cores all going through the hashing pool. login finds a hash at the configured cost;
+// rehashLogin finds one at the cost below, so every call also hashes the password again, which
+// is what the first login of each user costs after the cost is raised.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(Threads.MAX)
+@Fork(1)
+public class LoginBenchmark {
+
+    private static final String EMAIL = "player@gearup.lk";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"8", "10", "12"})
+    public int cost;
+
+    private PasswordHasher hasher;
+    private AuthController current;
+    private AuthController stale;
+    private AuthRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(cost), cost, 0, 1024);
+        JwtUtil jwtUtil = new JwtUtil("benchmark-secret-for-gearup-jwt-at-least-32-bytes");
+        current = controller(hasher, jwtUtil, new BCryptPasswordEncoder(cost).encode(PASSWORD));
+        stale = controller(hasher, jwtUtil, new BCryptPasswordEncoder(cost - 1).encode(PASSWORD));
+        request = new AuthRequest();
+        request.setEmail(EMAIL);
+        request.setPassword(PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hasher.shutdown();
+    }
+
+    @Benchmark
+    public ResponseEntity<?> login() {
+        return current.login(request, "jmh");
+    }
+
+    @Benchmark
+    public ResponseEntity<?> rehashLogin() {
+        return stale.login(request, "jmh");
+    }
+
+    // The stored hash never changes, so every call sees the same user
+    private static AuthController controller(PasswordHasher hasher, JwtUtil jwtUtil, String hash) {
+        UserRepository userRepo = Stubs.of(UserRepository.class, Map.of(
+                "findByEmail", args -> Optional.of(user(hash)),
+                "updatePassword", args -> 1));
+        RefreshTokenRepository tokenRepo = Stubs.of(RefreshTokenRepository.class, Map.of("insert", args -> 1));
+        RefreshTokenStore refreshTokens = new RefreshTokenStore(tokenRepo, new RefreshTokenRevocations(1000), jwtUtil,
+                new SimpleMeterRegistry(), Duration.ofDays(7), Duration.ofMinutes(1));
+        AuthController controller = new AuthController();
+        Stubs.inject(controller, "userRepo", userRepo);
+        Stubs.inject(controller, "passwordHasher", hasher);
+        Stubs.inject(controller, "jwtUtil", jwtUtil);
+        Stubs.inject(controller, "refreshTokens", refreshTokens);
+        return controller;
+    }
+
+    private static User user(String hash) {
+        User user = new User();
+        user.setId(7L);
+        user.setEmail(EMAIL);
+        user.setPassword(hash);
+        user.setRole("USER");
+        return user;
+    }
+}
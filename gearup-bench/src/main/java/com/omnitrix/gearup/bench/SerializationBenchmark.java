@@ -0,0 +1,120 @@
+package com.omnitrix.gearup.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omnitrix.gearup.model.Booking;
+import com.omnitrix.gearup.model.BookingView;
+import com.omnitrix.gearup.model.Court;
+import com.omnitrix.gearup.model.CursorPage;
+import com.omnitrix.gearup.model.Futsal;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.model.User;
+import com.omnitrix.gearup.model.VenueView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson output for listings of the given size: Booking entities with their user and court, and
+// Futsal venues with their courts, against the projection records the controllers return now.
+// Entity graphs that grow new serialized links show up here as more bytes and more allocation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+
+    @Param({"1", "50", "200"})
+    public int size;
+
+    private ObjectMapper mapper;
+    private List<Booking> bookings;
+    private List<Futsal> venues;
+    private CursorPage<BookingView> bookingViews;
+    private CursorPage<VenueView> venueViews;
+
+    @Setup
+    public void setUp() {
+        mapper = Json.mapper();
+        User user = new User();
+        user.setId(7L);
+        user.setName("Player");
+        user.setEmail("player@gearup.lk");
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ012");
+        user.setDateOfBirth(LocalDate.of(1995, 1, 1));
+        user.setMobileNumber("0771234567");
+        user.setLocation("Colombo");
+
+        venues = new ArrayList<>(size);
+        List<Court> courts = new ArrayList<>();
+        for (long v = 1; v <= size; v++) {
+            Futsal venue = new Futsal(v, "Venue " + v, "Colombo " + v, "011234567" + v % 10, new ArrayList<>());
+            for (long c = 1; c <= 4; c++) {
+                Court court = new Court();
+                court.setId(v * 10 + c);
+                court.setName("Court " + c);
+                court.setSportType(c % 2 == 0 ? "CRICKET" : "FOOTBALL");
+                court.setVenue(venue);
+                venue.getCourts().add(court);
+                courts.add(court);
+            }
+            venues.add(venue);
+        }
+
+        bookings = new ArrayList<>(size);
+        List<BookingView> views = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Court court = courts.get(i % courts.size());
+            Booking booking = new Booking();
+            booking.setId((long) i + 1);
+            booking.setUser(user);
+            booking.setCourt(court);
+            booking.setDate(DATE.plusDays(i / 24));
+            booking.setSlot(new TimeSlot(i % 24 * 60, 60));
+            booking.setStatus("CONFIRMED");
+            bookings.add(booking);
+            views.add(new BookingView(booking.getId(), court.getId(), court.getName(), booking.getDate(),
+                    booking.getStartMinute(), booking.getDurationMinutes(), booking.getStatus(),
+                    booking.isPermanent(), booking.getWeekNumber(), booking.isPaymentReceived(),
+                    booking.isCancelled(), null));
+        }
+        bookingViews = CursorPage.of(views, size, b -> b.date() + "_" + b.id());
+        venueViews = CursorPage.of(venues.stream().map(VenueView::from).toList(), size, v -> v.id().toString());
+    }
+
+    @Benchmark
+    public byte[] bookingEntities() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(bookings);
+    }
+
+    @Benchmark
+    public byte[] bookingViews() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(bookingViews);
+    }
+
+    @Benchmark
+    public byte[] venueEntities() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(venues);
+    }
+
+    @Benchmark
+    public byte[] venueViews() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(venueViews);
+    }
+}
@@ -0,0 +1,125 @@
+package com.omnitrix.gearup.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omnitrix.gearup.model.BookedSlot;
+import com.omnitrix.gearup.model.SlotAvailability;
+import com.omnitrix.gearup.model.TimeSlot;
+import com.omnitrix.gearup.repository.BookingRepository;
+import com.omnitrix.gearup.repository.CourtRepository;
+import com.omnitrix.gearup.repository.SlotHoldRepository;
+import com.omnitrix.gearup.service.AvailabilityIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Building the slot list behind GET /api/booking/courts/{courtId}/slots for each slot grid, from a
+// cached day, from a day that has to be loaded, and through to JSON. legacyHashMaps is the removed
+// generate24HourSlots path (formatted labels, one HashMap per slot), kept as the reference the
+// index is measured against.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotsBenchmark {
+
+    private static final Long COURT = 1L;
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 6);
+
+    @Param({"30", "60", "90"})
+    public int grid;
+
+    private AvailabilityIndex index;
+    private ObjectMapper mapper;
+    private List<BookedSlot> booked;
+
+    @Setup
+    public void setUp() {
+        // Every third slot of the day is booked
+        booked = new ArrayList<>();
+        for (int start = 0; start + grid <= TimeSlot.MINUTES_PER_DAY; start += 3 * grid) {
+            booked.add(new BookedSlot(COURT, DATE, start, grid));
+        }
+        BookingRepository bookingRepo = Stubs.of(BookingRepository.class,
+                Map.of("findBookedRanges", args -> booked));
+        CourtRepository courtRepo = Stubs.of(CourtRepository.class,
+                Map.of("findSlotMinutes", args -> Optional.of(grid)));
+        SlotHoldRepository holdRepo = Stubs.of(SlotHoldRepository.class,
+                Map.of("findActiveRanges", args -> List.of()));
+        index = new AvailabilityIndex(bookingRepo, courtRepo, holdRepo, new SimpleMeterRegistry(),
+                1000, Duration.ofDays(1));
+        index.slots(COURT, DATE);
+        mapper = Json.mapper();
+    }
+
+    @Benchmark
+    public List<SlotAvailability> cachedDay() {
+        return index.slots(COURT, DATE);
+    }
+
+    @Benchmark
+    public List<SlotAvailability> uncachedDay() {
+        index.invalidateAll();
+        return index.slots(COURT, DATE);
+    }
+
+    @Benchmark
+    public byte[] cachedDayJson() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(index.slots(COURT, DATE));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> legacyHashMaps() {
+        Set<String> bookedSlots = new HashSet<>();
+        for (BookedSlot slot : booked) {
+            bookedSlots.add(String.format("%02d:%02d", slot.startMinute() / 60, slot.startMinute() % 60) + "-"
+                    + String.format("%02d:%02d", (slot.startMinute() + grid) / 60 % 24, (slot.startMinute() + grid) % 60));
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (int start = 0; start + grid <= TimeSlot.MINUTES_PER_DAY; start += grid) {
+            String from = String.format("%02d:%02d", start / 60, start % 60);
+            String to = String.format("%02d:%02d", (start + grid) / 60 % 24, (start + grid) % 60);
+            String slot = from + "-" + to;
+            Map<String, Object> map = new HashMap<>();
+            map.put("timeSlot", slot);
+            map.put("available", !bookedSlots.contains(slot));
+            result.add(map);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] legacyHashMapsJson() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(legacyHashMaps());
+    }
+
+    // What every booking request does with its "HH:mm-HH:mm" slot
+    @Benchmark
+    public void parseAndLabel(Blackhole bh) {
+        TimeSlot slot = TimeSlot.parse("18:00-19:30");
+        bh.consume(slot.label());
+    }
+}